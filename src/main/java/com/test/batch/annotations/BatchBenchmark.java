@@ -0,0 +1,28 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to benchmark the job (or step) of a batch test. Used with {@link BatchTest} : the job is launched
+ * several times to warm the JVM up, then measured over several runs. Each run gets unique job parameters.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface BatchBenchmark {
+
+	/**
+	 * @return number of runs before measuring
+	 */
+	int warmupIterations() default 3;
+
+	/**
+	 * @return number of measured runs
+	 */
+	int iterations() default 10;
+}
@@ -19,6 +19,9 @@ public @interface BatchTest {
 
     int DEFAULT = Integer.MAX_VALUE;
 
+    /** Job parameter giving the index of a launch, from 0, when the job is launched several times at once. */
+    String INSTANCE_PARAMETER = "batch.test.instance";
+
     /**
      * @return expected status
      */
@@ -28,4 +31,25 @@ public @interface BatchTest {
      * @return expected return code
      */
     int expectedReturn() default DEFAULT;
+
+    /**
+     * @return maximum duration of the job in milliseconds, 0 for no limit
+     */
+    long timeout() default 0;
+
+    /**
+     * @return maximum number of bytes allocated by the job chunks, 0 for no limit
+     */
+    long maxAllocatedBytes() default 0;
+
+    /**
+     * @return maximum garbage collection time of the JVM during the job in milliseconds, 0 for no limit
+     */
+    long maxGcTime() default 0;
+
+    /**
+     * @return number of launches of the job started at the same time, each with its own job parameters, against the
+     *         shared job repository and database
+     */
+    int concurrentLaunches() default 1;
 }
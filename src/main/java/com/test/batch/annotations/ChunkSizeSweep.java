@@ -0,0 +1,34 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to run a chunk-oriented step with several commit intervals. Used with {@link BatchTest} : for each size,
+ * the commit interval of the step is overridden and the job (or step) is launched. The throughput and the commit count
+ * of each run are reported, with the commit interval giving the best throughput.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ChunkSizeSweep {
+
+	/**
+	 * @return commit intervals
+	 */
+	int[] sizes();
+
+	/**
+	 * @return name of the tuned step, the step of {@link ContextConfig#stepName()} when empty
+	 */
+	String step() default "";
+
+	/**
+	 * @return number of runs of each commit interval before measuring
+	 */
+	int warmupIterations() default 1;
+}
@@ -30,4 +30,15 @@ public @interface ContextConfig {
 	 * @return main contexts
 	 */
 	String[] values() default {};
+
+	/**
+	 * @return true to launch the job with an in-memory job repository instead of the one of the context
+	 */
+	boolean inMemoryRepository() default false;
+
+	/**
+	 * @return true to reuse the context (and its databases) in the next tests using the same context paths, instead of
+	 *         building a fresh context for each test
+	 */
+	boolean cached() default false;
 }
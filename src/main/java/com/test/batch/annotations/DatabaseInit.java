@@ -7,6 +7,8 @@ import java.lang.annotation.Target;
 
 /**
  * Annotation to declare contexts used for database initialization.
+ * The initialization runs once per cached context : the resulting database content is kept as a snapshot and restored
+ * before each test using the same contexts.
  * 
  * @author mguennec
  * 
@@ -15,4 +17,9 @@ import java.lang.annotation.Target;
 @Target(ElementType.METHOD)
 public @interface DatabaseInit {
 	String[] value() default {};
+
+	/**
+	 * @return false to disable the snapshot and reuse the database as the previous test left it
+	 */
+	boolean snapshot() default true;
 }
@@ -0,0 +1,20 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to declare that a batch test leaves its Spring context in a state that can't be reused (modified beans,
+ * database content...). The context is closed after the test and rebuilt for the next one instead of being taken
+ * from the cache.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface DirtiesContext {
+
+}
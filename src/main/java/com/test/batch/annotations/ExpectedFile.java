@@ -0,0 +1,34 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to compare a file written by the job with an expected (golden) file once the job is over. Locations are
+ * Spring resource locations (<code>file:</code>, <code>classpath:</code>...) of files on the file system. The files are
+ * compared byte by byte, or line by line regardless of their order.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ExpectedFile {
+
+	/**
+	 * @return location of the file written by the job
+	 */
+	String output();
+
+	/**
+	 * @return location of the expected file
+	 */
+	String expected();
+
+	/**
+	 * @return true to compare the lines of the files regardless of their order
+	 */
+	boolean ignoreOrder() default false;
+}
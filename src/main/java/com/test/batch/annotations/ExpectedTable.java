@@ -0,0 +1,40 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to compare the content of a table with an expected CSV dataset once the job is over. The first line of
+ * the dataset gives the compared columns, the records must be sorted like the table ordered by its key. Values are
+ * compared as strings, as returned by the JDBC driver ; an empty field stands for null. Several tables are compared with
+ * {@link ExpectedTables}.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ExpectedTable {
+
+	/**
+	 * @return table name
+	 */
+	String table();
+
+	/**
+	 * @return key columns, ordering the rows
+	 */
+	String[] key();
+
+	/**
+	 * @return location of the expected CSV dataset
+	 */
+	String expected();
+
+	/**
+	 * @return name of the data source bean, the only data source of the context when empty
+	 */
+	String dataSource() default "";
+}
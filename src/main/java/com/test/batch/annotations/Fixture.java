@@ -0,0 +1,47 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to load rows into a table before the test, read from a fixture file or generated from a template. The
+ * table is emptied first. A fixture file is either a CSV dataset (a header line with the column names, an empty field
+ * stands for null) or a binary fixture written by {@link com.test.batch.database.BinaryFixture}. A template gives the
+ * value of each column as <code>COLUMN=value</code>, where <code>${row}</code> is replaced by the row number (from 1),
+ * <code>${row % n}</code> and <code>${row / n}</code> by its remainder and quotient ; an empty value stands for null.
+ * Several tables are loaded with {@link Fixtures}.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Fixture {
+
+	/**
+	 * @return table name
+	 */
+	String table();
+
+	/**
+	 * @return location of the CSV or binary fixture file, empty for a template
+	 */
+	String file() default "";
+
+	/**
+	 * @return template of the rows, one <code>COLUMN=value</code> per column
+	 */
+	String[] values() default {};
+
+	/**
+	 * @return number of rows generated from the template
+	 */
+	long rows() default 0;
+
+	/**
+	 * @return name of the data source bean, the only data source of the context when empty
+	 */
+	String dataSource() default "";
+}
@@ -0,0 +1,22 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to load several tables before the test. Tables which don't reference each other are loaded in parallel.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Fixtures {
+
+	/**
+	 * @return loaded tables
+	 */
+	Fixture[] value();
+}
@@ -0,0 +1,35 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation configuring the worker JVMs of a {@link com.test.batch.fork.ForkedSuite}.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ForkedWorkers {
+
+	/** Uses as many workers as available processors. */
+	int AVAILABLE_PROCESSORS = 0;
+
+	/**
+	 * @return number of worker JVMs
+	 */
+	int workers() default AVAILABLE_PROCESSORS;
+
+	/**
+	 * @return number of test classes run by a worker JVM before it is replaced by a new one
+	 */
+	int classesPerWorker() default 20;
+
+	/**
+	 * @return JVM arguments of the workers, added to the ones of the current JVM
+	 */
+	String[] jvmArgs() default {};
+}
@@ -0,0 +1,44 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to check the JDBC activity of the job of a batch test, to catch the lookups done item by item (N+1
+ * queries) and the writers which don't batch their statements. The statements on the tables of the job repository are
+ * ignored.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface JdbcBudget {
+
+	/**
+	 * @return maximum number of statements per item read, 0 for no limit
+	 */
+	double maxStatementsPerItem() default 0;
+
+	/**
+	 * @return maximum number of round trips to the database per item read, 0 for no limit
+	 */
+	double maxRoundTripsPerItem() default 0;
+
+	/**
+	 * @return true if every insert, update, delete or merge must be executed in JDBC batches
+	 */
+	boolean batchedWrites() default false;
+
+	/**
+	 * @return minimum mean size of the batches of a write statement, 0 for no limit
+	 */
+	int minBatchSize() default 0;
+
+	/**
+	 * @return table prefix of the job repository, whose statements are ignored
+	 */
+	String repositoryTablePrefix() default "BATCH_";
+}
@@ -0,0 +1,26 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to run the test methods of a class concurrently. Each worker thread uses its own Spring contexts (and
+ * therefore its own job repository and launcher beans).
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ParallelBatchTests {
+
+	/** Uses as many threads as available processors. */
+	int AVAILABLE_PROCESSORS = 0;
+
+	/**
+	 * @return number of worker threads
+	 */
+	int threads() default AVAILABLE_PROCESSORS;
+}
@@ -0,0 +1,35 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to run a partitioned step with several grid sizes and thread counts. Used with {@link BatchTest} and
+ * {@link ContextConfig#stepName()} naming a partitioned step : for each grid size and thread count, the partition
+ * handler of the step gets the grid size and a task executor with that many threads, then the step is launched. The
+ * throughput of each configuration and the speedup against the first one are reported.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PartitionSweep {
+
+	/**
+	 * @return grid sizes
+	 */
+	int[] gridSizes();
+
+	/**
+	 * @return thread counts, one thread per partition when empty
+	 */
+	int[] threads() default {};
+
+	/**
+	 * @return number of runs of each configuration before measuring
+	 */
+	int warmupIterations() default 1;
+}
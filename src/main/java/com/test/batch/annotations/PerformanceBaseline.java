@@ -0,0 +1,31 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to compare the metrics of a batch test with a baseline kept in the repository. Used with
+ * {@link BatchTest}, alone or with {@link BatchBenchmark} : the throughput and allocation of the job and of each step
+ * (and the chunk duration percentiles of a benchmark) are compared with the baseline, and the test fails when one of
+ * them is worse by more than the tolerance or is missing. The baseline is recorded instead of compared when the system
+ * property {@code batch.test.baseline.record} is true and the job completed.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PerformanceBaseline {
+
+	/**
+	 * @return accepted degradation of a metric, relative to the baseline (0.1 for 10%)
+	 */
+	double tolerance() default 0.1;
+
+	/**
+	 * @return baseline file, named after the test in the baseline directory when empty
+	 */
+	String file() default "";
+}
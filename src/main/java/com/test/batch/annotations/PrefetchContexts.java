@@ -0,0 +1,24 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to build the Spring contexts of the next test methods of a class in the background while the current test
+ * runs. Database initialization contexts of the next tests run while the current job may still use the same database :
+ * only use it when the tests don't share a database or when the next tests restore their database snapshot.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PrefetchContexts {
+
+	/**
+	 * @return maximum number of test methods looked ahead
+	 */
+	int max() default 1;
+}
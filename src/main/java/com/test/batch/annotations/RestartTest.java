@@ -0,0 +1,36 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to measure the cost of a restart. Used with {@link BatchTest} : the job (or step) is launched with a
+ * failure injected after a given item of a chunk-oriented step, then restarted with the same job parameters. The test
+ * fails if the first launch doesn't fail or if the restart doesn't complete. The items read again and the duration of
+ * the restart are reported. Needs a persistent job repository.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RestartTest {
+
+	/**
+	 * @return number of the item after which the step fails, from 1
+	 */
+	long failAt();
+
+	/**
+	 * @return name of the failing step, the step of {@link ContextConfig#stepName()} when empty
+	 */
+	String step() default "";
+
+	/**
+	 * @return true to launch the job once without failure first, to measure the items read again and the overhead of
+	 *         the failure against a clean run
+	 */
+	boolean referenceRun() default false;
+}
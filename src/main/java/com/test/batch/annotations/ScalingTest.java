@@ -0,0 +1,42 @@
+package com.test.batch.annotations;
+
+import com.test.batch.input.InputGenerator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to check how the duration of a batch test grows with its input size. Used with {@link BatchTest} : for
+ * each size, input is generated and the job (or step) is launched. The durations are fitted to
+ * <code>duration = a * size ^ exponent</code> and the test fails if the exponent is greater than the declared bound.
+ * Fixed costs (job start, step open...) lower the exponent : the smallest size must be large enough to hide them.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ScalingTest {
+
+	/**
+	 * @return input sizes, at least two
+	 */
+	long[] sizes();
+
+	/**
+	 * @return generator of the input
+	 */
+	Class<? extends InputGenerator> generator();
+
+	/**
+	 * @return highest accepted growth exponent (1 for linear growth)
+	 */
+	double maxExponent() default 1.2;
+
+	/**
+	 * @return number of runs at the smallest size before measuring
+	 */
+	int warmupIterations() default 1;
+}
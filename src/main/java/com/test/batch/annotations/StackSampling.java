@@ -0,0 +1,35 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to sample the stacks of the job threads while a {@link BatchTest} runs. With a stall timeout, the threads
+ * are only sampled while no chunk has been committed for that long (stall watchdog) ; without it they are sampled during
+ * the whole job (sampling profiler). The samples are folded into a report of the hottest stacks and application frames.
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StackSampling {
+
+	/**
+	 * @return interval between two samples in milliseconds
+	 */
+	long interval() default 20;
+
+	/**
+	 * @return time without chunk commit after which the job is considered stalled and sampled, in milliseconds, 0 to
+	 *         sample the whole job
+	 */
+	long stallTimeout() default 0;
+
+	/**
+	 * @return number of stacks and frames reported
+	 */
+	int top() default 10;
+}
@@ -0,0 +1,36 @@
+package com.test.batch.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to run a chunk-oriented step with 1, 2, 4... up to {@link #maxThreads()} threads. Used with
+ * {@link BatchTest} : for each thread count, the step gets a task executor with that many threads, then the job (or
+ * step) is launched. The throughput, speedup and efficiency of each thread count are reported, with the thread counts
+ * where the throughput levels off or drops and their likely cause (thread-unsafe reader, synchronized reader or writer,
+ * lock contention).
+ * 
+ * @author mguennec
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ThreadCountSweep {
+
+	/**
+	 * @return highest thread count
+	 */
+	int maxThreads();
+
+	/**
+	 * @return name of the tuned step, the step of {@link ContextConfig#stepName()} when empty
+	 */
+	String step() default "";
+
+	/**
+	 * @return number of runs of each thread count before measuring
+	 */
+	int warmupIterations() default 1;
+}
@@ -4,6 +4,11 @@ import com.test.batch.annotations.BatchParameters;
 import com.test.batch.annotations.BatchTest;
 import com.test.batch.annotations.ContextConfig;
 import com.test.batch.annotations.DatabaseInit;
+import com.test.batch.annotations.DirtiesContext;
+import com.test.batch.annotations.Fixture;
+import com.test.batch.annotations.Fixtures;
+import com.test.batch.annotations.JdbcBudget;
+import com.test.batch.jdbc.JdbcRecorder;
 import org.apache.commons.lang3.ArrayUtils;
 import org.hamcrest.core.IsEqual;
 import org.hamcrest.core.IsNot;
@@ -14,7 +19,10 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.util.StringUtils;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,6 +33,9 @@ import java.util.Map;
  */
 public final class BatchTestUtils {
 
+	/** System property caching the contexts of all the tests when set to true. */
+	public static final String CONTEXT_CACHE_PROPERTY = "batch.test.context.cache";
+
 	private BatchTestUtils() {
 		// Ne fait rien
 	}
@@ -65,6 +76,51 @@ public final class BatchTestUtils {
 		return init == null ? new String[0] : init.value();
 	}
 
+	/**
+	 * Gets the fixtures loaded before a test method.
+	 * 
+	 * @param method
+	 *            method
+	 * @return the fixtures, empty if there is none
+	 */
+	public static Fixture[] getFixtures(final Method method) {
+		final List<Fixture> fixtures = new ArrayList<>();
+		final Fixture fixture = method.getAnnotation(Fixture.class);
+		if (fixture != null) {
+			fixtures.add(fixture);
+		}
+		final Fixtures all = method.getAnnotation(Fixtures.class);
+		if (all != null) {
+			fixtures.addAll(Arrays.asList(all.value()));
+		}
+		return fixtures.toArray(new Fixture[fixtures.size()]);
+	}
+
+	/**
+	 * Tells if the database of a test method must be restored from a snapshot of its initialization.
+	 * 
+	 * @param method
+	 *            method
+	 * @return true if the method has database initialization contexts or fixtures, and a snapshot
+	 */
+	public static boolean isDatabaseSnapshot(final Method method) {
+		final DatabaseInit init = method.getAnnotation(DatabaseInit.class);
+		final boolean initialized = init != null && init.value().length > 0 || getFixtures(method).length > 0;
+		return initialized && (init == null || init.snapshot());
+	}
+
+	/**
+	 * Tells if the snapshot of the database of a test method is disabled.
+	 * 
+	 * @param method
+	 *            method
+	 * @return true if the method keeps the database as the previous test left it
+	 */
+	public static boolean isDatabaseSnapshotDisabled(final Method method) {
+		final DatabaseInit init = method.getAnnotation(DatabaseInit.class);
+		return init != null && !init.snapshot();
+	}
+
 	/**
 	 * Gets an array containing the main context path.
 	 * 
@@ -80,18 +136,39 @@ public final class BatchTestUtils {
 		return !isBatchTest(method) || config == null ? new String[0] : config.values();
 	}
 
-    public static ConfigurableApplicationContext getApplicationContext(Method method) {
-        // Spring Context
-        String[] path = BatchTestUtils.getContext(method);
-        Assert.assertThat("Context must be specified.", path.length, IsNot.not(IsEqual.equalTo(0)));
+	/**
+	 * Gets all the context paths of a test method : main contexts followed by database initialization contexts.
+	 * 
+	 * @param method
+	 *            method
+	 * @return the array
+	 */
+	public static String[] getContextPaths(final Method method) {
+		// Spring Context
+		final String[] path = BatchTestUtils.getContext(method);
+		Assert.assertThat("Context must be specified.", path.length, IsNot.not(IsEqual.equalTo(0)));
 
-        // Database initialization context
-        path = ArrayUtils.addAll(path, BatchTestUtils.getInitDatabasePath(method));
+		// Database initialization context
+		return ArrayUtils.addAll(path, BatchTestUtils.getInitDatabasePath(method));
+	}
 
+    public static ConfigurableApplicationContext getApplicationContext(Method method) {
         // Context creation
-        return new ClassPathXmlApplicationContext(path);
+        return new ClassPathXmlApplicationContext(getContextPaths(method));
     }
 
+	/**
+	 * Tells if the context of a test method must be discarded after the test (first from the method, then from the
+	 * class).
+	 * 
+	 * @param method
+	 *            the method
+	 * @return true if the context is dirtied by the test
+	 */
+	public static boolean isDirtiesContext(final Method method) {
+		return method.isAnnotationPresent(DirtiesContext.class) || method.getDeclaringClass().isAnnotationPresent(DirtiesContext.class);
+	}
+
 	/**
 	 * 
 	 * @param method
@@ -126,6 +203,54 @@ public final class BatchTestUtils {
 		return annotation == null ? BatchTest.DEFAULT : annotation.expectedReturn();
 	}
 
+	/**
+	 * Gets the maximum duration of the job of a batch test.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return timeout in milliseconds, 0 for no limit
+	 */
+	public static long getTimeout(final Method method) {
+		final BatchTest annotation = method.getAnnotation(BatchTest.class);
+		return annotation == null ? 0 : annotation.timeout();
+	}
+
+	/**
+	 * Gets the allocation budget of a batch test.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return maximum number of allocated bytes, 0 for no limit
+	 */
+	public static long getMaxAllocatedBytes(final Method method) {
+		final BatchTest annotation = method.getAnnotation(BatchTest.class);
+		return annotation == null ? 0 : annotation.maxAllocatedBytes();
+	}
+
+	/**
+	 * Gets the garbage collection budget of a batch test.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return maximum garbage collection time in milliseconds, 0 for no limit
+	 */
+	public static long getMaxGcTime(final Method method) {
+		final BatchTest annotation = method.getAnnotation(BatchTest.class);
+		return annotation == null ? 0 : annotation.maxGcTime();
+	}
+
+	/**
+	 * Gets the number of concurrent launches of the job of a batch test.
+	 * 
+	 * @param method
+	 *            the method
+	 * @return number of launches started at the same time, 1 for a single launch
+	 */
+	public static int getConcurrentLaunches(final Method method) {
+		final BatchTest annotation = method.getAnnotation(BatchTest.class);
+		return annotation == null ? 1 : annotation.concurrentLaunches();
+	}
+
 	/**
 	 * Gets the batch name of a batch test (first from the method, then from the class).
 	 * 
@@ -156,4 +281,44 @@ public final class BatchTestUtils {
 		return !isBatchTest(method) || config == null ? null : config.stepName();
 	}
 
+	/**
+	 * Tells if a batch test uses an in-memory job repository (set on the method or on the class).
+	 * 
+	 * @param method
+	 *            the method
+	 * @return true if the job is launched with an in-memory repository
+	 */
+	public static boolean isInMemoryRepository(final Method method) {
+		final ContextConfig methodConfig = method.getAnnotation(ContextConfig.class);
+		final ContextConfig classConfig = method.getDeclaringClass().getAnnotation(ContextConfig.class);
+		return (methodConfig != null && methodConfig.inMemoryRepository()) || (classConfig != null && classConfig.inMemoryRepository());
+	}
+
+	/**
+	 * 
+	 * @param method
+	 *            the method
+	 * @return true if the context of the method is reused by the next tests, with {@link ContextConfig#cached()} or
+	 *         the system property {@value #CONTEXT_CACHE_PROPERTY}
+	 */
+	public static boolean isContextCached(final Method method) {
+		if (Boolean.getBoolean(CONTEXT_CACHE_PROPERTY)) {
+			return true;
+		}
+		final ContextConfig methodConfig = method.getAnnotation(ContextConfig.class);
+		final ContextConfig classConfig = method.getDeclaringClass().getAnnotation(ContextConfig.class);
+		return (methodConfig != null && methodConfig.cached()) || (classConfig != null && classConfig.cached());
+	}
+
+	/**
+	 * 
+	 * @param method
+	 *            the method
+	 * @return true if the JDBC activity of the method is recorded, with {@link JdbcBudget} or the system property
+	 *         {@value JdbcRecorder#ENABLED_PROPERTY}
+	 */
+	public static boolean isJdbcRecorded(final Method method) {
+		return JdbcRecorder.isEnabled() || method.isAnnotationPresent(JdbcBudget.class);
+	}
+
 }
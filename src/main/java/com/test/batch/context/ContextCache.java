@@ -0,0 +1,455 @@
+package com.test.batch.context;
+
+import com.test.batch.database.DatabaseIsolation;
+import com.test.batch.jdbc.JdbcRecorder;
+import org.apache.log4j.Logger;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Cache of the Spring contexts used by batch tests, shared by all the test classes of the JVM.
+ *
+ * Contexts are keyed by their resolved path list, the worker slot of the test and the recording of their JDBC activity
+ * (see {@link JdbcRecorder}), so every test using the same configuration on the same worker shares the same context. The least recently used contexts are closed when the cache
+ * grows over its maximum size (system property {@value #MAX_SIZE_PROPERTY}, {@value #DEFAULT_MAX_SIZE} by default). A
+ * context marked as dirty is closed as soon as its last user releases it. Tests which don't opt in to caching get a
+ * private context, closed after the test.
+ *
+ * The cache is thread-safe : contexts are built outside of the cache lock, a thread asking for a context being built by
+ * another thread (or prefetched in the background) waits for it. Contexts of a worker slot have their own embedded
+ * databases (see {@link DatabaseIsolation}).
+ *
+ * @author mguennec
+ *
+ */
+public final class ContextCache {
+
+	/** System property giving the maximum number of cached contexts. */
+	public static final String MAX_SIZE_PROPERTY = "batch.test.context.cache.maxSize";
+
+	/** Default maximum number of cached contexts. */
+	public static final int DEFAULT_MAX_SIZE = 32;
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(ContextCache.class);
+
+	/** Shared instance. */
+	private static final ContextCache INSTANCE = new ContextCache(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+
+	/** Cached contexts, in access order. */
+	private final Map<Key, CachedContext> contexts = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** Maximum number of cached contexts. */
+	private final int maxSize;
+
+	/** Thread building the prefetched contexts. */
+	private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread thread = new Thread(r, "context-prefetch");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** Number of contexts found in the cache. */
+	private int hits;
+
+	/** Number of contexts built. */
+	private int misses;
+
+	/**
+	 * @param maxSize
+	 *            maximum number of cached contexts
+	 */
+	ContextCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Context cache size must be positive : " + maxSize);
+		}
+		this.maxSize = maxSize;
+		Runtime.getRuntime().addShutdownHook(new Thread("context-cache-shutdown") {
+			@Override
+			public void run() {
+				clear();
+			}
+		});
+	}
+
+	/**
+	 * @return the shared cache
+	 */
+	public static ContextCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Marks a context as dirty : it will be closed when released instead of being reused.
+	 *
+	 * @param context
+	 *            the context
+	 */
+	public static void markDirty(final ConfigurableApplicationContext context) {
+		INSTANCE.dirty(context);
+	}
+
+	/**
+	 * Gets a context from the cache, building it if needed. The context must be given back with
+	 * {@link #release(ConfigurableApplicationContext, boolean)}.
+	 *
+	 * @param paths
+	 *            context paths
+	 * @param slot
+	 *            worker slot, {@link WorkerThread#NO_SLOT} to share the context with all the threads
+	 * @return the context
+	 */
+	public ConfigurableApplicationContext acquire(final String[] paths, final int slot) {
+		return acquire(paths, slot, true, JdbcRecorder.isEnabled());
+	}
+
+	/**
+	 * Gets a context from the cache, building it if needed. The context must be given back with
+	 * {@link #release(ConfigurableApplicationContext, boolean)}. A private context is never shared : it is either
+	 * prefetched and not used yet, or built for the caller, and it is closed when released.
+	 *
+	 * @param paths
+	 *            context paths
+	 * @param slot
+	 *            worker slot, {@link WorkerThread#NO_SLOT} to share the context with all the threads
+	 * @param shared
+	 *            false for a private context
+	 * @param jdbcRecorded
+	 *            true to record the JDBC activity of the context
+	 * @return the context
+	 */
+	public ConfigurableApplicationContext acquire(final String[] paths, final int slot, final boolean shared, final boolean jdbcRecorded) {
+		final Key key = new Key(Arrays.asList(paths), slot, jdbcRecorded);
+		final CachedContext cached;
+		final boolean build;
+		synchronized (this) {
+			CachedContext current = contexts.get(key);
+			build = current == null || current.dirty || !shared && current.acquired;
+			if (build) {
+				misses++;
+				current = new CachedContext(key);
+				if (shared) {
+					contexts.put(key, current);
+				}
+			} else {
+				hits++;
+				if (!shared) {
+					// Out of the cache, closed when released
+					contexts.remove(key);
+				}
+			}
+			current.acquired = true;
+			current.users++;
+			cached = current;
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Context cache : " + hits + " hit(s), " + misses + " miss(es), " + contexts.size() + " context(s)");
+			}
+		}
+		if (!build && !cached.future.isDone()) {
+			LOGGER.debug("Waiting for prefetched context " + key);
+		}
+		// Builds a prefetched context which isn't being built yet instead of waiting for the prefetching thread
+		cached.future.run();
+		try {
+			return cached.future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			discard(cached);
+			throw new IllegalStateException("Interrupted while waiting for context " + key, e);
+		} catch (ExecutionException e) {
+			discard(cached);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unable to build context " + key, e.getCause());
+		}
+	}
+
+	/**
+	 * Builds a context in the background if it isn't cached yet, so that a later {@link #acquire(String[], int)} finds
+	 * it. Contexts are built one at a time by a daemon thread ; a build failure is reported to the test acquiring the
+	 * context.
+	 *
+	 * @param paths
+	 *            context paths
+	 * @param slot
+	 *            worker slot, {@link WorkerThread#NO_SLOT} to share the context with all the threads
+	 */
+	public void prefetch(final String[] paths, final int slot) {
+		prefetch(paths, slot, JdbcRecorder.isEnabled());
+	}
+
+	/**
+	 * Builds a context in the background if it isn't cached yet, so that a later
+	 * {@link #acquire(String[], int, boolean, boolean)} finds it.
+	 *
+	 * @param paths
+	 *            context paths
+	 * @param slot
+	 *            worker slot, {@link WorkerThread#NO_SLOT} to share the context with all the threads
+	 * @param jdbcRecorded
+	 *            true to record the JDBC activity of the context
+	 */
+	public void prefetch(final String[] paths, final int slot, final boolean jdbcRecorded) {
+		final Key key = new Key(Arrays.asList(paths), slot, jdbcRecorded);
+		final CachedContext cached;
+		synchronized (this) {
+			final CachedContext current = contexts.get(key);
+			if (current != null && !current.dirty) {
+				return;
+			}
+			cached = new CachedContext(key);
+			contexts.put(key, cached);
+			LOGGER.debug("Prefetching context " + key);
+		}
+		prefetcher.execute(cached.future);
+	}
+
+	/**
+	 * @return maximum number of cached contexts
+	 */
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gives back a context taken from the cache.
+	 *
+	 * @param context
+	 *            the context
+	 * @param dirty
+	 *            true if the context must not be reused
+	 */
+	public synchronized void release(final ConfigurableApplicationContext context, final boolean dirty) {
+		final CachedContext cached = find(context);
+		if (cached == null) {
+			// Already evicted
+			context.close();
+			return;
+		}
+		cached.users--;
+		cached.dirty |= dirty;
+		if (cached.dirty && cached.users == 0) {
+			remove(cached);
+		} else {
+			evict();
+		}
+	}
+
+	/**
+	 * Closes all the cached contexts which are not used.
+	 */
+	public synchronized void clear() {
+		for (final CachedContext cached : new ArrayList<>(contexts.values())) {
+			if (cached.users == 0) {
+				remove(cached);
+			}
+		}
+	}
+
+	/**
+	 * @return number of cached contexts
+	 */
+	public synchronized int size() {
+		return contexts.size();
+	}
+
+	/**
+	 * Marks a context as dirty.
+	 *
+	 * @param context
+	 *            the context
+	 */
+	private synchronized void dirty(final ConfigurableApplicationContext context) {
+		final CachedContext cached = find(context);
+		if (cached != null) {
+			cached.dirty = true;
+		}
+	}
+
+	/**
+	 * Forgets a context which couldn't be obtained.
+	 *
+	 * @param cached
+	 *            the context
+	 */
+	private synchronized void discard(final CachedContext cached) {
+		cached.users--;
+		cached.dirty = true;
+		if (cached.users == 0) {
+			remove(cached);
+		}
+	}
+
+	/**
+	 * Closes the least recently used contexts until the cache size is under the limit. Contexts in use or being built are
+	 * kept.
+	 */
+	private void evict() {
+		final Iterator<Entry<Key, CachedContext>> it = contexts.entrySet().iterator();
+		while (contexts.size() > maxSize && it.hasNext()) {
+			final CachedContext cached = it.next().getValue();
+			if (cached.users == 0 && cached.future.isDone()) {
+				it.remove();
+				LOGGER.debug("Context evicted : " + cached.key);
+				cached.close();
+			}
+		}
+	}
+
+	/**
+	 * Removes a context from the cache and closes it.
+	 *
+	 * @param cached
+	 *            the context
+	 */
+	private void remove(final CachedContext cached) {
+		if (contexts.get(cached.key) == cached) {
+			contexts.remove(cached.key);
+		}
+		cached.close();
+	}
+
+	/**
+	 * @param context
+	 *            a context
+	 * @return the cache entry of the context, null if not cached
+	 */
+	private CachedContext find(final ConfigurableApplicationContext context) {
+		for (final CachedContext cached : contexts.values()) {
+			if (cached.future.isDone() && cached.context() == context) {
+				return cached;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Cache key.
+	 */
+	private static final class Key {
+
+		/** Context paths. */
+		private final List<String> paths;
+
+		/** Worker slot. */
+		private final int slot;
+
+		/** True if the JDBC activity of the context is recorded. */
+		private final boolean jdbcRecorded;
+
+		/**
+		 * @param paths
+		 *            context paths
+		 * @param slot
+		 *            worker slot
+		 * @param jdbcRecorded
+		 *            true if the JDBC activity of the context is recorded
+		 */
+		private Key(final List<String> paths, final int slot, final boolean jdbcRecorded) {
+			this.paths = paths;
+			this.slot = slot;
+			this.jdbcRecorded = jdbcRecorded;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return slot == other.slot && jdbcRecorded == other.jdbcRecorded && paths.equals(other.paths);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * paths.hashCode() + slot) + (jdbcRecorded ? 1 : 0);
+		}
+
+		@Override
+		public String toString() {
+			return (slot == WorkerThread.NO_SLOT ? paths.toString() : paths + "@" + slot) + (jdbcRecorded ? " (JDBC recorded)" : "");
+		}
+	}
+
+	/**
+	 * Cache entry.
+	 */
+	private static final class CachedContext {
+
+		/** Cache key. */
+		private final Key key;
+
+		/** Spring context, built by the first user. */
+		private final FutureTask<ConfigurableApplicationContext> future;
+
+		/** Number of tests using the context. */
+		private int users;
+
+		/** True if the context must not be reused. */
+		private boolean dirty;
+
+		/** True once a test has used the context. */
+		private boolean acquired;
+
+		/**
+		 * @param key
+		 *            cache key
+		 */
+		private CachedContext(final Key key) {
+			this.key = key;
+			this.future = new FutureTask<>(new Callable<ConfigurableApplicationContext>() {
+				@Override
+				public ConfigurableApplicationContext call() {
+					final ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(key.paths.toArray(new String[key.paths.size()]), false);
+					if (key.slot != WorkerThread.NO_SLOT) {
+						DatabaseIsolation.register(context, key.slot);
+					}
+					if (key.jdbcRecorded) {
+						JdbcRecorder.register(context);
+					}
+					context.refresh();
+					return context;
+				}
+			});
+		}
+
+		/**
+		 * @return the built context, null if it couldn't be built
+		 */
+		private ConfigurableApplicationContext context() {
+			try {
+				return future.get();
+			} catch (InterruptedException | ExecutionException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Closes the context if it has been built.
+		 */
+		private void close() {
+			final ConfigurableApplicationContext context = future.isDone() ? context() : null;
+			if (context != null) {
+				context.close();
+			}
+		}
+	}
+}
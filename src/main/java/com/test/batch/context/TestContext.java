@@ -1,34 +1,156 @@
 package com.test.batch.context;
 
+import com.test.batch.annotations.Fixture;
 import com.test.batch.annotations.utils.BatchTestUtils;
+import com.test.batch.database.DatabaseSnapshots;
+import com.test.batch.database.FixtureLoader;
 import org.springframework.context.ConfigurableApplicationContext;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Context of a test.
+ * Spring contexts are taken from the {@link ContextCache} and given back when the test is over. Each test gets a fresh
+ * context unless it opts in to caching with {@link com.test.batch.annotations.ContextConfig#cached()}.
+ * When isolated, each {@link WorkerThread} gets its own contexts and embedded databases, restored from a snapshot before
+ * each test. This class is thread-safe.
+ * Databases of cached or isolated contexts initialized by {@link com.test.batch.annotations.DatabaseInit} contexts are
+ * restored from a snapshot ; {@link Fixture}s are loaded again before each test, over the restored content.
+ * The contexts of the next tests can be built in the background with {@link #prefetch(Method)}.
  * User: Maxime Guennec
  * Date: 11/05/13
  * Time: 16:52
  */
 public class TestContext {
 
-    private Map<Method, ConfigurableApplicationContext> contexts = new HashMap<>();
+    private final ContextCache cache;
+
+    private final boolean isolated;
+
+    private final Map<Method, ConfigurableApplicationContext> contexts = new ConcurrentHashMap<>();
+
+    public TestContext() {
+        this(ContextCache.getInstance(), false);
+    }
+
+    /**
+     * @param cache    context cache
+     * @param isolated true to give each worker thread its own contexts
+     */
+    public TestContext(final ContextCache cache, final boolean isolated) {
+        this.cache = cache;
+        this.isolated = isolated;
+    }
 
     public ConfigurableApplicationContext getContext(final Method method) {
-        if (!contexts.containsKey(method)) {
-            contexts.put(method, BatchTestUtils.getApplicationContext(method));
+        ConfigurableApplicationContext context = contexts.get(method);
+        if (context == null) {
+            final int slot = isolated ? WorkerThread.currentSlot() : WorkerThread.NO_SLOT;
+            context = cache.acquire(BatchTestUtils.getContextPaths(method), slot, BatchTestUtils.isContextCached(method), BatchTestUtils.isJdbcRecorded(method));
+            // A snapshot is only worth taking when the context outlives the test
+            final boolean reused = isolated || BatchTestUtils.isContextCached(method);
+            if (reused && (BatchTestUtils.isDatabaseSnapshot(method) || isolated && !BatchTestUtils.isDatabaseSnapshotDisabled(method))) {
+                restoreDatabase(context, BatchTestUtils.getFixtures(method));
+            } else if (BatchTestUtils.getFixtures(method).length > 0) {
+                loadFixtures(context, BatchTestUtils.getFixtures(method));
+            }
+            contexts.put(method, context);
+        }
+        return context;
+    }
+
+    /**
+     * Starts building the context of a method in the background, so that {@link #getContext(Method)} finds it in the
+     * cache. Does nothing when the method has no context or when contexts are isolated (the worker running the method
+     * is not known yet).
+     *
+     * @param method test method
+     */
+    public void prefetch(final Method method) {
+        if (!isolated && !contexts.containsKey(method) && BatchTestUtils.getContext(method).length > 0) {
+            cache.prefetch(BatchTestUtils.getContextPaths(method), WorkerThread.NO_SLOT, BatchTestUtils.isJdbcRecorded(method));
+        }
+    }
+
+    /**
+     * Starts building the contexts of methods for every worker slot in the background, so that the isolated databases
+     * are ready when the workers need them. Does nothing when contexts are not isolated, or when they wouldn't all fit
+     * in the cache.
+     *
+     * @param methods test methods
+     * @param slots   number of worker slots
+     */
+    public void prefetch(final List<Method> methods, final int slots) {
+        final Set<List<String>> paths = new LinkedHashSet<>();
+        final Set<List<String>> jdbcRecordedPaths = new LinkedHashSet<>();
+        for (final Method method : methods) {
+            if (BatchTestUtils.getContext(method).length > 0 && BatchTestUtils.isJdbcRecorded(method)) {
+                jdbcRecordedPaths.add(Arrays.asList(BatchTestUtils.getContextPaths(method)));
+            } else if (BatchTestUtils.getContext(method).length > 0) {
+                paths.add(Arrays.asList(BatchTestUtils.getContextPaths(method)));
+            }
+        }
+        if (!isolated || (paths.size() + jdbcRecordedPaths.size()) * slots > cache.getMaxSize()) {
+            return;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            for (final List<String> path : paths) {
+                cache.prefetch(path.toArray(new String[path.size()]), slot, false);
+            }
+            for (final List<String> path : jdbcRecordedPaths) {
+                cache.prefetch(path.toArray(new String[path.size()]), slot, true);
+            }
+        }
+    }
+
+    /**
+     * Restores the databases of a context as they were after their initialization, with a set of fixtures.
+     *
+     * @param context  Spring context
+     * @param fixtures fixtures, empty for the initial content
+     */
+    private void restoreDatabase(final ConfigurableApplicationContext context, final Fixture[] fixtures) {
+        try {
+            DatabaseSnapshots.restore(context, fixtures);
+        } catch (SQLException | IOException | RuntimeException e) {
+            cache.release(context, true);
+            throw new IllegalStateException("Unable to restore database snapshot", e);
+        }
+    }
+
+    /**
+     * Loads fixtures into the databases of a context.
+     *
+     * @param context  Spring context
+     * @param fixtures fixtures
+     */
+    private void loadFixtures(final ConfigurableApplicationContext context, final Fixture[] fixtures) {
+        try {
+            new FixtureLoader(context).load(fixtures);
+        } catch (SQLException | IOException | RuntimeException e) {
+            cache.release(context, true);
+            throw new IllegalStateException("Unable to load fixtures", e);
         }
-        return contexts.get(method);
     }
 
+    /**
+     * Gives the context of a method back to the cache. The context is closed if the test is annotated with
+     * {@link com.test.batch.annotations.DirtiesContext}.
+     *
+     * @param method test method
+     */
     public void close(final Method method) {
-        if (contexts.containsKey(method)) {
-            final ConfigurableApplicationContext context = contexts.get(method);
-            context.close();
-            contexts.remove(method);
+        final ConfigurableApplicationContext context = contexts.remove(method);
+        if (context != null) {
+            cache.release(context, BatchTestUtils.isDirtiesContext(method));
         }
     }
 }
@@ -0,0 +1,45 @@
+package com.test.batch.context;
+
+/**
+ * Thread running batch tests concurrently. Each worker has a slot number used to isolate its Spring contexts from the
+ * ones of the other workers.
+ * 
+ * @author mguennec
+ * 
+ */
+public class WorkerThread extends Thread {
+
+	/** Slot of the threads which are not workers. */
+	public static final int NO_SLOT = -1;
+
+	/** Worker slot. */
+	private final int slot;
+
+	/**
+	 * @param target
+	 *            task to run
+	 * @param name
+	 *            thread name
+	 * @param slot
+	 *            worker slot
+	 */
+	public WorkerThread(final Runnable target, final String name, final int slot) {
+		super(target, name);
+		this.slot = slot;
+	}
+
+	/**
+	 * @return worker slot
+	 */
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * @return slot of the current thread, {@link #NO_SLOT} if it is not a worker
+	 */
+	public static int currentSlot() {
+		final Thread thread = Thread.currentThread();
+		return thread instanceof WorkerThread ? ((WorkerThread) thread).getSlot() : NO_SLOT;
+	}
+}
@@ -0,0 +1,428 @@
+package com.test.batch.database;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * Compact binary fixture format : much faster to read than CSV and keeping the value types. A fixture starts with the
+ * magic bytes <code>BTFX</code>, a version and the column names, followed by the rows ; each value is a type tag followed
+ * by its content, integers and lengths are variable-length encoded. Fixtures are written with {@link Writer}, or exported
+ * from a table with {@link #export(DataSource, String, File)}.
+ *
+ * @author mguennec
+ *
+ */
+public final class BinaryFixture {
+
+	/** Magic bytes. */
+	private static final byte[] MAGIC = { 'B', 'T', 'F', 'X' };
+
+	/** Format version. */
+	private static final int VERSION = 1;
+
+	/** Row marker. */
+	private static final int ROW = 1;
+
+	/** End marker. */
+	private static final int END = 0;
+
+	/** Type tag : null value. */
+	private static final int NULL = 0;
+
+	/** Type tag : integer. */
+	private static final int LONG = 1;
+
+	/** Type tag : floating point number. */
+	private static final int DOUBLE = 2;
+
+	/** Type tag : decimal number. */
+	private static final int DECIMAL = 3;
+
+	/** Type tag : string. */
+	private static final int STRING = 4;
+
+	/** Type tag : byte array. */
+	private static final int BYTES = 5;
+
+	/** Type tag : boolean. */
+	private static final int BOOLEAN = 6;
+
+	/** Type tag : date. */
+	private static final int DATE = 7;
+
+	/** Type tag : time. */
+	private static final int TIME = 8;
+
+	/** Type tag : timestamp. */
+	private static final int TIMESTAMP = 9;
+
+	/** Number of rows fetched at once. */
+	private static final int FETCH_SIZE = 1000;
+
+	/** Size of the I/O buffers. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private BinaryFixture() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Exports the content of a table to a binary fixture file.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param table
+	 *            table name
+	 * @param file
+	 *            fixture file
+	 * @return number of rows exported
+	 * @throws SQLException
+	 *             if the table can't be read
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static long export(final DataSource dataSource, final String table, final File file) throws SQLException, IOException {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			statement.setFetchSize(FETCH_SIZE);
+			try (ResultSet rs = statement.executeQuery("SELECT * FROM " + table)) {
+				final ResultSetMetaData metaData = rs.getMetaData();
+				final String[] columns = new String[metaData.getColumnCount()];
+				for (int i = 0; i < columns.length; i++) {
+					columns[i] = metaData.getColumnName(i + 1);
+				}
+				try (Writer writer = new Writer(new FileOutputStream(file), columns)) {
+					final Object[] row = new Object[columns.length];
+					while (rs.next()) {
+						for (int i = 0; i < columns.length; i++) {
+							row[i] = TableSnapshot.read(rs.getObject(i + 1));
+						}
+						writer.write(row);
+					}
+					return writer.count;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens a fixture, binary or CSV.
+	 *
+	 * @param in
+	 *            content of the fixture
+	 * @return the rows of the fixture
+	 * @throws IOException
+	 *             if the fixture can't be read
+	 */
+	static FixtureSource open(final InputStream in) throws IOException {
+		final BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+		buffered.mark(MAGIC.length);
+		final byte[] magic = new byte[MAGIC.length];
+		int read = 0;
+		int n;
+		while (read < magic.length && (n = buffered.read(magic, read, magic.length - read)) > 0) {
+			read += n;
+		}
+		buffered.reset();
+		if (Arrays.equals(magic, MAGIC)) {
+			return new Reader(buffered);
+		}
+		final CsvReader csv = new CsvReader(buffered);
+		return new FixtureSource() {
+			@Override
+			public String[] getColumns() {
+				return csv.getColumns();
+			}
+
+			@Override
+			public Object[] next() throws IOException {
+				return csv.next();
+			}
+
+			@Override
+			public void close() throws IOException {
+				csv.close();
+			}
+		};
+	}
+
+	/**
+	 * Writes a binary fixture.
+	 */
+	public static final class Writer implements Closeable {
+
+		/** Output. */
+		private final DataOutputStream out;
+
+		/** Number of columns. */
+		private final int columnCount;
+
+		/** Number of rows written. */
+		private long count;
+
+		/**
+		 * Writes the header of a fixture.
+		 *
+		 * @param out
+		 *            output, closed with the writer
+		 * @param columns
+		 *            column names
+		 * @throws IOException
+		 *             if the header can't be written
+		 */
+		public Writer(final OutputStream out, final String[] columns) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+			this.columnCount = columns.length;
+			this.out.write(MAGIC);
+			this.out.write(VERSION);
+			writeVarLong(columns.length);
+			for (final String column : columns) {
+				writeString(column);
+			}
+		}
+
+		/**
+		 * Writes a row. Values are numbers, strings, byte arrays, booleans, dates, times or timestamps ; other values are
+		 * written as strings.
+		 *
+		 * @param row
+		 *            values of the columns
+		 * @throws IOException
+		 *             if the row can't be written
+		 */
+		public void write(final Object[] row) throws IOException {
+			if (row.length != columnCount) {
+				throw new IllegalArgumentException("Row has " + row.length + " value(s), " + columnCount + " expected");
+			}
+			out.write(ROW);
+			for (final Object value : row) {
+				writeValue(value);
+			}
+			count++;
+		}
+
+		/**
+		 * @param value
+		 *            value
+		 * @throws IOException
+		 *             if the value can't be written
+		 */
+		private void writeValue(final Object value) throws IOException {
+			if (value == null) {
+				out.write(NULL);
+			} else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				out.write(LONG);
+				writeVarLong(((Number) value).longValue());
+			} else if (value instanceof Double || value instanceof Float) {
+				out.write(DOUBLE);
+				out.writeDouble(((Number) value).doubleValue());
+			} else if (value instanceof BigDecimal) {
+				out.write(DECIMAL);
+				writeString(((BigDecimal) value).toString());
+			} else if (value instanceof byte[]) {
+				out.write(BYTES);
+				writeVarLong(((byte[]) value).length);
+				out.write((byte[]) value);
+			} else if (value instanceof Boolean) {
+				out.write(BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else if (value instanceof java.sql.Date) {
+				out.write(DATE);
+				writeString(value.toString());
+			} else if (value instanceof Time) {
+				out.write(TIME);
+				writeString(value.toString());
+			} else if (value instanceof Timestamp) {
+				out.write(TIMESTAMP);
+				writeString(value.toString());
+			} else {
+				out.write(STRING);
+				writeString(value.toString());
+			}
+		}
+
+		/**
+		 * @param value
+		 *            string
+		 * @throws IOException
+		 *             if the string can't be written
+		 */
+		private void writeString(final String value) throws IOException {
+			final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(bytes.length);
+			out.write(bytes);
+		}
+
+		/**
+		 * Writes a zigzag variable-length integer : 7 bits per byte, small absolute values take a single byte.
+		 *
+		 * @param value
+		 *            integer
+		 * @throws IOException
+		 *             if the integer can't be written
+		 */
+		private void writeVarLong(final long value) throws IOException {
+			long zigzag = (value << 1) ^ (value >> 63);
+			while ((zigzag & ~0x7FL) != 0) {
+				out.write((int) (zigzag & 0x7F) | 0x80);
+				zigzag >>>= 7;
+			}
+			out.write((int) zigzag);
+		}
+
+		/**
+		 * @return number of rows written
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.write(END);
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a binary fixture.
+	 */
+	private static final class Reader implements FixtureSource {
+
+		/** Input. */
+		private final DataInputStream in;
+
+		/** Column names. */
+		private final String[] columns;
+
+		/**
+		 * Reads the header of a fixture.
+		 *
+		 * @param in
+		 *            input, closed with the reader
+		 * @throws IOException
+		 *             if the header can't be read
+		 */
+		private Reader(final InputStream in) throws IOException {
+			this.in = new DataInputStream(in);
+			this.in.readFully(new byte[MAGIC.length]);
+			final int version = this.in.read();
+			if (version != VERSION) {
+				this.in.close();
+				throw new IOException("Unsupported binary fixture version " + version);
+			}
+			columns = new String[(int) readVarLong()];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = readString();
+			}
+		}
+
+		@Override
+		public String[] getColumns() {
+			return columns.clone();
+		}
+
+		@Override
+		public Object[] next() throws IOException {
+			final int marker = in.read();
+			if (marker == END) {
+				return null;
+			}
+			if (marker != ROW) {
+				throw new EOFException("Truncated binary fixture");
+			}
+			final Object[] row = new Object[columns.length];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = readValue();
+			}
+			return row;
+		}
+
+		/**
+		 * @return the next value
+		 * @throws IOException
+		 *             if the value can't be read
+		 */
+		private Object readValue() throws IOException {
+			final int type = in.readUnsignedByte();
+			switch (type) {
+			case NULL:
+				return null;
+			case LONG:
+				return readVarLong();
+			case DOUBLE:
+				return in.readDouble();
+			case DECIMAL:
+				return new BigDecimal(readString());
+			case STRING:
+				return readString();
+			case BYTES:
+				final byte[] bytes = new byte[(int) readVarLong()];
+				in.readFully(bytes);
+				return bytes;
+			case BOOLEAN:
+				return in.readBoolean();
+			case DATE:
+				return java.sql.Date.valueOf(readString());
+			case TIME:
+				return Time.valueOf(readString());
+			case TIMESTAMP:
+				return Timestamp.valueOf(readString());
+			default:
+				throw new IOException("Unknown value type " + type + " in binary fixture");
+			}
+		}
+
+		/**
+		 * @return the next string
+		 * @throws IOException
+		 *             if the string can't be read
+		 */
+		private String readString() throws IOException {
+			final byte[] bytes = new byte[(int) readVarLong()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * @return the next zigzag variable-length integer
+		 * @throws IOException
+		 *             if the integer can't be read
+		 */
+		private long readVarLong() throws IOException {
+			long zigzag = 0;
+			for (int shift = 0;; shift += 7) {
+				final int b = in.readUnsignedByte();
+				zigzag |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return (zigzag >>> 1) ^ -(zigzag & 1);
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
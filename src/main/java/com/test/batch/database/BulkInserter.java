@@ -0,0 +1,179 @@
+package com.test.batch.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts rows into a table with multi-row inserts (<code>INSERT ... VALUES (...), (...)</code>) sent in JDBC batches,
+ * so that a round trip to the database carries thousands of rows. The number of rows of an insert is given by the system
+ * property {@value #ROWS_PER_INSERT_PROPERTY} ({@value #DEFAULT_ROWS_PER_INSERT} by default, 1 for the databases without
+ * multi-row inserts) and limited to {@value #MAX_PARAMETERS} parameters. The transaction is left to the caller.
+ *
+ * @author mguennec
+ *
+ */
+class BulkInserter implements AutoCloseable {
+
+	/** System property giving the number of rows of an insert. */
+	public static final String ROWS_PER_INSERT_PROPERTY = "batch.test.database.rowsPerInsert";
+
+	/** Default number of rows of an insert. */
+	public static final int DEFAULT_ROWS_PER_INSERT = 100;
+
+	/** Maximum number of parameters of an insert. */
+	private static final int MAX_PARAMETERS = 2000;
+
+	/** Number of inserts sent in a JDBC batch. */
+	private static final int INSERTS_PER_BATCH = 50;
+
+	/** Connection. */
+	private final Connection connection;
+
+	/** Qualified table name. */
+	private final String table;
+
+	/** Column names. */
+	private final String[] columns;
+
+	/** Column SQL types. */
+	private final int[] types;
+
+	/** Number of rows of a full insert. */
+	private final int rowsPerInsert;
+
+	/** Rows waiting for a full insert. */
+	private final List<Object[]> pending = new ArrayList<>();
+
+	/** Full insert, prepared on first use. */
+	private PreparedStatement insert;
+
+	/** Number of inserts in the current batch. */
+	private int batched;
+
+	/** Number of rows added. */
+	private long count;
+
+	/**
+	 * @param connection
+	 *            connection
+	 * @param table
+	 *            qualified table name
+	 * @param columns
+	 *            column names
+	 * @param types
+	 *            column SQL types
+	 */
+	BulkInserter(final Connection connection, final String table, final String[] columns, final int[] types) {
+		this.connection = connection;
+		this.table = table;
+		this.columns = columns;
+		this.types = types;
+		final int rows = Integer.getInteger(ROWS_PER_INSERT_PROPERTY, DEFAULT_ROWS_PER_INSERT);
+		this.rowsPerInsert = Math.max(1, Math.min(rows, MAX_PARAMETERS / Math.max(1, columns.length)));
+	}
+
+	/**
+	 * Adds a row, sent with the next full batch.
+	 *
+	 * @param row
+	 *            values of the columns
+	 * @throws SQLException
+	 *             if a batch can't be inserted
+	 */
+	void add(final Object[] row) throws SQLException {
+		pending.add(row);
+		count++;
+		if (pending.size() < rowsPerInsert) {
+			return;
+		}
+		if (insert == null) {
+			insert = prepare(rowsPerInsert);
+		}
+		bind(insert);
+		insert.addBatch();
+		if (++batched == INSERTS_PER_BATCH) {
+			insert.executeBatch();
+			batched = 0;
+		}
+	}
+
+	/**
+	 * Inserts the rows added since the last batch.
+	 *
+	 * @throws SQLException
+	 *             if the rows can't be inserted
+	 */
+	void flush() throws SQLException {
+		if (batched > 0) {
+			insert.executeBatch();
+			batched = 0;
+		}
+		if (!pending.isEmpty()) {
+			try (PreparedStatement last = prepare(pending.size())) {
+				bind(last);
+				last.executeUpdate();
+			}
+		}
+	}
+
+	/**
+	 * @return number of rows added
+	 */
+	long getCount() {
+		return count;
+	}
+
+	/**
+	 * @param rows
+	 *            number of rows
+	 * @return insert of the given number of rows
+	 * @throws SQLException
+	 *             if the insert can't be prepared
+	 */
+	private PreparedStatement prepare(final int rows) throws SQLException {
+		final StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+		final StringBuilder values = new StringBuilder("(");
+		for (int i = 0; i < columns.length; i++) {
+			sql.append(i == 0 ? "" : ", ").append(columns[i]);
+			values.append(i == 0 ? "?" : ", ?");
+		}
+		values.append(')');
+		sql.append(") VALUES ");
+		for (int i = 0; i < rows; i++) {
+			sql.append(i == 0 ? "" : ", ").append(values);
+		}
+		return connection.prepareStatement(sql.toString());
+	}
+
+	/**
+	 * Binds the pending rows to an insert.
+	 *
+	 * @param statement
+	 *            insert of the pending rows
+	 * @throws SQLException
+	 *             if a value can't be bound
+	 */
+	private void bind(final PreparedStatement statement) throws SQLException {
+		int index = 1;
+		for (final Object[] row : pending) {
+			for (int i = 0; i < columns.length; i++) {
+				if (row[i] == null) {
+					statement.setNull(index++, types[i]);
+				} else {
+					statement.setObject(index++, row[i], types[i]);
+				}
+			}
+		}
+		pending.clear();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (insert != null) {
+			insert.close();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.test.batch.database;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the records of a CSV dataset : a header line with the column names followed by one record per line. Fields
+ * are separated by commas and may be enclosed in double quotes (a double quote is escaped by doubling it). An empty
+ * unquoted field is read as null.
+ * 
+ * @author mguennec
+ * 
+ */
+public class CsvReader implements Closeable {
+
+	/** Field separator. */
+	private static final char SEPARATOR = ',';
+
+	/** Quote. */
+	private static final char QUOTE = '"';
+
+	/** Source. */
+	private final BufferedReader reader;
+
+	/** Column names. */
+	private final String[] columns;
+
+	/** Number of the last line read. */
+	private long lineNumber;
+
+	/**
+	 * @param in
+	 *            UTF-8 encoded CSV
+	 * @throws IOException
+	 *             if the header can't be read
+	 */
+	public CsvReader(final InputStream in) throws IOException {
+		reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		final String[] header = next();
+		if (header == null) {
+			reader.close();
+			throw new IOException("Empty CSV, a header line is expected");
+		}
+		for (int i = 0; i < header.length; i++) {
+			header[i] = header[i] == null ? "" : header[i].trim();
+		}
+		columns = header;
+	}
+
+	/**
+	 * @return column names
+	 */
+	public String[] getColumns() {
+		return columns.clone();
+	}
+
+	/**
+	 * @return number of the last line read
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Reads the next record. Blank lines are skipped.
+	 * 
+	 * @return fields of the record, null at the end of the data
+	 * @throws IOException
+	 *             if the data can't be read or a record has a wrong number of fields
+	 */
+	public String[] next() throws IOException {
+		String line;
+		do {
+			line = reader.readLine();
+			lineNumber++;
+		} while (line != null && line.trim().isEmpty());
+		if (line == null) {
+			return null;
+		}
+		final String[] fields = parse(line);
+		if (columns != null && fields.length != columns.length) {
+			throw new IOException("Line " + lineNumber + " has " + fields.length + " field(s), " + columns.length + " expected");
+		}
+		return fields;
+	}
+
+	/**
+	 * @param line
+	 *            CSV line
+	 * @return fields of the line
+	 * @throws IOException
+	 *             if a quote isn't closed
+	 */
+	private String[] parse(final String line) throws IOException {
+		final List<String> fields = new ArrayList<>();
+		final StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean inQuotes = false;
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (inQuotes) {
+				if (c == QUOTE && i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+					field.append(QUOTE);
+					i++;
+				} else if (c == QUOTE) {
+					inQuotes = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == QUOTE) {
+				inQuotes = true;
+				quoted = true;
+			} else if (c == SEPARATOR) {
+				fields.add(quoted || field.length() > 0 ? field.toString() : null);
+				field.setLength(0);
+				quoted = false;
+			} else {
+				field.append(c);
+			}
+		}
+		if (inQuotes) {
+			throw new IOException("Unclosed quote on line " + lineNumber);
+		}
+		fields.add(quoted || field.length() > 0 ? field.toString() : null);
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
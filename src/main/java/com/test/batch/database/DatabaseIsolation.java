@@ -0,0 +1,282 @@
+package com.test.batch.database;
+
+import org.apache.log4j.Logger;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.item.database.support.DataFieldMaxValueIncrementerFactory;
+import org.springframework.batch.item.database.support.DefaultDataFieldMaxValueIncrementerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseFactory;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives the Spring contexts of a worker slot their own embedded databases : the URL of every data source bean of the
+ * context is redirected to a database named after the slot (<code>jdbc:h2:mem:test</code> becomes
+ * <code>jdbc:h2:mem:test_w2</code> for the slot 2) before the data source is initialized, and the
+ * <code>jdbc:embedded-database</code> factories get a database named after their bean. H2, HSQLDB, Derby and SQLite
+ * embedded URLs are redirected ; server databases stay shared between the workers. The ids of the job repositories of
+ * each slot start at a different offset, in-memory ones ({@link MapJobRepositoryFactoryBean}) included : Spring Batch
+ * keeps the contexts of the running steps in a static map keyed by step execution, whose identity is its id. Set the system property {@value #ENABLED_PROPERTY} to false to share all the
+ * databases.
+ *
+ * @author mguennec
+ *
+ */
+public final class DatabaseIsolation {
+
+	/** System property disabling the isolation when set to false. */
+	public static final String ENABLED_PROPERTY = "batch.test.database.isolation";
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(DatabaseIsolation.class);
+
+	/** Names of the data source properties holding the JDBC URL. */
+	private static final String[] URL_PROPERTIES = { "url", "jdbcUrl", "URL" };
+
+	/** Embedded database URL prefixes. */
+	private static final String[] EMBEDDED = { "jdbc:h2:", "jdbc:hsqldb:mem:", "jdbc:hsqldb:file:", "jdbc:derby:", "jdbc:sqlite:" };
+
+	/** Server URL prefixes, checked before the embedded ones. */
+	private static final String[] SERVER = { "jdbc:h2:tcp:", "jdbc:h2:ssl:", "jdbc:derby://" };
+
+	/** Range of the job repository ids of a slot. */
+	private static final long ID_RANGE = 1000000000L;
+
+	/** Shared URLs already reported. */
+	private static final Set<String> SHARED = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private DatabaseIsolation() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Makes a context redirect its data sources to the databases of a worker slot when it is refreshed.
+	 *
+	 * @param ctxt
+	 *            Spring context, not refreshed yet
+	 * @param slot
+	 *            worker slot
+	 */
+	public static void register(final ConfigurableApplicationContext ctxt, final int slot) {
+		if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+			return;
+		}
+		ctxt.addBeanFactoryPostProcessor(new BeanFactoryPostProcessor() {
+			@Override
+			public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) {
+				beanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+					@Override
+					public Object postProcessBeforeInitialization(final Object bean, final String beanName) throws BeansException {
+						if (bean instanceof JobRepositoryFactoryBean) {
+							offsetIds((JobRepositoryFactoryBean) bean, slot);
+						} else if (bean instanceof EmbeddedDatabaseFactory) {
+							((EmbeddedDatabaseFactory) bean).setDatabaseName(beanName + suffix(slot));
+						} else if (bean instanceof DataSource) {
+							redirect(new BeanWrapperImpl(bean), beanName, slot);
+						}
+						return bean;
+					}
+
+					@Override
+					public Object postProcessAfterInitialization(final Object bean, final String beanName) throws BeansException {
+						if (bean instanceof MapJobRepositoryFactoryBean) {
+							// The DAOs are created by afterPropertiesSet()
+							offsetIds((MapJobRepositoryFactoryBean) bean, slot);
+						}
+						return bean;
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Redirects the URL of a data source.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param beanName
+	 *            name of the data source bean
+	 * @param slot
+	 *            worker slot
+	 */
+	private static void redirect(final BeanWrapper dataSource, final String beanName, final int slot) {
+		for (final String property : URL_PROPERTIES) {
+			if (!dataSource.isReadableProperty(property) || !dataSource.isWritableProperty(property)) {
+				continue;
+			}
+			final Object url = dataSource.getPropertyValue(property);
+			if (!(url instanceof String)) {
+				continue;
+			}
+			final String isolated = isolate((String) url, slot);
+			if (isolated == null) {
+				if (SHARED.add((String) url)) {
+					LOGGER.warn("Database of " + beanName + " isn't embedded, it is shared between the workers : " + url);
+				}
+			} else {
+				dataSource.setPropertyValue(property, isolated);
+				LOGGER.debug("Data source " + beanName + " redirected to " + isolated);
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Makes the ids of a job repository start at the offset of a slot.
+	 *
+	 * @param factory
+	 *            job repository factory, not initialized yet
+	 * @param slot
+	 *            worker slot
+	 */
+	private static void offsetIds(final JobRepositoryFactoryBean factory, final int slot) {
+		final DirectFieldAccessor accessor = new DirectFieldAccessor(factory);
+		DataFieldMaxValueIncrementerFactory incrementers = (DataFieldMaxValueIncrementerFactory) accessor.getPropertyValue("incrementerFactory");
+		if (incrementers == null) {
+			// Default of afterPropertiesSet()
+			incrementers = new DefaultDataFieldMaxValueIncrementerFactory((DataSource) accessor.getPropertyValue("dataSource"));
+		}
+		factory.setIncrementerFactory(new OffsetIncrementerFactory(incrementers, (slot + 1) * ID_RANGE));
+	}
+
+	/**
+	 * Makes the ids of an in-memory job repository start at the offset of a slot.
+	 *
+	 * @param factory
+	 *            in-memory job repository factory, initialized
+	 * @param slot
+	 *            worker slot
+	 */
+	public static void offsetIds(final MapJobRepositoryFactoryBean factory, final int slot) {
+		final long offset = (slot + 1) * ID_RANGE;
+		offsetId(factory.getJobInstanceDao(), offset);
+		offsetId(factory.getJobExecutionDao(), offset);
+		offsetId(factory.getStepExecutionDao(), offset);
+	}
+
+	/**
+	 * Adds an offset to the last id of an in-memory DAO.
+	 *
+	 * @param dao
+	 *            in-memory DAO
+	 * @param offset
+	 *            offset added to the ids
+	 */
+	private static void offsetId(final Object dao, final long offset) {
+		final DirectFieldAccessor accessor = new DirectFieldAccessor(dao);
+		final Object id = accessor.getPropertyValue("currentId");
+		if (id instanceof AtomicLong) {
+			((AtomicLong) id).addAndGet(offset);
+		} else {
+			accessor.setPropertyValue("currentId", ((Number) id).longValue() + offset);
+		}
+	}
+
+	/**
+	 * @param url
+	 *            JDBC URL
+	 * @param slot
+	 *            worker slot
+	 * @return URL of the database of the slot, null if the database isn't embedded
+	 */
+	public static String isolate(final String url, final int slot) {
+		for (final String prefix : SERVER) {
+			if (url.startsWith(prefix)) {
+				return null;
+			}
+		}
+		for (final String prefix : EMBEDDED) {
+			if (url.startsWith(prefix)) {
+				if (url.equals("jdbc:sqlite::memory:") || url.equals("jdbc:sqlite:")) {
+					// Private to its connection
+					return url;
+				}
+				final int options = url.indexOf(';', prefix.length());
+				final int end = options < 0 ? url.length() : options;
+				return url.substring(0, end) + suffix(slot) + url.substring(end);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param slot
+	 *            worker slot
+	 * @return suffix of the database names of the slot
+	 */
+	private static String suffix(final int slot) {
+		return "_w" + slot;
+	}
+
+	/**
+	 * Incrementers starting at an offset.
+	 */
+	private static final class OffsetIncrementerFactory implements DataFieldMaxValueIncrementerFactory {
+
+		/** Default incrementers. */
+		private final DataFieldMaxValueIncrementerFactory target;
+
+		/** Offset added to the values. */
+		private final long offset;
+
+		/**
+		 * @param target
+		 *            default incrementers
+		 * @param offset
+		 *            offset added to the values
+		 */
+		private OffsetIncrementerFactory(final DataFieldMaxValueIncrementerFactory target, final long offset) {
+			this.target = target;
+			this.offset = offset;
+		}
+
+		@Override
+		public DataFieldMaxValueIncrementer getIncrementer(final String databaseType, final String incrementerName) {
+			final DataFieldMaxValueIncrementer incrementer = target.getIncrementer(databaseType, incrementerName);
+			return new DataFieldMaxValueIncrementer() {
+				@Override
+				public long nextLongValue() {
+					return offset + incrementer.nextLongValue();
+				}
+
+				@Override
+				public int nextIntValue() {
+					final long value = nextLongValue();
+					if (value > Integer.MAX_VALUE) {
+						throw new IllegalStateException("Id " + value + " of " + incrementerName + " doesn't fit in an int");
+					}
+					return (int) value;
+				}
+
+				@Override
+				public String nextStringValue() {
+					return String.valueOf(nextLongValue());
+				}
+			};
+		}
+
+		@Override
+		public boolean isSupportedIncrementerType(final String databaseType) {
+			return target.isSupportedIncrementerType(databaseType);
+		}
+
+		@Override
+		public String[] getSupportedIncrementerTypes() {
+			return target.getSupportedIncrementerTypes();
+		}
+	}
+}
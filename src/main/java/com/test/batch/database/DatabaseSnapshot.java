@@ -0,0 +1,186 @@
+package com.test.batch.database;
+
+import org.apache.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot of the tables of a database, taken after its initialization and restored before each test using it.
+ * 
+ * Tables are restored in foreign key order : children are emptied first, then parents are filled first. All the rows
+ * are kept in memory, the snapshot is meant for embedded test databases.
+ * 
+ * @author mguennec
+ * 
+ */
+public class DatabaseSnapshot {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(DatabaseSnapshot.class);
+
+	/** Data source. */
+	private final DataSource dataSource;
+
+	/** Table contents, parents first. */
+	private final List<TableSnapshot> tables = new ArrayList<>();
+
+	/**
+	 * Takes a snapshot of all the tables of a data source.
+	 * 
+	 * @param dataSource
+	 *            data source
+	 * @throws SQLException
+	 *             if the database can't be read
+	 */
+	public DatabaseSnapshot(final DataSource dataSource) throws SQLException {
+		this.dataSource = dataSource;
+		final long start = System.currentTimeMillis();
+		int rows = 0;
+		try (Connection connection = dataSource.getConnection()) {
+			for (final String table : getTables(connection.getMetaData())) {
+				final TableSnapshot snapshot = new TableSnapshot(connection, table);
+				rows += snapshot.size();
+				tables.add(snapshot);
+			}
+		}
+		LOGGER.debug("Snapshot of " + tables.size() + " table(s), " + rows + " row(s) taken in " + (System.currentTimeMillis() - start) + "ms");
+	}
+
+	/**
+	 * Restores the content of the database as it was when the snapshot was taken.
+	 * 
+	 * @throws SQLException
+	 *             if the database can't be restored
+	 */
+	public void restore() throws SQLException {
+		final long start = System.currentTimeMillis();
+		try (Connection connection = dataSource.getConnection()) {
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				for (int i = tables.size() - 1; i >= 0; i--) {
+					tables.get(i).delete(connection);
+				}
+				for (final TableSnapshot table : tables) {
+					table.insert(connection);
+				}
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+		LOGGER.debug("Snapshot of " + tables.size() + " table(s) restored in " + (System.currentTimeMillis() - start) + "ms");
+	}
+
+	/**
+	 * Gets the user tables of a database, sorted so that referenced tables come before the tables referencing them.
+	 * 
+	 * @param metaData
+	 *            database meta data
+	 * @return qualified table names
+	 * @throws SQLException
+	 *             if the meta data can't be read
+	 */
+	static List<String> getTables(final DatabaseMetaData metaData) throws SQLException {
+		return sort(getParents(metaData));
+	}
+
+	/**
+	 * Gets the user tables of a database with the tables they reference.
+	 * 
+	 * @param metaData
+	 *            database meta data
+	 * @return tables referenced by each qualified table name, in the order of the meta data
+	 * @throws SQLException
+	 *             if the meta data can't be read
+	 */
+	static Map<String, Set<String>> getParents(final DatabaseMetaData metaData) throws SQLException {
+		final Map<String, String[]> tables = new LinkedHashMap<>();
+		try (ResultSet rs = metaData.getTables(null, null, "%", new String[] { "TABLE" })) {
+			while (rs.next()) {
+				final String[] name = { rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME") };
+				tables.put(qualify(name), name);
+			}
+		}
+		final Map<String, Set<String>> parents = new LinkedHashMap<>();
+		for (final Map.Entry<String, String[]> table : tables.entrySet()) {
+			final Set<String> referenced = new HashSet<>();
+			final String[] name = table.getValue();
+			try (ResultSet rs = metaData.getImportedKeys(name[0], name[1], name[2])) {
+				while (rs.next()) {
+					final String parent = qualify(new String[] { rs.getString("PKTABLE_CAT"), rs.getString("PKTABLE_SCHEM"), rs.getString("PKTABLE_NAME") });
+					if (!parent.equals(table.getKey())) {
+						referenced.add(parent);
+					}
+				}
+			}
+			parents.put(table.getKey(), referenced);
+		}
+		return parents;
+	}
+
+	/**
+	 * Sorts tables so that referenced tables come before the tables referencing them.
+	 * 
+	 * @param parents
+	 *            tables referenced by each table
+	 * @return sorted tables
+	 */
+	static List<String> sort(final Map<String, Set<String>> parents) {
+		final List<String> sorted = new ArrayList<>();
+		final Set<String> visiting = new HashSet<>();
+		for (final String table : parents.keySet()) {
+			sort(table, parents, visiting, sorted);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Depth-first topological sort. Foreign key cycles are broken arbitrarily.
+	 * 
+	 * @param table
+	 *            table to add
+	 * @param parents
+	 *            tables referenced by each table
+	 * @param visiting
+	 *            tables being added
+	 * @param sorted
+	 *            sorted tables
+	 */
+	private static void sort(final String table, final Map<String, Set<String>> parents, final Set<String> visiting, final List<String> sorted) {
+		if (sorted.contains(table) || !visiting.add(table)) {
+			return;
+		}
+		final Set<String> referenced = parents.get(table);
+		if (referenced != null) {
+			for (final String parent : referenced) {
+				sort(parent, parents, visiting, sorted);
+			}
+		}
+		if (parents.containsKey(table)) {
+			sorted.add(table);
+		}
+	}
+
+	/**
+	 * @param name
+	 *            catalog, schema and table name
+	 * @return qualified table name
+	 */
+	private static String qualify(final String[] name) {
+		return name[1] == null ? name[2] : name[1] + "." + name[2];
+	}
+}
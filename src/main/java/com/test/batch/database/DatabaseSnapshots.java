@@ -0,0 +1,145 @@
+package com.test.batch.database;
+
+import com.test.batch.annotations.Fixture;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshots of the databases of a Spring context. The first use of a context takes a snapshot of every data source of
+ * the context (once the database initialization contexts have run), the next uses restore them. {@link Fixture}s are
+ * loaded again over the restored content by the parallel {@link FixtureLoader} : only the initial content is kept in
+ * memory, the fixtures may have millions of rows.
+ * 
+ * @author mguennec
+ * 
+ */
+public final class DatabaseSnapshots {
+
+	/** Name of the snapshots in the Spring context. */
+	public static final String BEAN_NAME = "batchTestDatabaseSnapshots";
+
+	/** Spring context. */
+	private final ConfigurableApplicationContext ctxt;
+
+	/** Snapshot of each database as initialized by the contexts. */
+	private final List<DatabaseSnapshot> snapshots;
+
+	/** True while the databases haven't been used since their initial snapshot. */
+	private boolean pristine = true;
+
+	/**
+	 * @param ctxt
+	 *            Spring context
+	 * @throws SQLException
+	 *             if a database can't be read
+	 */
+	private DatabaseSnapshots(final ConfigurableApplicationContext ctxt) throws SQLException {
+		this.ctxt = ctxt;
+		this.snapshots = take(ctxt);
+	}
+
+	/**
+	 * Takes a snapshot of every database of a context.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @return the snapshots
+	 * @throws SQLException
+	 *             if a database can't be read
+	 */
+	private static List<DatabaseSnapshot> take(final ConfigurableApplicationContext ctxt) throws SQLException {
+		final List<DatabaseSnapshot> snapshots = new ArrayList<>();
+		final Set<String> databases = new HashSet<>();
+		for (final DataSource dataSource : ctxt.getBeansOfType(DataSource.class).values()) {
+			// Several data sources may point to the same database
+			try (Connection connection = dataSource.getConnection()) {
+				final DatabaseMetaData metaData = connection.getMetaData();
+				if (!databases.add(metaData.getURL() + "|" + metaData.getUserName())) {
+					continue;
+				}
+			}
+			snapshots.add(new DatabaseSnapshot(dataSource));
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Takes the snapshots of the databases of a context on its first use, restores them on the next uses.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @throws SQLException
+	 *             if a database can't be read or restored
+	 */
+	public static void restore(final ConfigurableApplicationContext ctxt) throws SQLException {
+		try {
+			restore(ctxt, new Fixture[0]);
+		} catch (IOException e) {
+			// No fixture file read
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Restores the databases of a context with a set of fixtures : the initial content is restored, then the fixtures
+	 * are loaded.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @param fixtures
+	 *            fixtures, empty for the initial content
+	 * @throws SQLException
+	 *             if a database can't be read or restored
+	 * @throws IOException
+	 *             if a fixture file can't be read
+	 */
+	public static void restore(final ConfigurableApplicationContext ctxt, final Fixture[] fixtures) throws SQLException, IOException {
+		final ConfigurableListableBeanFactory beanFactory = ctxt.getBeanFactory();
+		synchronized (beanFactory) {
+			if (!beanFactory.containsSingleton(BEAN_NAME)) {
+				beanFactory.registerSingleton(BEAN_NAME, new DatabaseSnapshots(ctxt));
+			}
+			((DatabaseSnapshots) beanFactory.getSingleton(BEAN_NAME)).restore(fixtures);
+		}
+	}
+
+	/**
+	 * @param fixtures
+	 *            fixtures, empty for the initial content
+	 * @throws SQLException
+	 *             if a database can't be read or restored
+	 * @throws IOException
+	 *             if a fixture file can't be read
+	 */
+	private void restore(final Fixture[] fixtures) throws SQLException, IOException {
+		if (!pristine) {
+			restore(snapshots);
+		}
+		pristine = false;
+		if (fixtures.length > 0) {
+			new FixtureLoader(ctxt).load(fixtures);
+		}
+	}
+
+	/**
+	 * @param restored
+	 *            snapshots to restore
+	 * @throws SQLException
+	 *             if a database can't be restored
+	 */
+	private static void restore(final List<DatabaseSnapshot> restored) throws SQLException {
+		for (final DatabaseSnapshot snapshot : restored) {
+			snapshot.restore();
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package com.test.batch.database;
+
+import com.test.batch.annotations.Fixture;
+import org.apache.log4j.Logger;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads {@link Fixture}s into the databases of a Spring context. The fixture tables are emptied, children first, then
+ * loaded by waves : a table is loaded once the fixture tables it references are loaded, the tables of a wave are loaded
+ * in parallel on their own connections (system property {@value #THREADS_PROPERTY}, the number of processors by
+ * default). Large templates are split between several threads. Rows are sent with batched multi-row inserts and
+ * committed every {@value #COMMIT_ROWS} rows.
+ *
+ * @author mguennec
+ *
+ */
+public class FixtureLoader {
+
+	/** System property giving the number of loading threads. */
+	public static final String THREADS_PROPERTY = "batch.test.fixtures.threads";
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(FixtureLoader.class);
+
+	/** Number of rows inserted between two commits. */
+	private static final long COMMIT_ROWS = 100000;
+
+	/** Minimum number of template rows generated by a thread. */
+	private static final long MIN_SPLIT_ROWS = 50000;
+
+	/** Spring context. */
+	private final ApplicationContext ctxt;
+
+	/** Number of loading threads. */
+	private final int threads;
+
+	/**
+	 * @param ctxt
+	 *            Spring context
+	 */
+	public FixtureLoader(final ApplicationContext ctxt) {
+		this.ctxt = ctxt;
+		this.threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Loads fixtures.
+	 *
+	 * @param fixtures
+	 *            fixtures
+	 * @throws SQLException
+	 *             if a table can't be loaded
+	 * @throws IOException
+	 *             if a fixture file can't be read
+	 */
+	public void load(final Fixture[] fixtures) throws SQLException, IOException {
+		final Map<String, List<Fixture>> byDataSource = new LinkedHashMap<>();
+		for (final Fixture fixture : fixtures) {
+			check(fixture);
+			List<Fixture> list = byDataSource.get(fixture.dataSource());
+			if (list == null) {
+				list = new ArrayList<>();
+				byDataSource.put(fixture.dataSource(), list);
+			}
+			list.add(fixture);
+		}
+		for (final Map.Entry<String, List<Fixture>> entry : byDataSource.entrySet()) {
+			final DataSource dataSource = StringUtils.hasLength(entry.getKey()) ? ctxt.getBean(entry.getKey(), DataSource.class) : ctxt.getBean(DataSource.class);
+			load(dataSource, entry.getValue());
+		}
+	}
+
+	/**
+	 * @param fixture
+	 *            fixture
+	 */
+	private static void check(final Fixture fixture) {
+		final boolean file = StringUtils.hasLength(fixture.file());
+		final boolean template = fixture.values().length > 0;
+		if (file == template || template && fixture.rows() <= 0 || !template && fixture.rows() != 0) {
+			throw new IllegalArgumentException("Fixture invalid on table " + fixture.table() + " : a file, or template values and a number of rows, expected");
+		}
+	}
+
+	/**
+	 * Loads the fixtures of a data source.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param fixtures
+	 *            fixtures
+	 * @throws SQLException
+	 *             if a table can't be loaded
+	 * @throws IOException
+	 *             if a fixture file can't be read
+	 */
+	private void load(final DataSource dataSource, final List<Fixture> fixtures) throws SQLException, IOException {
+		final long start = System.currentTimeMillis();
+		final Map<Fixture, String> tables = new HashMap<>();
+		final List<Set<String>> waves;
+		try (Connection connection = dataSource.getConnection()) {
+			final Map<String, Set<String>> parents = DatabaseSnapshot.getParents(connection.getMetaData());
+			for (final Fixture fixture : fixtures) {
+				tables.put(fixture, resolve(fixture.table(), parents.keySet()));
+			}
+			waves = getWaves(new LinkedHashSet<>(tables.values()), parents);
+			empty(connection, waves);
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread thread = new Thread(r, "fixture-loader-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long rows = 0;
+		try {
+			for (final Set<String> wave : waves) {
+				final List<Future<Long>> futures = new ArrayList<>();
+				for (final Fixture fixture : fixtures) {
+					if (wave.contains(tables.get(fixture))) {
+						for (final Callable<Long> part : split(dataSource, tables.get(fixture), fixture)) {
+							futures.add(executor.submit(part));
+						}
+					}
+				}
+				for (final Future<Long> future : futures) {
+					rows += get(future);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		final long duration = Math.max(1, System.currentTimeMillis() - start);
+		LOGGER.info("Fixtures loaded : " + rows + " row(s) in " + tables.size() + " table(s) in " + duration + "ms (" + rows * 1000 / duration + " rows/s)");
+	}
+
+	/**
+	 * @param table
+	 *            table name of a fixture
+	 * @param tables
+	 *            qualified names of the tables of the database
+	 * @return qualified name of the table, the given name if it isn't found
+	 */
+	private static String resolve(final String table, final Set<String> tables) {
+		String found = null;
+		for (final String qualified : tables) {
+			if (qualified.equalsIgnoreCase(table)) {
+				return qualified;
+			}
+			if (qualified.substring(qualified.lastIndexOf('.') + 1).equalsIgnoreCase(table)) {
+				if (found != null) {
+					return table;
+				}
+				found = qualified;
+			}
+		}
+		return found == null ? table : found;
+	}
+
+	/**
+	 * Groups the fixture tables by waves : the tables of a wave only reference tables of the previous waves.
+	 *
+	 * @param tables
+	 *            fixture tables
+	 * @param parents
+	 *            tables referenced by each table of the database
+	 * @return waves, in loading order
+	 */
+	private static List<Set<String>> getWaves(final Set<String> tables, final Map<String, Set<String>> parents) {
+		final Map<String, Integer> levels = new HashMap<>();
+		for (final String table : DatabaseSnapshot.sort(parents)) {
+			if (tables.contains(table)) {
+				int level = 0;
+				for (final String parent : parents.get(table)) {
+					if (levels.containsKey(parent)) {
+						level = Math.max(level, levels.get(parent) + 1);
+					}
+				}
+				levels.put(table, level);
+			}
+		}
+		final List<Set<String>> waves = new ArrayList<>();
+		for (final String table : tables) {
+			// Tables unknown to the meta data are loaded first
+			final int level = levels.containsKey(table) ? levels.get(table) : 0;
+			while (waves.size() <= level) {
+				waves.add(new LinkedHashSet<String>());
+			}
+			waves.get(level).add(table);
+		}
+		return waves;
+	}
+
+	/**
+	 * Empties the fixture tables, last wave first.
+	 *
+	 * @param connection
+	 *            connection
+	 * @param waves
+	 *            fixture tables by wave
+	 * @throws SQLException
+	 *             if a table can't be emptied
+	 */
+	private static void empty(final Connection connection, final List<Set<String>> waves) throws SQLException {
+		final boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try (Statement statement = connection.createStatement()) {
+			final List<Set<String>> reversed = new ArrayList<>(waves);
+			Collections.reverse(reversed);
+			for (final Set<String> wave : reversed) {
+				for (final String table : wave) {
+					statement.executeUpdate("DELETE FROM " + table);
+				}
+			}
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			connection.rollback();
+			throw e;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Splits the loading of a fixture : a file is loaded by a single thread, a large template by several threads.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param table
+	 *            qualified table name
+	 * @param fixture
+	 *            fixture
+	 * @return loading tasks, returning the number of rows inserted
+	 */
+	private List<Callable<Long>> split(final DataSource dataSource, final String table, final Fixture fixture) {
+		final List<Callable<Long>> parts = new ArrayList<>();
+		if (StringUtils.hasLength(fixture.file())) {
+			parts.add(new Callable<Long>() {
+				@Override
+				public Long call() throws SQLException, IOException {
+					return insert(dataSource, table, BinaryFixture.open(ctxt.getResource(fixture.file()).getInputStream()));
+				}
+			});
+			return parts;
+		}
+		final long count = Math.max(1, Math.min(threads, fixture.rows() / MIN_SPLIT_ROWS));
+		for (long i = 0; i < count; i++) {
+			final long first = 1 + fixture.rows() * i / count;
+			final long last = fixture.rows() * (i + 1) / count;
+			parts.add(new Callable<Long>() {
+				@Override
+				public Long call() throws SQLException, IOException {
+					return insert(dataSource, table, new RowTemplate(fixture.values(), first, last));
+				}
+			});
+		}
+		return parts;
+	}
+
+	/**
+	 * Inserts the rows of a fixture on a new connection.
+	 *
+	 * @param dataSource
+	 *            data source
+	 * @param table
+	 *            qualified table name
+	 * @param source
+	 *            rows, closed once inserted
+	 * @return number of rows inserted
+	 * @throws SQLException
+	 *             if the rows can't be inserted
+	 * @throws IOException
+	 *             if the rows can't be read
+	 */
+	private static long insert(final DataSource dataSource, final String table, final FixtureSource source) throws SQLException, IOException {
+		final long start = System.currentTimeMillis();
+		try (FixtureSource rows = source; Connection connection = dataSource.getConnection()) {
+			final String[] columns = rows.getColumns();
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (BulkInserter inserter = new BulkInserter(connection, table, columns, getTypes(connection, table, columns))) {
+				for (Object[] row = rows.next(); row != null; row = rows.next()) {
+					inserter.add(row);
+					if (inserter.getCount() % COMMIT_ROWS == 0) {
+						inserter.flush();
+						connection.commit();
+					}
+				}
+				inserter.flush();
+				connection.commit();
+				LOGGER.debug(inserter.getCount() + " row(s) loaded into " + table + " in " + (System.currentTimeMillis() - start) + "ms");
+				return inserter.getCount();
+			} catch (SQLException | IOException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	/**
+	 * @param connection
+	 *            connection
+	 * @param table
+	 *            qualified table name
+	 * @param columns
+	 *            column names
+	 * @return SQL types of the columns
+	 * @throws SQLException
+	 *             if a column doesn't exist
+	 */
+	private static int[] getTypes(final Connection connection, final String table, final String[] columns) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT " + StringUtils.arrayToDelimitedString(columns, ", ") + " FROM " + table + " WHERE 1 = 0")) {
+			final ResultSetMetaData metaData = rs.getMetaData();
+			final int[] types = new int[columns.length];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = metaData.getColumnType(i + 1);
+			}
+			return types;
+		}
+	}
+
+	/**
+	 * @param future
+	 *            loading task
+	 * @return number of rows inserted
+	 * @throws SQLException
+	 *             if the rows can't be inserted
+	 * @throws IOException
+	 *             if the rows can't be read
+	 */
+	private static long get(final Future<Long> future) throws SQLException, IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading fixtures", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unable to load fixtures", e.getCause());
+		}
+	}
+}
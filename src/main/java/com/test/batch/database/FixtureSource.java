@@ -0,0 +1,25 @@
+package com.test.batch.database;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of the rows of a fixture.
+ * 
+ * @author mguennec
+ * 
+ */
+interface FixtureSource extends Closeable {
+
+	/**
+	 * @return column names
+	 */
+	String[] getColumns();
+
+	/**
+	 * @return values of the next row, null at the end of the fixture
+	 * @throws IOException
+	 *             if the row can't be read
+	 */
+	Object[] next() throws IOException;
+}
@@ -0,0 +1,159 @@
+package com.test.batch.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rows generated from a template giving the value of each column as <code>COLUMN=value</code>. In a value,
+ * <code>${row}</code> is replaced by the row number, <code>${row % n}</code> and <code>${row / n}</code> by its
+ * remainder and quotient ; a value made of a single placeholder is a number, the others are strings. An empty value is
+ * null.
+ *
+ * @author mguennec
+ *
+ */
+class RowTemplate implements FixtureSource {
+
+	/** Placeholder of the row number. */
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{\\s*row\\s*(?:([%/])\\s*(\\d+)\\s*)?\\}");
+
+	/** Column names. */
+	private final String[] columns;
+
+	/** Literal parts of each value, around its placeholders. */
+	private final String[][] literals;
+
+	/** Operator of each placeholder of each value, 0 for the row number itself. */
+	private final char[][] operators;
+
+	/** Operand of each placeholder of each value. */
+	private final long[][] operands;
+
+	/** Next row number. */
+	private long row;
+
+	/** Last row number. */
+	private final long last;
+
+	/**
+	 * @param values
+	 *            template of the rows, one <code>COLUMN=value</code> per column
+	 * @param first
+	 *            number of the first row
+	 * @param last
+	 *            number of the last row
+	 */
+	RowTemplate(final String[] values, final long first, final long last) {
+		columns = new String[values.length];
+		literals = new String[values.length][];
+		operators = new char[values.length][];
+		operands = new long[values.length][];
+		for (int i = 0; i < values.length; i++) {
+			final int equals = values[i].indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Template value must be COLUMN=value : " + values[i]);
+			}
+			columns[i] = values[i].substring(0, equals).trim();
+			parse(i, values[i].substring(equals + 1));
+		}
+		this.row = first;
+		this.last = last;
+	}
+
+	/**
+	 * @param column
+	 *            column index
+	 * @param value
+	 *            template of the value
+	 */
+	private void parse(final int column, final String value) {
+		final List<String> parts = new ArrayList<>();
+		final StringBuilder ops = new StringBuilder();
+		final List<Long> args = new ArrayList<>();
+		final Matcher matcher = PLACEHOLDER.matcher(value);
+		int start = 0;
+		while (matcher.find()) {
+			parts.add(value.substring(start, matcher.start()));
+			ops.append(matcher.group(1) == null ? '\0' : matcher.group(1).charAt(0));
+			args.add(matcher.group(2) == null ? 0 : Long.parseLong(matcher.group(2)));
+			start = matcher.end();
+		}
+		parts.add(value.substring(start));
+		literals[column] = parts.toArray(new String[parts.size()]);
+		operators[column] = ops.toString().toCharArray();
+		operands[column] = new long[args.size()];
+		for (int i = 0; i < args.size(); i++) {
+			if (operators[column][i] != '\0' && args.get(i) == 0) {
+				throw new IllegalArgumentException("Division by zero in template value : " + value);
+			}
+			operands[column][i] = args.get(i);
+		}
+	}
+
+	@Override
+	public String[] getColumns() {
+		return columns.clone();
+	}
+
+	@Override
+	public Object[] next() {
+		if (row > last) {
+			return null;
+		}
+		final Object[] values = new Object[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			values[i] = value(i, row);
+		}
+		row++;
+		return values;
+	}
+
+	/**
+	 * @param column
+	 *            column index
+	 * @param number
+	 *            row number
+	 * @return value of the column for the row
+	 */
+	private Object value(final int column, final long number) {
+		final String[] parts = literals[column];
+		if (parts.length == 1) {
+			return parts[0].isEmpty() ? null : parts[0];
+		}
+		if (parts.length == 2 && parts[0].isEmpty() && parts[1].isEmpty()) {
+			return apply(operators[column][0], operands[column][0], number);
+		}
+		final StringBuilder sb = new StringBuilder(parts[0]);
+		for (int i = 1; i < parts.length; i++) {
+			sb.append(apply(operators[column][i - 1], operands[column][i - 1], number)).append(parts[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param operator
+	 *            operator, 0 for none
+	 * @param operand
+	 *            operand
+	 * @param number
+	 *            row number
+	 * @return value of the placeholder
+	 */
+	private static long apply(final char operator, final long operand, final long number) {
+		switch (operator) {
+		case '%':
+			return number % operand;
+		case '/':
+			return number / operand;
+		default:
+			return number;
+		}
+	}
+
+	@Override
+	public void close() {
+		// Ne fait rien
+	}
+}
@@ -0,0 +1,135 @@
+package com.test.batch.database;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content of a table, kept in memory.
+ * 
+ * @author mguennec
+ * 
+ */
+class TableSnapshot {
+
+	/** Number of rows fetched at once. */
+	private static final int FETCH_SIZE = 1000;
+
+	/** Qualified table name. */
+	private final String table;
+
+	/** Column names. */
+	private final String[] columns;
+
+	/** Column SQL types. */
+	private final int[] types;
+
+	/** Rows. */
+	private final List<Object[]> rows = new ArrayList<>();
+
+	/**
+	 * Reads the content of a table.
+	 * 
+	 * @param connection
+	 *            connection
+	 * @param table
+	 *            qualified table name
+	 * @throws SQLException
+	 *             if the table can't be read
+	 */
+	TableSnapshot(final Connection connection, final String table) throws SQLException {
+		this.table = table;
+		try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			statement.setFetchSize(FETCH_SIZE);
+			try (ResultSet rs = statement.executeQuery("SELECT * FROM " + table)) {
+				final ResultSetMetaData metaData = rs.getMetaData();
+				columns = new String[metaData.getColumnCount()];
+				types = new int[columns.length];
+				for (int i = 0; i < columns.length; i++) {
+					columns[i] = metaData.getColumnName(i + 1);
+					types[i] = metaData.getColumnType(i + 1);
+				}
+				while (rs.next()) {
+					final Object[] row = new Object[columns.length];
+					for (int i = 0; i < columns.length; i++) {
+						row[i] = read(rs.getObject(i + 1));
+					}
+					rows.add(row);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the large objects which are only valid while the result set is open.
+	 * 
+	 * @param value
+	 *            column value
+	 * @return the value to keep
+	 * @throws SQLException
+	 *             if a large object can't be read
+	 */
+	static Object read(final Object value) throws SQLException {
+		if (value instanceof Blob) {
+			final Blob blob = (Blob) value;
+			return blob.getBytes(1, (int) blob.length());
+		}
+		if (value instanceof Clob) {
+			final Clob clob = (Clob) value;
+			return clob.getSubString(1, (int) clob.length());
+		}
+		return value;
+	}
+
+	/**
+	 * Deletes the rows of the table.
+	 * 
+	 * @param connection
+	 *            connection
+	 * @throws SQLException
+	 *             if the table can't be emptied
+	 */
+	void delete(final Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate("DELETE FROM " + table);
+		}
+	}
+
+	/**
+	 * Inserts the rows of the snapshot with batched multi-row inserts.
+	 * 
+	 * @param connection
+	 *            connection
+	 * @throws SQLException
+	 *             if the rows can't be inserted
+	 */
+	void insert(final Connection connection) throws SQLException {
+		if (rows.isEmpty()) {
+			return;
+		}
+		try (BulkInserter inserter = new BulkInserter(connection, table, columns, types)) {
+			for (final Object[] row : rows) {
+				inserter.add(row);
+			}
+			inserter.flush();
+		}
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	int size() {
+		return rows.size();
+	}
+
+	@Override
+	public String toString() {
+		return table;
+	}
+}
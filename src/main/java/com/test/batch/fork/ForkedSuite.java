@@ -0,0 +1,292 @@
+package com.test.batch.fork;
+
+import com.test.batch.annotations.ForkedWorkers;
+import com.test.batch.runner.BalancedSuite;
+import org.apache.log4j.Logger;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.Statement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suite running its test classes in a pool of long-lived worker JVMs, so that static state doesn't leak from a class
+ * to the others of the suite and the JVM start and warm-up are shared by several classes. Each worker runs the classes
+ * one at a time and is replaced after a number of classes or when it dies. Only the tests left by the filters of the
+ * suite (single method run from an IDE, <code>-Dtest=Class#method</code>...) are run by the workers. The events of the tests are sent back to
+ * the JUnit notifier of the current JVM. Classes are handed to the workers longest first and can be sharded as in
+ * {@link BalancedSuite}. The workers are configured with {@link ForkedWorkers} :
+ *
+ * <pre>
+ * &#064;RunWith(ForkedSuite.class)
+ * &#064;SuiteClasses({ FirstBatchTest.class, SecondBatchTest.class })
+ * &#064;ForkedWorkers(workers = 4, classesPerWorker = 10)
+ * public class AllBatchTests {
+ * }
+ * </pre>
+ *
+ * @author mguennec
+ *
+ */
+public class ForkedSuite extends BalancedSuite {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(ForkedSuite.class);
+
+	/** Worker configuration. */
+	private final ForkedWorkers config;
+
+	/** Descriptions of the tests, by display name. */
+	private final Map<String, Description> descriptions = new ConcurrentHashMap<>();
+
+	/**
+	 * @param klass
+	 *            suite class
+	 * @param builder
+	 *            builds the runners of the test classes
+	 * @throws InitializationError
+	 *             if the suite is invalid
+	 */
+	public ForkedSuite(final Class<?> klass, final RunnerBuilder builder) throws InitializationError {
+		super(klass, builder);
+		final ForkedWorkers forkedWorkers = klass.getAnnotation(ForkedWorkers.class);
+		config = forkedWorkers == null ? Defaults.class.getAnnotation(ForkedWorkers.class) : forkedWorkers;
+		index(getDescription());
+	}
+
+	/**
+	 * @param description
+	 *            description to index with its children
+	 */
+	private void index(final Description description) {
+		descriptions.put(description.getDisplayName(), description);
+		for (final Description child : description.getChildren()) {
+			index(child);
+		}
+	}
+
+	@Override
+	protected Statement childrenInvoker(final RunNotifier notifier) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				runInWorkers(notifier);
+			}
+		};
+	}
+
+	/**
+	 * Runs the test classes in the worker JVMs.
+	 *
+	 * @param notifier
+	 *            notifier of the current JVM
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the workers
+	 */
+	private void runInWorkers(final RunNotifier notifier) throws InterruptedException {
+		final Queue<Description> classes = new ConcurrentLinkedQueue<>(getClassDescriptions());
+		final int workers = config.workers() == ForkedWorkers.AVAILABLE_PROCESSORS ? Runtime.getRuntime().availableProcessors() : config.workers();
+		// Computed before the first worker starts polling the queue
+		final int count = Math.min(workers, classes.size());
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, count));
+		for (int i = 0; i < count; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					runClasses(classes, notifier);
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+	}
+
+	/**
+	 * @return descriptions of the test classes, in the order they are run
+	 */
+	protected List<Description> getClassDescriptions() {
+		return new ArrayList<>(getDescription().getChildren());
+	}
+
+	/**
+	 * Runs test classes in a worker JVM until there is no more class to run.
+	 *
+	 * @param classes
+	 *            classes to run
+	 * @param notifier
+	 *            notifier of the current JVM
+	 */
+	private void runClasses(final Queue<Description> classes, final RunNotifier notifier) {
+		WorkerProcess worker = null;
+		try {
+			for (Description testClass = classes.poll(); testClass != null; testClass = classes.poll()) {
+				if (worker == null) {
+					try {
+						worker = new WorkerProcess(config.jvmArgs());
+					} catch (IOException e) {
+						fire(notifier, WorkerEvent.Type.FAILURE, testClass, e);
+						continue;
+					}
+				}
+				final EventReplayer replayer = new EventReplayer(notifier);
+				try {
+					worker.run(testClass.getClassName(), getTestNames(testClass), replayer);
+				} catch (IOException e) {
+					LOGGER.error("Worker died while running " + testClass.getClassName(), e);
+					replayer.abort(testClass, e);
+					worker.destroy();
+					worker = null;
+					continue;
+				}
+				if (worker.getClassCount() >= config.classesPerWorker()) {
+					worker.stop();
+					worker = null;
+				}
+			}
+		} finally {
+			if (worker != null) {
+				worker.stop();
+			}
+		}
+	}
+
+	/**
+	 * @param testClass
+	 *            description of a test class, with the children left by the filters of the suite
+	 * @return display names of the tests of the class to run, null to run the whole class
+	 */
+	private static ArrayList<String> getTestNames(final Description testClass) {
+		if (testClass.getChildren().isEmpty()) {
+			return null;
+		}
+		final ArrayList<String> names = new ArrayList<>();
+		addTestNames(testClass, names);
+		return names;
+	}
+
+	/**
+	 * @param description
+	 *            description of a test or of a group of tests
+	 * @param names
+	 *            display names of the tests, completed with the tests of the description
+	 */
+	private static void addTestNames(final Description description, final List<String> names) {
+		if (description.isTest()) {
+			names.add(description.getDisplayName());
+		}
+		for (final Description child : description.getChildren()) {
+			addTestNames(child, names);
+		}
+	}
+
+	/**
+	 * Fires an event on the notifier of the current JVM. Listeners aren't thread-safe : events are fired one at a time.
+	 *
+	 * @param notifier
+	 *            notifier
+	 * @param type
+	 *            event type
+	 * @param description
+	 *            test description
+	 * @param exception
+	 *            failure cause
+	 */
+	private static void fire(final RunNotifier notifier, final WorkerEvent.Type type, final Description description, final Throwable exception) {
+		synchronized (notifier) {
+			switch (type) {
+			case STARTED:
+				notifier.fireTestStarted(description);
+				break;
+			case FINISHED:
+				notifier.fireTestFinished(description);
+				break;
+			case FAILURE:
+				notifier.fireTestFailure(new Failure(description, exception));
+				break;
+			case ASSUMPTION_FAILURE:
+				notifier.fireTestAssumptionFailed(new Failure(description, exception));
+				break;
+			case IGNORED:
+				notifier.fireTestIgnored(description);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Replays the events of a worker on the notifier of the current JVM.
+	 */
+	private final class EventReplayer implements WorkerProcess.EventHandler {
+
+		/** Notifier of the current JVM. */
+		private final RunNotifier notifier;
+
+		/** Tests started and not finished yet. */
+		private final Set<Description> running = new LinkedHashSet<>();
+
+		/**
+		 * @param notifier
+		 *            notifier of the current JVM
+		 */
+		private EventReplayer(final RunNotifier notifier) {
+			this.notifier = notifier;
+		}
+
+		@Override
+		public void handle(final WorkerEvent event) {
+			Description description = descriptions.get(event.getDisplayName());
+			if (description == null) {
+				description = Description.createSuiteDescription(event.getDisplayName());
+			}
+			if (event.getType() == WorkerEvent.Type.STARTED) {
+				running.add(description);
+			} else if (event.getType() == WorkerEvent.Type.FINISHED) {
+				running.remove(description);
+			}
+			fire(notifier, event.getType(), description, event.getException());
+		}
+
+		/**
+		 * Reports the death of the worker.
+		 *
+		 * @param testClass
+		 *            test class run by the worker
+		 * @param cause
+		 *            communication error
+		 */
+		private void abort(final Description testClass, final IOException cause) {
+			final IllegalStateException failure = new IllegalStateException("Worker JVM died while running " + testClass.getClassName(), cause);
+			if (running.isEmpty()) {
+				fire(notifier, WorkerEvent.Type.FAILURE, testClass, failure);
+			}
+			for (final Description test : running) {
+				fire(notifier, WorkerEvent.Type.FAILURE, test, failure);
+				fire(notifier, WorkerEvent.Type.FINISHED, test, null);
+			}
+		}
+	}
+
+	/**
+	 * Carries the default worker configuration.
+	 */
+	@ForkedWorkers
+	private static final class Defaults {
+		// Ne fait rien
+	}
+}
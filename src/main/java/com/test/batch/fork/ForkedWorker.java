@@ -0,0 +1,198 @@
+package com.test.batch.fork;
+
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Main class of a worker JVM of a {@link ForkedSuite}. Connects to the loopback port of the parent JVM, reads the names
+ * of the test classes to run, each followed by the display names of its tests to run (null for all of them), and writes
+ * their events back, until it reads null. The standard output and error are the ones of the parent JVM.
+ * 
+ * @author mguennec
+ * 
+ */
+public final class ForkedWorker {
+
+	private ForkedWorker() {
+		// Ne fait rien
+	}
+
+	/**
+	 * @param args
+	 *            loopback port of the parent JVM
+	 * @throws Exception
+	 *             if the communication with the parent JVM fails
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+		final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		out.flush();
+		final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+		final EventWriter writer = new EventWriter(out);
+		String className = (String) in.readObject();
+		while (className != null) {
+			@SuppressWarnings("unchecked")
+			final Collection<String> testNames = (Collection<String>) in.readObject();
+			run(className, testNames, writer);
+			writer.write(new WorkerEvent(WorkerEvent.Type.DONE, className, null));
+			className = (String) in.readObject();
+		}
+		socket.close();
+		System.exit(0);
+	}
+
+	/**
+	 * Runs a test class.
+	 * 
+	 * @param className
+	 *            test class name
+	 * @param testNames
+	 *            display names of the tests to run, null to run the whole class
+	 * @param writer
+	 *            event writer
+	 * @throws IOException
+	 *             if an event can't be sent
+	 */
+	private static void run(final String className, final Collection<String> testNames, final EventWriter writer) throws IOException {
+		final Class<?> testClass;
+		try {
+			testClass = Class.forName(className);
+		} catch (ClassNotFoundException | LinkageError e) {
+			writer.write(new WorkerEvent(WorkerEvent.Type.FAILURE, className, e));
+			return;
+		}
+		final JUnitCore core = new JUnitCore();
+		core.addListener(writer);
+		final Request request = Request.aClass(testClass);
+		core.run(testNames == null ? request : request.filterWith(new SelectedTests(testNames)));
+		if (writer.error != null) {
+			throw writer.error;
+		}
+	}
+
+	/**
+	 * Keeps the tests selected in the parent JVM.
+	 */
+	private static final class SelectedTests extends Filter {
+
+		/** Display names of the selected tests. */
+		private final Set<String> testNames;
+
+		/**
+		 * @param testNames
+		 *            display names of the selected tests
+		 */
+		private SelectedTests(final Collection<String> testNames) {
+			this.testNames = new HashSet<>(testNames);
+		}
+
+		@Override
+		public boolean shouldRun(final Description description) {
+			if (description.isTest()) {
+				return testNames.contains(description.getDisplayName());
+			}
+			for (final Description child : description.getChildren()) {
+				if (shouldRun(child)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String describe() {
+			return "tests " + testNames;
+		}
+	}
+
+	/**
+	 * Sends the test events to the parent JVM.
+	 */
+	private static final class EventWriter extends RunListener {
+
+		/** Event stream. */
+		private final ObjectOutputStream out;
+
+		/** First communication error. */
+		private IOException error;
+
+		/**
+		 * @param out
+		 *            event stream
+		 */
+		private EventWriter(final ObjectOutputStream out) {
+			this.out = out;
+		}
+
+		/**
+		 * @param event
+		 *            event to send
+		 * @throws IOException
+		 *             if the event can't be sent
+		 */
+		private synchronized void write(final WorkerEvent event) throws IOException {
+			out.writeObject(event);
+			out.flush();
+			// Forgets the written objects, the stream lives as long as the worker
+			out.reset();
+		}
+
+		/**
+		 * @param type
+		 *            event type
+		 * @param description
+		 *            test description
+		 * @param exception
+		 *            failure cause
+		 */
+		private synchronized void send(final WorkerEvent.Type type, final Description description, final Throwable exception) {
+			if (error == null) {
+				try {
+					write(new WorkerEvent(type, description.getDisplayName(), exception));
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+		}
+
+		@Override
+		public void testStarted(final Description description) {
+			send(WorkerEvent.Type.STARTED, description, null);
+		}
+
+		@Override
+		public void testFinished(final Description description) {
+			send(WorkerEvent.Type.FINISHED, description, null);
+		}
+
+		@Override
+		public void testFailure(final Failure failure) {
+			send(WorkerEvent.Type.FAILURE, failure.getDescription(), failure.getException());
+		}
+
+		@Override
+		public void testAssumptionFailure(final Failure failure) {
+			send(WorkerEvent.Type.ASSUMPTION_FAILURE, failure.getDescription(), failure.getException());
+		}
+
+		@Override
+		public void testIgnored(final Description description) {
+			send(WorkerEvent.Type.IGNORED, description, null);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.test.batch.fork;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Test event sent by a worker JVM. Descriptions are identified by their display name.
+ * 
+ * @author mguennec
+ * 
+ */
+class WorkerEvent implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Event types.
+	 */
+	enum Type {
+		/** Test started. */
+		STARTED,
+		/** Test finished. */
+		FINISHED,
+		/** Test failed. */
+		FAILURE,
+		/** Test assumption failed. */
+		ASSUMPTION_FAILURE,
+		/** Test ignored. */
+		IGNORED,
+		/** Test class over. */
+		DONE
+	}
+
+	/** Event type. */
+	private final Type type;
+
+	/** Display name of the description. */
+	private final String displayName;
+
+	/** Failure cause. */
+	private final Throwable exception;
+
+	/**
+	 * @param type
+	 *            event type
+	 * @param displayName
+	 *            display name of the description
+	 * @param exception
+	 *            failure cause
+	 */
+	WorkerEvent(final Type type, final String displayName, final Throwable exception) {
+		this.type = type;
+		this.displayName = displayName;
+		this.exception = exception == null ? null : serializable(exception);
+	}
+
+	Type getType() {
+		return type;
+	}
+
+	String getDisplayName() {
+		return displayName;
+	}
+
+	Throwable getException() {
+		return exception;
+	}
+
+	/**
+	 * @param exception
+	 *            failure cause
+	 * @return the cause if it can be serialized, a copy of its message and stack trace otherwise
+	 */
+	private static Throwable serializable(final Throwable exception) {
+		try (ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream())) {
+			out.writeObject(exception);
+			return exception;
+		} catch (IOException e) {
+			final ForkedException copy = new ForkedException(exception.toString(), exception.getCause() == null ? null : serializable(exception.getCause()));
+			copy.setStackTrace(exception.getStackTrace());
+			return copy;
+		}
+	}
+
+	/**
+	 * Copy of an exception which can't be sent by a worker.
+	 */
+	static class ForkedException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param message
+		 *            class and message of the original exception
+		 * @param cause
+		 *            cause
+		 */
+		ForkedException(final String message, final Throwable cause) {
+			super(message, cause);
+		}
+	}
+}
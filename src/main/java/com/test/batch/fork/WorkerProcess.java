@@ -0,0 +1,201 @@
+package com.test.batch.fork;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Worker JVM running test classes sent by the parent JVM. The worker connects back to a loopback socket of the parent
+ * JVM : its standard output stays free for the JVM and the tests (<code>-verbose:gc</code>, agents...).
+ * 
+ * @author mguennec
+ * 
+ */
+class WorkerProcess {
+
+	/**
+	 * Receives the events of a test class.
+	 */
+	interface EventHandler {
+
+		/**
+		 * @param event
+		 *            event of the running test class
+		 */
+		void handle(WorkerEvent event);
+	}
+
+	/** Delay between two checks of the worker JVM while waiting for its connection, in milliseconds. */
+	private static final int ACCEPT_POLL_MILLIS = 500;
+
+	/** Maximum time given to the worker JVM to connect, in milliseconds. */
+	private static final long CONNECT_TIMEOUT_MILLIS = 60000;
+
+	/** Worker JVM. */
+	private final Process process;
+
+	/** Connection of the worker. */
+	private final Socket socket;
+
+	/** Test class names and test names sent to the worker. */
+	private final ObjectOutputStream out;
+
+	/** Events received from the worker. */
+	private final ObjectInputStream in;
+
+	/** Number of test classes run by the worker. */
+	private int classCount;
+
+	/**
+	 * Starts a worker JVM with the class path and the arguments of the current JVM.
+	 * 
+	 * @param jvmArgs
+	 *            additional JVM arguments
+	 * @throws IOException
+	 *             if the JVM can't be started
+	 */
+	WorkerProcess(final String[] jvmArgs) throws IOException {
+		final List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		for (final String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			// A debugger port can't be shared
+			if (!arg.startsWith("-agentlib:jdwp") && !arg.startsWith("-Xrunjdwp")) {
+				command.add(arg);
+			}
+		}
+		command.addAll(Arrays.asList(jvmArgs));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ForkedWorker.class.getName());
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			command.add(String.valueOf(server.getLocalPort()));
+			process = new ProcessBuilder(command).redirectOutput(Redirect.INHERIT).redirectError(Redirect.INHERIT).start();
+			try {
+				socket = accept(server);
+				out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				out.flush();
+				in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+			} catch (IOException e) {
+				destroy();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Waits for the connection of the worker JVM.
+	 * 
+	 * @param server
+	 *            socket the worker connects to
+	 * @return connection of the worker
+	 * @throws IOException
+	 *             if the worker exits or doesn't connect in time
+	 */
+	private Socket accept(final ServerSocket server) throws IOException {
+		server.setSoTimeout(ACCEPT_POLL_MILLIS);
+		final long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+		while (true) {
+			try {
+				return server.accept();
+			} catch (SocketTimeoutException e) {
+				if (hasExited()) {
+					throw new IOException("Worker JVM exited with code " + process.exitValue() + " before connecting");
+				}
+				if (System.currentTimeMillis() > deadline) {
+					throw new IOException("Worker JVM didn't connect within " + CONNECT_TIMEOUT_MILLIS + " ms");
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the worker JVM has exited
+	 */
+	private boolean hasExited() {
+		try {
+			process.exitValue();
+			return true;
+		} catch (IllegalThreadStateException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return number of test classes run by the worker
+	 */
+	int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Runs a test class in the worker.
+	 * 
+	 * @param className
+	 *            test class name
+	 * @param testNames
+	 *            display names of the tests of the class to run, null to run the whole class
+	 * @param handler
+	 *            receives the events of the class
+	 * @throws IOException
+	 *             if the worker died
+	 */
+	void run(final String className, final ArrayList<String> testNames, final EventHandler handler) throws IOException {
+		classCount++;
+		out.writeObject(className);
+		out.writeObject(testNames);
+		out.flush();
+		// Forgets the written objects, the stream lives as long as the worker
+		out.reset();
+		try {
+			WorkerEvent event = (WorkerEvent) in.readObject();
+			while (event.getType() != WorkerEvent.Type.DONE) {
+				handler.handle(event);
+				event = (WorkerEvent) in.readObject();
+			}
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unexpected event from worker", e);
+		}
+	}
+
+	/**
+	 * Stops the worker once it is idle.
+	 */
+	void stop() {
+		try {
+			out.writeObject(null);
+			out.close();
+			process.waitFor();
+		} catch (IOException e) {
+			process.destroy();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			process.destroy();
+		}
+	}
+
+	/**
+	 * Kills the worker.
+	 */
+	void destroy() {
+		process.destroy();
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Ne fait rien
+			}
+		}
+	}
+}
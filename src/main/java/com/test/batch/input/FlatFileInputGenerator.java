@@ -0,0 +1,57 @@
+package com.test.batch.input;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Generates a temporary flat file, one line per item. The file path is given to the job as the
+ * {@value #DEFAULT_PARAMETER} parameter (see {@link #getParameterName()}). The file of the previous generation is deleted.
+ * 
+ * @author mguennec
+ * 
+ */
+public abstract class FlatFileInputGenerator implements InputGenerator {
+
+	/** Default name of the job parameter giving the file path. */
+	public static final String DEFAULT_PARAMETER = "input.file";
+
+	/** Last generated file. */
+	private File file;
+
+	@Override
+	public Map<String, String> generate(final long size) throws IOException {
+		if (file != null && !file.delete()) {
+			file.deleteOnExit();
+		}
+		file = File.createTempFile("batch-input-", ".txt");
+		file.deleteOnExit();
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+			for (long i = 0; i < size; i++) {
+				out.write(line(i));
+				out.write('\n');
+			}
+		}
+		return Collections.singletonMap(getParameterName(), "file:" + file.getAbsolutePath());
+	}
+
+	/**
+	 * @return name of the job parameter giving the file resource
+	 */
+	protected String getParameterName() {
+		return DEFAULT_PARAMETER;
+	}
+
+	/**
+	 * @param index
+	 *            line index, from 0
+	 * @return content of the line, without line separator
+	 */
+	protected abstract String line(long index);
+}
@@ -0,0 +1,24 @@
+package com.test.batch.input;
+
+import java.util.Map;
+
+/**
+ * Generates synthetic input for a job. Implementations need a public no-arg constructor; their properties are autowired
+ * by type from the Spring context of the test.
+ * 
+ * @author mguennec
+ * 
+ */
+public interface InputGenerator {
+
+	/**
+	 * Generates input of a given size.
+	 * 
+	 * @param size
+	 *            number of items (rows, lines...) to generate
+	 * @return job parameters pointing the job to the generated input
+	 * @throws Exception
+	 *             if the input can't be generated
+	 */
+	Map<String, String> generate(long size) throws Exception;
+}
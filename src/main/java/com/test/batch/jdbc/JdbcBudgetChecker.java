@@ -0,0 +1,90 @@
+package com.test.batch.jdbc;
+
+import com.test.batch.annotations.JdbcBudget;
+import com.test.batch.jdbc.JdbcMetrics.SqlMetrics;
+import com.test.batch.metrics.JobMetrics;
+import org.junit.Assert;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Checks the JDBC activity of a batch test against its {@link JdbcBudget}.
+ *
+ * @author mguennec
+ *
+ */
+public final class JdbcBudgetChecker {
+
+	/** Number of SQL shapes listed when a budget is exceeded. */
+	private static final int LISTED_SHAPES = 3;
+
+	private JdbcBudgetChecker() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Checks the JDBC activity of a run.
+	 *
+	 * @param method
+	 *            test method
+	 * @param metrics
+	 *            metrics of the run
+	 */
+	public static void check(final Method method, final JobMetrics metrics) {
+		final JdbcBudget budget = method.getAnnotation(JdbcBudget.class);
+		if (budget == null) {
+			return;
+		}
+		final JdbcMetrics jdbc = metrics.getJdbc();
+		Assert.assertNotNull("JDBC activity not recorded.", jdbc);
+		final List<SqlMetrics> statements = new ArrayList<>();
+		for (final SqlMetrics sql : jdbc.getStatements()) {
+			if (!StringUtils.hasLength(budget.repositoryTablePrefix()) || !sql.uses(budget.repositoryTablePrefix())) {
+				statements.add(sql);
+			}
+		}
+		final long items = Math.max(1, metrics.getReadCount());
+		long statementCount = 0;
+		long roundTrips = 0;
+		for (final SqlMetrics sql : statements) {
+			statementCount += sql.getStatementCount();
+			roundTrips += sql.getRoundTrips();
+		}
+		if (budget.maxStatementsPerItem() > 0 && statementCount > budget.maxStatementsPerItem() * items) {
+			Assert.fail(String.format(Locale.ROOT, "%d statement(s) for %d item(s) : %.2f per item, %.2f expected at most%s", statementCount, items, (double) statementCount
+					/ items, budget.maxStatementsPerItem(), describe(statements)));
+		}
+		if (budget.maxRoundTripsPerItem() > 0 && roundTrips > budget.maxRoundTripsPerItem() * items) {
+			Assert.fail(String.format(Locale.ROOT, "%d round trip(s) for %d item(s) : %.2f per item, %.2f expected at most%s", roundTrips, items, (double) roundTrips
+					/ items, budget.maxRoundTripsPerItem(), describe(statements)));
+		}
+		for (final SqlMetrics sql : statements) {
+			if (!sql.isWrite()) {
+				continue;
+			}
+			if (budget.batchedWrites() && sql.getExecutions() > 0) {
+				Assert.fail("Write executed " + sql.getExecutions() + " time(s) outside of a JDBC batch : " + sql.getShape());
+			}
+			if (budget.minBatchSize() > 0 && sql.getBatches() > 0 && sql.getMeanBatchSize() < budget.minBatchSize()) {
+				Assert.fail(String.format(Locale.ROOT, "Mean batch size %.1f, %d expected at least : %s", sql.getMeanBatchSize(), budget.minBatchSize(), sql.getShape()));
+			}
+		}
+	}
+
+	/**
+	 * @param statements
+	 *            activity by SQL shape, most executed first
+	 * @return description of the most executed shapes
+	 */
+	private static String describe(final List<SqlMetrics> statements) {
+		final StringBuilder sb = new StringBuilder();
+		for (final SqlMetrics sql : statements.subList(0, Math.min(LISTED_SHAPES, statements.size()))) {
+			sb.append("\n  ").append(sql);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,314 @@
+package com.test.batch.jdbc;
+
+import com.test.batch.metrics.JsonWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC activity recorded during a job run, by SQL shape (the SQL with its literals replaced by '?' and its whitespaces
+ * collapsed). A statement is one execution of a SQL statement, alone or in a JDBC batch ; a round trip is one call to
+ * the driver (an execution or a batch).
+ *
+ * @author mguennec
+ *
+ */
+public class JdbcMetrics {
+
+	/** Number of shapes printed by {@link #toString()}. */
+	private static final int PRINTED_SHAPES = 5;
+
+	/** Activity of each SQL shape. */
+	private final Map<String, SqlMetrics> statements = new HashMap<>();
+
+	/** Number of connections obtained. */
+	private long connections;
+
+	/** Number of commits. */
+	private long commits;
+
+	/** Number of rollbacks. */
+	private long rollbacks;
+
+	/**
+	 * @param shape
+	 *            SQL shape
+	 * @return the activity of the shape, created if needed
+	 */
+	private SqlMetrics get(final String shape) {
+		SqlMetrics sql = statements.get(shape);
+		if (sql == null) {
+			sql = new SqlMetrics(shape);
+			statements.put(shape, sql);
+		}
+		return sql;
+	}
+
+	/**
+	 * Records an execution outside of a batch.
+	 *
+	 * @param shape
+	 *            SQL shape
+	 * @param nanos
+	 *            duration
+	 */
+	synchronized void executed(final String shape, final long nanos) {
+		final SqlMetrics sql = get(shape);
+		sql.executions++;
+		sql.nanos += nanos;
+	}
+
+	/**
+	 * Records a batch execution.
+	 *
+	 * @param shape
+	 *            SQL shape
+	 * @param size
+	 *            number of statements of the batch
+	 * @param nanos
+	 *            duration
+	 */
+	synchronized void batchExecuted(final String shape, final int size, final long nanos) {
+		final SqlMetrics sql = get(shape);
+		sql.batches++;
+		sql.batchedStatements += size;
+		sql.maxBatchSize = Math.max(sql.maxBatchSize, size);
+		sql.nanos += nanos;
+	}
+
+	/**
+	 * Records a connection obtained from a data source.
+	 */
+	synchronized void connected() {
+		connections++;
+	}
+
+	/**
+	 * Records a commit.
+	 */
+	synchronized void committed() {
+		commits++;
+	}
+
+	/**
+	 * Records a rollback.
+	 */
+	synchronized void rolledBack() {
+		rollbacks++;
+	}
+
+	/**
+	 * @return activity of each SQL shape, most executed statements first
+	 */
+	public synchronized List<SqlMetrics> getStatements() {
+		final List<SqlMetrics> sorted = new ArrayList<>();
+		for (final SqlMetrics sql : statements.values()) {
+			sorted.add(sql.copy());
+		}
+		Collections.sort(sorted, new Comparator<SqlMetrics>() {
+			@Override
+			public int compare(final SqlMetrics o1, final SqlMetrics o2) {
+				return Long.compare(o2.getStatementCount(), o1.getStatementCount());
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * @return number of statements executed
+	 */
+	public long getStatementCount() {
+		long count = 0;
+		for (final SqlMetrics sql : getStatements()) {
+			count += sql.getStatementCount();
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of calls to the driver
+	 */
+	public long getRoundTrips() {
+		long count = 0;
+		for (final SqlMetrics sql : getStatements()) {
+			count += sql.getRoundTrips();
+		}
+		return count;
+	}
+
+	public synchronized long getConnections() {
+		return connections;
+	}
+
+	public synchronized long getCommits() {
+		return commits;
+	}
+
+	public synchronized long getRollbacks() {
+		return rollbacks;
+	}
+
+	/**
+	 * Writes the metrics as a JSON object.
+	 *
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("statements", getStatementCount()).field("roundTrips", getRoundTrips()).field("connections", getConnections());
+		json.field("commits", getCommits()).field("rollbacks", getRollbacks());
+		json.name("sql").beginArray();
+		for (final SqlMetrics sql : getStatements()) {
+			json.beginObject().field("shape", sql.getShape()).field("executions", sql.getExecutions()).field("batches", sql.getBatches());
+			json.field("batchedStatements", sql.getBatchedStatements()).field("maxBatchSize", sql.getMaxBatchSize()).field("timeMs", sql.getTime()).endObject();
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder().append(getStatementCount()).append(" statement(s) in ").append(getRoundTrips()).append(" round trip(s), ")
+				.append(getConnections()).append(" connection(s), ").append(getCommits()).append(" commit(s)");
+		final List<SqlMetrics> sorted = getStatements();
+		for (final SqlMetrics sql : sorted.subList(0, Math.min(PRINTED_SHAPES, sorted.size()))) {
+			sb.append("\n    ").append(sql);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * JDBC activity of a SQL shape.
+	 */
+	public static final class SqlMetrics {
+
+		/** SQL shape. */
+		private final String shape;
+
+		/** Executions outside of a batch. */
+		private long executions;
+
+		/** Batch executions. */
+		private long batches;
+
+		/** Statements executed in batches. */
+		private long batchedStatements;
+
+		/** Largest batch. */
+		private long maxBatchSize;
+
+		/** Time spent in the driver, in nanoseconds. */
+		private long nanos;
+
+		/**
+		 * @param shape
+		 *            SQL shape
+		 */
+		private SqlMetrics(final String shape) {
+			this.shape = shape;
+		}
+
+		/**
+		 * @return a copy of this activity
+		 */
+		private SqlMetrics copy() {
+			final SqlMetrics copy = new SqlMetrics(shape);
+			copy.executions = executions;
+			copy.batches = batches;
+			copy.batchedStatements = batchedStatements;
+			copy.maxBatchSize = maxBatchSize;
+			copy.nanos = nanos;
+			return copy;
+		}
+
+		public String getShape() {
+			return shape;
+		}
+
+		/**
+		 * @return executions outside of a batch
+		 */
+		public long getExecutions() {
+			return executions;
+		}
+
+		public long getBatches() {
+			return batches;
+		}
+
+		public long getBatchedStatements() {
+			return batchedStatements;
+		}
+
+		public long getMaxBatchSize() {
+			return maxBatchSize;
+		}
+
+		/**
+		 * @return mean number of statements of a batch, 0 without batch
+		 */
+		public double getMeanBatchSize() {
+			return batches == 0 ? 0 : (double) batchedStatements / batches;
+		}
+
+		/**
+		 * @return number of statements executed, alone or in batches
+		 */
+		public long getStatementCount() {
+			return executions + batchedStatements;
+		}
+
+		/**
+		 * @return number of calls to the driver
+		 */
+		public long getRoundTrips() {
+			return executions + batches;
+		}
+
+		/**
+		 * @return time spent in the driver in milliseconds
+		 */
+		public double getTime() {
+			return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+		}
+
+		/**
+		 * @return true for the statements modifying data
+		 */
+		public boolean isWrite() {
+			final String verb = shape.length() < 6 ? shape : shape.substring(0, 6);
+			return verb.equalsIgnoreCase("insert") || verb.equalsIgnoreCase("update") || verb.equalsIgnoreCase("delete") || shape.regionMatches(true, 0, "merge", 0, 5);
+		}
+
+		/**
+		 * @param tablePrefix
+		 *            table name prefix
+		 * @return true if the statement uses a table whose name starts with the prefix (a name of the statement starting
+		 *         with the prefix, possibly qualified or quoted)
+		 */
+		public boolean uses(final String tablePrefix) {
+			final String sql = shape.toUpperCase(Locale.ROOT);
+			final String prefix = tablePrefix.toUpperCase(Locale.ROOT);
+			for (int i = sql.indexOf(prefix); i >= 0; i = sql.indexOf(prefix, i + 1)) {
+				// MY_BATCH_RESULT doesn't start with BATCH_
+				if (i == 0 || !Character.isJavaIdentifierPart(sql.charAt(i - 1))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%d statement(s) in %d round trip(s), %d batch(es) of max %d, %.1fms : %s", getStatementCount(), getRoundTrips(), batches,
+					maxBatchSize, getTime(), shape);
+		}
+	}
+}
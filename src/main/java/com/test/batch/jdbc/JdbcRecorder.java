@@ -0,0 +1,211 @@
+package com.test.batch.jdbc;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Records the JDBC activity of the data sources of a Spring context. Every {@link DataSource} bean of a recorded context
+ * is wrapped in a {@link RecordingDataSource} when the context is built ; the activity is only recorded while a recording
+ * is started, so the wrapping costs little outside of the job runs. The wrapped beans are exposed as
+ * {@link RecordingDataSource} and no longer match their concrete type, so only the contexts of the tests annotated with
+ * {@link com.test.batch.annotations.JdbcBudget} are recorded, or the contexts of all the tests when the system property
+ * {@value #ENABLED_PROPERTY} is true.
+ *
+ * @author mguennec
+ *
+ */
+public final class JdbcRecorder {
+
+	/** Name of the recorder in the Spring context. */
+	public static final String BEAN_NAME = "batchTestJdbcRecorder";
+
+	/** System property recording the JDBC activity of all the tests when set to true. */
+	public static final String ENABLED_PROPERTY = "batch.test.jdbc.record";
+
+	/** Maximum number of cached SQL shapes. */
+	private static final int MAX_SHAPES = 10000;
+
+	/** String literals. */
+	private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+
+	/** Numeric literals. */
+	private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+	/** IN lists of parameters, whose length varies. */
+	private static final Pattern LIST = Pattern.compile("\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+	/** Whitespaces. */
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	/** SQL shapes, by SQL. */
+	private static final ConcurrentMap<String, String> SHAPES = new ConcurrentHashMap<>();
+
+	/** Running recordings. */
+	private final List<JdbcMetrics> recordings = new CopyOnWriteArrayList<>();
+
+	private JdbcRecorder() {
+		// Ne fait rien
+	}
+
+	/**
+	 * @return true if the JDBC activity of all the tests is recorded
+	 */
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(ENABLED_PROPERTY);
+	}
+
+	/**
+	 * Makes a context wrap its data sources when it is refreshed.
+	 *
+	 * @param ctxt
+	 *            Spring context, not refreshed yet
+	 */
+	public static void register(final ConfigurableApplicationContext ctxt) {
+		final JdbcRecorder recorder = new JdbcRecorder();
+		ctxt.addBeanFactoryPostProcessor(new BeanFactoryPostProcessor() {
+			@Override
+			public void postProcessBeanFactory(final ConfigurableListableBeanFactory beanFactory) {
+				beanFactory.registerSingleton(BEAN_NAME, recorder);
+				beanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+					@Override
+					public Object postProcessBeforeInitialization(final Object bean, final String beanName) throws BeansException {
+						return bean;
+					}
+
+					@Override
+					public Object postProcessAfterInitialization(final Object bean, final String beanName) throws BeansException {
+						if (bean instanceof DataSource && !(bean instanceof RecordingDataSource)) {
+							return new RecordingDataSource((DataSource) bean, recorder);
+						}
+						return bean;
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * @param ctxt
+	 *            Spring context
+	 * @return the recorder of the context, null if its data sources aren't wrapped
+	 */
+	public static JdbcRecorder getInstance(final ConfigurableApplicationContext ctxt) {
+		final ConfigurableListableBeanFactory beanFactory = ctxt.getBeanFactory();
+		return beanFactory.containsSingleton(BEAN_NAME) ? (JdbcRecorder) beanFactory.getSingleton(BEAN_NAME) : null;
+	}
+
+	/**
+	 * Starts recording. Several recordings may run at once, each one records all the activity of the context.
+	 *
+	 * @return the recording
+	 */
+	public JdbcMetrics start() {
+		final JdbcMetrics recording = new JdbcMetrics();
+		recordings.add(recording);
+		return recording;
+	}
+
+	/**
+	 * Stops a recording.
+	 *
+	 * @param recording
+	 *            the recording
+	 * @return the recording
+	 */
+	public JdbcMetrics stop(final JdbcMetrics recording) {
+		recordings.remove(recording);
+		return recording;
+	}
+
+	/**
+	 * @return true while a recording runs
+	 */
+	boolean isRecording() {
+		return !recordings.isEmpty();
+	}
+
+	/**
+	 * @param sql
+	 *            SQL executed outside of a batch
+	 * @param nanos
+	 *            duration
+	 */
+	void executed(final String sql, final long nanos) {
+		for (final JdbcMetrics recording : recordings) {
+			recording.executed(shape(sql), nanos);
+		}
+	}
+
+	/**
+	 * @param sql
+	 *            SQL executed in a batch
+	 * @param size
+	 *            number of statements of the batch
+	 * @param nanos
+	 *            duration
+	 */
+	void batchExecuted(final String sql, final int size, final long nanos) {
+		for (final JdbcMetrics recording : recordings) {
+			recording.batchExecuted(shape(sql), size, nanos);
+		}
+	}
+
+	/**
+	 * Records a connection obtained from a data source.
+	 */
+	void connected() {
+		for (final JdbcMetrics recording : recordings) {
+			recording.connected();
+		}
+	}
+
+	/**
+	 * Records a commit.
+	 */
+	void committed() {
+		for (final JdbcMetrics recording : recordings) {
+			recording.committed();
+		}
+	}
+
+	/**
+	 * Records a rollback.
+	 */
+	void rolledBack() {
+		for (final JdbcMetrics recording : recordings) {
+			recording.rolledBack();
+		}
+	}
+
+	/**
+	 * @param sql
+	 *            SQL
+	 * @return the SQL with its literals replaced by '?', its IN lists reduced to one parameter and its whitespaces collapsed
+	 */
+	static String shape(final String sql) {
+		if (sql == null) {
+			return "?";
+		}
+		String shape = SHAPES.get(sql);
+		if (shape == null) {
+			shape = STRING.matcher(sql.trim()).replaceAll("?");
+			shape = NUMBER.matcher(shape).replaceAll("?");
+			shape = SPACES.matcher(shape).replaceAll(" ");
+			shape = LIST.matcher(shape).replaceAll("IN (?)");
+			if (SHAPES.size() < MAX_SHAPES) {
+				SHAPES.put(sql, shape);
+			}
+		}
+		return shape;
+	}
+}
@@ -0,0 +1,200 @@
+package com.test.batch.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Data source recording the JDBC activity of its connections in a {@link JdbcRecorder} : connections and statements are
+ * wrapped in dynamic proxies counting the executions, the batches and the time spent in the driver.
+ *
+ * @author mguennec
+ *
+ */
+public class RecordingDataSource extends DelegatingDataSource {
+
+	/** Recorder. */
+	private final JdbcRecorder recorder;
+
+	/**
+	 * @param target
+	 *            wrapped data source
+	 * @param recorder
+	 *            recorder
+	 */
+	public RecordingDataSource(final DataSource target, final JdbcRecorder recorder) {
+		super(target);
+		this.recorder = recorder;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return wrap(getTargetDataSource().getConnection());
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) throws SQLException {
+		return wrap(getTargetDataSource().getConnection(username, password));
+	}
+
+	/**
+	 * @param connection
+	 *            connection
+	 * @return the recording connection
+	 */
+	private Connection wrap(final Connection connection) {
+		recorder.connected();
+		return (Connection) Proxy.newProxyInstance(RecordingDataSource.class.getClassLoader(), new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+	}
+
+	/**
+	 * Invokes a method on the wrapped object.
+	 *
+	 * @param target
+	 *            wrapped object
+	 * @param method
+	 *            method
+	 * @param args
+	 *            arguments
+	 * @return result
+	 * @throws Throwable
+	 *             exception thrown by the method
+	 */
+	private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Records the statements created by a connection, its commits and rollbacks.
+	 */
+	private final class ConnectionHandler implements InvocationHandler {
+
+		/** Wrapped connection. */
+		private final Connection target;
+
+		/**
+		 * @param target
+		 *            wrapped connection
+		 */
+		private ConnectionHandler(final Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			final String name = method.getName();
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			final Object result = RecordingDataSource.invoke(target, method, args);
+			if ("commit".equals(name)) {
+				recorder.committed();
+			} else if ("rollback".equals(name) && (args == null || args.length == 0)) {
+				recorder.rolledBack();
+			} else if (result instanceof Statement) {
+				final String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+				final Class<?> type = result instanceof CallableStatement ? CallableStatement.class : result instanceof PreparedStatement ? PreparedStatement.class
+						: Statement.class;
+				return Proxy.newProxyInstance(RecordingDataSource.class.getClassLoader(), new Class<?>[] { type }, new StatementHandler((Statement) result,
+						(Connection) proxy, sql));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Records the executions and batches of a statement.
+	 */
+	private final class StatementHandler implements InvocationHandler {
+
+		/** Wrapped statement. */
+		private final Statement target;
+
+		/** Recording connection of the statement. */
+		private final Connection connection;
+
+		/** SQL of a prepared statement, null for a plain statement. */
+		private final String sql;
+
+		/** Size of the pending batch, by SQL. */
+		private final Map<String, Integer> batch = new LinkedHashMap<>();
+
+		/**
+		 * @param target
+		 *            wrapped statement
+		 * @param connection
+		 *            recording connection of the statement
+		 * @param sql
+		 *            SQL of a prepared statement, null for a plain statement
+		 */
+		private StatementHandler(final Statement target, final Connection connection, final String sql) {
+			this.target = target;
+			this.connection = connection;
+			this.sql = sql;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			final String name = method.getName();
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			if ("getConnection".equals(name)) {
+				return connection;
+			}
+			if ("addBatch".equals(name)) {
+				final String batchSql = args == null || args.length == 0 ? sql : (String) args[0];
+				final Integer size = batch.get(batchSql);
+				batch.put(batchSql, size == null ? 1 : size + 1);
+			} else if ("clearBatch".equals(name)) {
+				batch.clear();
+			}
+			if (!name.startsWith("execute") || !recorder.isRecording()) {
+				if (name.startsWith("executeBatch") || name.startsWith("executeLargeBatch")) {
+					batch.clear();
+				}
+				return RecordingDataSource.invoke(target, method, args);
+			}
+			final long start = System.nanoTime();
+			try {
+				return RecordingDataSource.invoke(target, method, args);
+			} finally {
+				final long nanos = System.nanoTime() - start;
+				if (name.endsWith("Batch")) {
+					final List<Entry<String, Integer>> entries = new ArrayList<>(batch.entrySet());
+					batch.clear();
+					for (int i = 0; i < entries.size(); i++) {
+						// The batch is a single round trip, its time is given to its first SQL
+						recorder.batchExecuted(entries.get(i).getKey(), entries.get(i).getValue(), i == 0 ? nanos : 0);
+					}
+				} else {
+					recorder.executed(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql, nanos);
+				}
+			}
+		}
+	}
+}
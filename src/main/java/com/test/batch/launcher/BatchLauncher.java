@@ -1,7 +1,29 @@
 package com.test.batch.launcher;
 
+import com.test.batch.annotations.BatchBenchmark;
 import com.test.batch.annotations.BatchTest;
+import com.test.batch.annotations.ChunkSizeSweep;
+import com.test.batch.annotations.PartitionSweep;
+import com.test.batch.annotations.RestartTest;
+import com.test.batch.annotations.ScalingTest;
+import com.test.batch.annotations.StackSampling;
+import com.test.batch.annotations.ThreadCountSweep;
 import com.test.batch.annotations.utils.BatchTestUtils;
+import com.test.batch.jdbc.JdbcBudgetChecker;
+import com.test.batch.jdbc.JdbcMetrics;
+import com.test.batch.jdbc.JdbcRecorder;
+import com.test.batch.metrics.BenchmarkResult;
+import com.test.batch.metrics.ConcurrentResult;
+import com.test.batch.metrics.GcUsage;
+import com.test.batch.metrics.JobMetrics;
+import com.test.batch.metrics.JsonWriter;
+import com.test.batch.metrics.MetricsCollector;
+import com.test.batch.metrics.MetricsReport;
+import com.test.batch.metrics.RestartResult;
+import com.test.batch.metrics.ScalingResult;
+import com.test.batch.metrics.StackProfile;
+import com.test.batch.metrics.StackSampler;
+import com.test.batch.metrics.SweepResult;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.springframework.batch.core.*;
@@ -18,12 +40,17 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.util.StringUtils;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 
 /**
  * Batch launcher.
+ * The metrics of each run are logged, written in the test report and available through {@link JobMetrics#current()}.
+ * The job threads are sampled during the run when the test is annotated with {@link StackSampling}.
  * 
  * @author mguennec
  * 
@@ -54,6 +81,13 @@ public class BatchLauncher {
 	 *             if something goes wrong or an assertion fails
 	 */
     public void run(final Method method, final ConfigurableApplicationContext ctxt) throws Exception {
+		JobMetrics.setCurrent(null);
+		BenchmarkResult.setCurrent(null);
+		ScalingResult.setCurrent(null);
+		SweepResult.setCurrent(null);
+		RestartResult.setCurrent(null);
+		StackProfile.setCurrent(null);
+		ConcurrentResult.setCurrent(null);
 		// Gets the job in the Spring context
 		final String batchName = BatchTestUtils.getBatchName(method);
 		if (!StringUtils.hasLength(batchName)) {
@@ -63,13 +97,62 @@ public class BatchLauncher {
 		final Job job = getJob(ctxt, batchName);
 		Assert.assertNotNull("Job not found.", job);
 
-		final String exitCode = run(method, ctxt, job);
+		final String exitCode = launch(method, ctxt, job);
 		final int expectedReturn = BatchTestUtils.getExpectedReturnValue(method);
 		if (BatchTest.DEFAULT != expectedReturn) {
 			Assert.assertEquals("Return code not expected.", expectedReturn, exitCodeMapper.intValue(exitCode));
 		}
 	}
 
+	/**
+	 * Launch a batch test in the mode given by its annotations : benchmark, scaling test, sweep, restart test,
+	 * concurrent launches or single run.
+	 * 
+	 * @param method
+	 *            method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @return return code
+	 * @throws Exception
+	 *             if something goes wrong or an assertion fails
+	 */
+	private String launch(final Method method, final ConfigurableApplicationContext ctxt, final Job job) throws Exception {
+		final BatchBenchmark benchmark = method.getAnnotation(BatchBenchmark.class);
+		if (benchmark != null) {
+			return benchmark(method, ctxt, job, benchmark);
+		}
+		final ScalingTest scaling = method.getAnnotation(ScalingTest.class);
+		if (scaling != null) {
+			return new ScalingLauncher(this).run(method, ctxt, job, scaling);
+		}
+		final PartitionSweep partitionSweep = method.getAnnotation(PartitionSweep.class);
+		if (partitionSweep != null) {
+			final StepTuner tuner = new PartitionTuner(SweepLauncher.getStep(ctxt, job, null, method), partitionSweep);
+			return new SweepLauncher(this).run(method, ctxt, job, tuner, partitionSweep.warmupIterations());
+		}
+		final ChunkSizeSweep chunkSizeSweep = method.getAnnotation(ChunkSizeSweep.class);
+		if (chunkSizeSweep != null) {
+			final StepTuner tuner = new ChunkSizeTuner(SweepLauncher.getStep(ctxt, job, chunkSizeSweep.step(), method), chunkSizeSweep);
+			return new SweepLauncher(this).run(method, ctxt, job, tuner, chunkSizeSweep.warmupIterations());
+		}
+		final ThreadCountSweep threadCountSweep = method.getAnnotation(ThreadCountSweep.class);
+		if (threadCountSweep != null) {
+			final StepTuner tuner = new ThreadCountTuner(SweepLauncher.getStep(ctxt, job, threadCountSweep.step(), method), threadCountSweep);
+			return new SweepLauncher(this).run(method, ctxt, job, tuner, threadCountSweep.warmupIterations());
+		}
+		final RestartTest restart = method.getAnnotation(RestartTest.class);
+		if (restart != null) {
+			return new RestartLauncher(this).run(method, ctxt, job, restart);
+		}
+		final int concurrentLaunches = BatchTestUtils.getConcurrentLaunches(method);
+		if (concurrentLaunches > 1) {
+			return new ConcurrentLauncher(this).run(method, ctxt, job, concurrentLaunches);
+		}
+		return run(method, ctxt, job);
+	}
+
 	/**
 	 * Launch a batch test.
 	 * 
@@ -82,9 +165,26 @@ public class BatchLauncher {
 	 * @return return code
 	 */
 	private String run(final Method method, final ConfigurableApplicationContext ctxt, final Job job) {
+		return run(method, ctxt, job, Collections.<String, String> emptyMap());
+	}
+
+	/**
+	 * Launch a batch test with additional job parameters.
+	 * 
+	 * @param method
+	 *            method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param extraParameters
+	 *            job parameters added to the ones of the method
+	 * @return return code
+	 */
+	String run(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final Map<String, String> extraParameters) {
 		String exitCode;
 		try {
-			final JobExecution jobExecution = runJob(method, ctxt, job);
+			final JobExecution jobExecution = execute(method, ctxt, job, getParameters(method, extraParameters));
 			final BatchStatus expectedStatus = BatchTestUtils.getExpectedStatus(method);
 			if (!BatchStatus.UNKNOWN.equals(expectedStatus)) {
 				Assert.assertEquals("Batch Status not expected.", expectedStatus, jobExecution.getStatus());
@@ -98,6 +198,168 @@ public class BatchLauncher {
 		return exitCode;
 	}
 
+	/**
+	 * Launch a batch test with the given job parameters. The metrics of the run are collected, reported and checked
+	 * against the budgets of the test.
+	 * 
+	 * @param method
+	 *            method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param jobParameters
+	 *            job parameters
+	 * @return job execution
+	 * @throws Exception
+	 *             if something goes wrong or an assertion fails
+	 */
+	JobExecution execute(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final JobParameters jobParameters) throws Exception {
+		final StackSampler sampler = StackSampler.start(method, MetricsCollector.getInstance(ctxt));
+		final JobExecution jobExecution;
+		try {
+			jobExecution = measure(method, ctxt, job, jobParameters);
+		} finally {
+			if (sampler != null) {
+				report(method, sampler.stop());
+			}
+		}
+		final JobMetrics metrics = JobMetrics.current();
+		report(method, metrics);
+		checkBudget(method, metrics);
+		JdbcBudgetChecker.check(method, metrics);
+		return jobExecution;
+	}
+
+	/**
+	 * Launch a batch test with the given job parameters and collects the metrics of the run, available through
+	 * {@link JobMetrics#current()} in the calling thread. The metrics are neither reported nor checked.
+	 * 
+	 * @param method
+	 *            method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param jobParameters
+	 *            job parameters
+	 * @return job execution
+	 * @throws Exception
+	 *             if something goes wrong or an assertion fails
+	 */
+	JobExecution measure(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final JobParameters jobParameters) throws Exception {
+		final MetricsCollector collector = MetricsCollector.getInstance(ctxt);
+		collector.instrument(job);
+		final GcUsage gc = GcUsage.now();
+		final JdbcRecorder recorder = JdbcRecorder.getInstance(ctxt);
+		final JdbcMetrics jdbc = recorder == null ? null : recorder.start();
+		final long start = System.nanoTime();
+		final JobExecution jobExecution;
+		try {
+			jobExecution = runJob(method, ctxt, job, jobParameters);
+		} finally {
+			if (recorder != null) {
+				recorder.stop(jdbc);
+			}
+		}
+		JobMetrics.setCurrent(collector.collect(jobExecution, System.nanoTime() - start, gc.elapsed(), jdbc));
+		return jobExecution;
+	}
+
+	/**
+	 * Benchmarks a batch test : warm-up runs followed by measured runs. Without an explicit expected status, every run
+	 * must complete : a job failing fast would look faster.
+	 * 
+	 * @param method
+	 *            method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param benchmark
+	 *            benchmark configuration
+	 * @return return code of the last run
+	 */
+	private String benchmark(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final BatchBenchmark benchmark) {
+		Assert.assertTrue("At least one measured run is needed.", benchmark.iterations() > 0);
+		final boolean completed = BatchStatus.UNKNOWN.equals(BatchTestUtils.getExpectedStatus(method));
+		String exitCode = null;
+		final List<JobMetrics> runs = new ArrayList<>();
+		for (int i = 0; i < benchmark.warmupIterations() + benchmark.iterations(); i++) {
+			JobMetrics.setCurrent(null);
+			exitCode = run(method, ctxt, job);
+			final JobMetrics metrics = JobMetrics.current();
+			Assert.assertNotNull("Benchmark run " + (i + 1) + " failed.", metrics);
+			if (completed) {
+				Assert.assertEquals("Benchmark run " + (i + 1) + " didn't complete.", BatchStatus.COMPLETED.toString(), metrics.getStatus());
+			}
+			if (i >= benchmark.warmupIterations()) {
+				runs.add(metrics);
+			}
+		}
+		final BenchmarkResult result = new BenchmarkResult(benchmark.warmupIterations(), runs);
+		BenchmarkResult.setCurrent(result);
+		LOGGER.info("Benchmark of " + method.getName() + " : " + result);
+		final JsonWriter json = new JsonWriter();
+		result.write(json);
+		MetricsReport.write(method, "benchmark", json);
+		return exitCode;
+	}
+
+	/**
+	 * Logs the metrics of a batch test and writes them in the test report.
+	 * 
+	 * @param method
+	 *            method
+	 * @param metrics
+	 *            metrics of the run
+	 */
+	private void report(final Method method, final JobMetrics metrics) {
+		LOGGER.info("Metrics of " + method.getName() + " : " + metrics);
+		final JsonWriter json = new JsonWriter();
+		metrics.write(json);
+		MetricsReport.write(method, "metrics", json);
+	}
+
+	/**
+	 * Logs the stack samples of a batch test and writes them in the test report.
+	 * 
+	 * @param method
+	 *            method
+	 * @param profile
+	 *            stack samples of the run
+	 */
+	void report(final Method method, final StackProfile profile) {
+		StackProfile.setCurrent(profile);
+		LOGGER.info("Stack samples of " + method.getName() + " : " + profile);
+		final JsonWriter json = new JsonWriter();
+		profile.write(json);
+		MetricsReport.write(method, "stacks", json);
+	}
+
+	/**
+	 * Checks the allocation and garbage collection budgets of a batch test.
+	 * 
+	 * @param method
+	 *            method
+	 * @param metrics
+	 *            metrics of the run
+	 */
+	private void checkBudget(final Method method, final JobMetrics metrics) {
+		final long maxAllocatedBytes = BatchTestUtils.getMaxAllocatedBytes(method);
+		if (maxAllocatedBytes > 0) {
+			if (metrics.getAllocatedBytes() < 0) {
+				LOGGER.warn("Allocated bytes not measured by this JVM, allocation budget ignored");
+			} else if (metrics.getAllocatedBytes() > maxAllocatedBytes) {
+				Assert.fail("Allocation budget exceeded : " + metrics.getAllocatedBytes() + " bytes allocated, " + maxAllocatedBytes + " expected at most.");
+			}
+		}
+		final long maxGcTime = BatchTestUtils.getMaxGcTime(method);
+		if (maxGcTime > 0 && metrics.getGc().getTime() > maxGcTime) {
+			Assert.fail("GC budget exceeded : " + metrics.getGc().getTime() + "ms in " + metrics.getGc().getCount() + " collection(s), " + maxGcTime + "ms expected at most.");
+		}
+	}
+
 	/**
 	 * Launch a batch test.
 	 * 
@@ -107,14 +369,25 @@ public class BatchLauncher {
 	 *            Spring context
 	 * @param job
 	 *            job to launch
+	 * @param jobParameters
+	 *            job parameters
 	 * @return job execution
 	 * @throws Exception
 	 *             if something goes wrong or an assertion fails
 	 */
-	private JobExecution runJob(final Method method, final ConfigurableApplicationContext ctxt, final Job job) throws Exception {
+	private JobExecution runJob(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final JobParameters jobParameters) throws Exception {
 		final String stepName = BatchTestUtils.getStepName(method);
-		final Map<String, String> jobParameters = BatchTestUtils.getJobParameters(method);
-		return runJob(ctxt, job, stepName, jobParameters);
+		final long timeout = BatchTestUtils.getTimeout(method);
+		if (!BatchTestUtils.isInMemoryRepository(method)) {
+			return runJob(ctxt.getBean(JobLauncher.class), ctxt.getBean(JobRepository.class), job, stepName, jobParameters, timeout);
+		}
+		final InMemoryRepository repository = InMemoryRepository.getInstance(ctxt);
+		repository.attach(job);
+		try {
+			return runJob(repository.getJobLauncher(), repository.getJobRepository(), job, stepName, jobParameters, timeout);
+		} finally {
+			repository.detach();
+		}
 	}
 
 	/**
@@ -132,12 +405,35 @@ public class BatchLauncher {
 	 * @throws Exception
 	 *             if something goes wrong or an assertion fails
 	 */
-	private JobExecution runJob(final ConfigurableApplicationContext ctxt, final Job job, final String stepName, final Map<String, String> jobParameters) throws Exception {
+	private JobExecution runJob(final ConfigurableApplicationContext ctxt, final Job job, final String stepName, final JobParameters jobParameters) throws Exception {
+		return runJob(ctxt.getBean(JobLauncher.class), ctxt.getBean(JobRepository.class), job, stepName, jobParameters, 0);
+	}
+
+	/**
+	 * Launch a batch test.
+	 * 
+	 * @param jobLauncher
+	 *            job launcher
+	 * @param jobRepository
+	 *            job repository
+	 * @param job
+	 *            job to launch
+	 * @param stepName
+	 *            step name (null or empty to execute the whole job)
+	 * @param jobParameters
+	 *            job parameters
+	 * @param timeout
+	 *            maximum duration in milliseconds, 0 to launch the job synchronously without limit
+	 * @return job execution
+	 * @throws Exception
+	 *             if something goes wrong or an assertion fails
+	 */
+	private JobExecution runJob(final JobLauncher jobLauncher, final JobRepository jobRepository, final Job job, final String stepName, final JobParameters jobParams, final long timeout) throws Exception {
 		final JobLauncherTestUtils jobLauncherTestUtils = new JobLauncherTestUtils();
-		final JobParameters jobParams = getParameters(jobLauncherTestUtils, jobParameters);
+		final JobWatcher watcher = timeout > 0 ? new JobWatcher(timeout) : null;
 		jobLauncherTestUtils.setJob(job);
-		jobLauncherTestUtils.setJobLauncher(ctxt.getBean(JobLauncher.class));
-		jobLauncherTestUtils.setJobRepository(ctxt.getBean(JobRepository.class));
+		jobLauncherTestUtils.setJobLauncher(watcher == null ? jobLauncher : watcher.getJobLauncher(jobRepository));
+		jobLauncherTestUtils.setJobRepository(jobRepository);
 
 		// Launching the job or just a step if specified
 		final JobExecution jobExecution;
@@ -146,20 +442,33 @@ public class BatchLauncher {
 		} else {
 			jobExecution = jobLauncherTestUtils.launchStep(stepName, jobParams);
 		}
-		return jobExecution;
+		return watcher == null ? jobExecution : watcher.await(jobExecution);
+	}
+
+	/**
+	 * Creates the unique {@link JobParameters} of a launch of a batch test.
+	 * 
+	 * @param method
+	 *            method
+	 * @param extraParameters
+	 *            job parameters added to the ones of the method
+	 * @return the job parameters
+	 */
+	JobParameters getParameters(final Method method, final Map<String, String> extraParameters) {
+		final Map<String, String> jobParameters = BatchTestUtils.getJobParameters(method);
+		jobParameters.putAll(extraParameters);
+		return getParameters(jobParameters);
 	}
 
 	/**
-	 * Creates a {@link JobParameters} containing the given parameters.
+	 * Creates a {@link JobParameters} containing the given parameters and a unique parameter.
 	 * 
-	 * @param jobLauncherTestUtils
-	 *            utility class to launch batch in tests
 	 * @param jobParameters
 	 *            parameters map
 	 * @return the job parameters
 	 */
-	private JobParameters getParameters(final JobLauncherTestUtils jobLauncherTestUtils, final Map<String, String> jobParameters) {
-		final JobParametersBuilder parameters = new JobParametersBuilder(jobLauncherTestUtils.getUniqueJobParameters());
+	private JobParameters getParameters(final Map<String, String> jobParameters) {
+		final JobParametersBuilder parameters = new JobParametersBuilder(new JobLauncherTestUtils().getUniqueJobParameters());
 		final Properties props = new Properties();
 		for (final Entry<String, String> entry : jobParameters.entrySet()) {
 			props.setProperty(entry.getKey(), entry.getValue());
@@ -187,22 +496,43 @@ public class BatchLauncher {
 	public int run(final String batchName, final String[] contexts, final Map<String, String> params) throws Exception {
 		final ConfigurableApplicationContext ctxt = new ClassPathXmlApplicationContext(contexts);
 		try {
-			final Job job = getJob(ctxt, batchName);
-
-			String exitCode;
-			try {
-				final JobExecution jobExecution = runJob(ctxt, job, null, params);
-				exitCode = jobExecution.getExitStatus().getExitCode();
-			} catch (Throwable e) {
-				exitCode = ExitStatus.FAILED.getExitCode();
-			}
-			return exitCodeMapper.intValue(exitCode);
+			return run(ctxt, batchName, params);
 		} finally {
 			ctxt.close();
 		}
 
 	}
 
+	/**
+	 * Launch a batch in an existing Spring context.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @param batchName
+	 *            batch name
+	 * @param params
+	 *            parameters
+	 * @return batch return code
+	 */
+	public int run(final ConfigurableApplicationContext ctxt, final String batchName, final Map<String, String> params) {
+		final Job job = getJob(ctxt, batchName);
+
+		String exitCode;
+		try {
+			final MetricsCollector collector = MetricsCollector.getInstance(ctxt);
+			collector.instrument(job);
+			final GcUsage gc = GcUsage.now();
+			final long start = System.nanoTime();
+			final JobExecution jobExecution = runJob(ctxt, job, null, getParameters(params));
+			LOGGER.info("Metrics of " + batchName + " : " + collector.collect(jobExecution, System.nanoTime() - start, gc.elapsed()));
+			exitCode = jobExecution.getExitStatus().getExitCode();
+		} catch (Throwable e) {
+			LOGGER.error("Unable to launch " + batchName + " with " + params, e);
+			exitCode = ExitStatus.FAILED.getExitCode();
+		}
+		return exitCodeMapper.intValue(exitCode);
+	}
+
 	/**
 	 * creates un objet {@link Job} from a spring context and a job name.
 	 * 
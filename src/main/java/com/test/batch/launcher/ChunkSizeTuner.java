@@ -0,0 +1,86 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.ChunkSizeSweep;
+import org.junit.Assert;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.repeat.CompletionPolicy;
+import org.springframework.batch.repeat.RepeatOperations;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+import org.springframework.beans.DirectFieldAccessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes the commit interval of a chunk-oriented step : the completion policy of the loop reading the items of a
+ * chunk is replaced.
+ * 
+ * @author mguennec
+ * 
+ */
+class ChunkSizeTuner implements StepTuner {
+
+	/** Commit interval setting. */
+	static final String COMMIT_INTERVAL = "commitInterval";
+
+	/** Completion policy field of the repeat template. */
+	private static final String POLICY_FIELD = "completionPolicy";
+
+	/** Tuned step. */
+	private final String stepName;
+
+	/** Loop reading the items of a chunk. */
+	private final RepeatTemplate chunkOperations;
+
+	/** Original completion policy. */
+	private final CompletionPolicy completionPolicy;
+
+	/** Settings of each run. */
+	private final List<Map<String, Integer>> settings = new ArrayList<>();
+
+	/**
+	 * @param step
+	 *            chunk-oriented step
+	 * @param sweep
+	 *            sweep configuration
+	 */
+	ChunkSizeTuner(final Step step, final ChunkSizeSweep sweep) {
+		stepName = step.getName();
+		final Object chunkProvider = StepInternals.getChunkProvider(step);
+		final RepeatOperations repeatOperations = (RepeatOperations) new DirectFieldAccessor(chunkProvider).getPropertyValue("repeatOperations");
+		Assert.assertTrue("Commit interval of step " + stepName + " can't be changed.", repeatOperations instanceof RepeatTemplate);
+		chunkOperations = (RepeatTemplate) repeatOperations;
+		completionPolicy = (CompletionPolicy) new DirectFieldAccessor(chunkOperations).getPropertyValue(POLICY_FIELD);
+		for (final int size : sweep.sizes()) {
+			settings.add(Collections.singletonMap(COMMIT_INTERVAL, size));
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "chunk-size-sweep";
+	}
+
+	@Override
+	public String getStepName() {
+		return stepName;
+	}
+
+	@Override
+	public List<Map<String, Integer>> getSettings() {
+		return settings;
+	}
+
+	@Override
+	public void apply(final Map<String, Integer> setting) {
+		chunkOperations.setCompletionPolicy(new SimpleCompletionPolicy(setting.get(COMMIT_INTERVAL)));
+	}
+
+	@Override
+	public void restore() {
+		chunkOperations.setCompletionPolicy(completionPolicy);
+	}
+}
@@ -0,0 +1,201 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.BatchTest;
+import com.test.batch.annotations.utils.BatchTestUtils;
+import com.test.batch.metrics.ConcurrentResult;
+import com.test.batch.metrics.JobMetrics;
+import com.test.batch.metrics.JsonWriter;
+import com.test.batch.metrics.MetricsCollector;
+import com.test.batch.metrics.MetricsReport;
+import com.test.batch.metrics.StackSampler;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Launches the job of a batch test several times at once, each launch with its own unique job parameters and the
+ * {@link BatchTest#INSTANCE_PARAMETER} index, against the shared job repository and database. The launches are started
+ * together once all their threads are ready.
+ *
+ * @author mguennec
+ *
+ */
+class ConcurrentLauncher {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(ConcurrentLauncher.class);
+
+	/** Launcher of each run. */
+	private final BatchLauncher launcher;
+
+	/**
+	 * @param launcher
+	 *            launcher of each run
+	 */
+	ConcurrentLauncher(final BatchLauncher launcher) {
+		this.launcher = launcher;
+	}
+
+	/**
+	 * Runs the concurrent launches of a batch test.
+	 *
+	 * @param method
+	 *            test method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param launches
+	 *            number of launches
+	 * @return return code of a failed launch, of the last launch if all completed
+	 * @throws Exception
+	 *             if the launches can't be started
+	 */
+	String run(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final int launches) throws Exception {
+		Assert.assertFalse("Concurrent launches need a persistent job repository.", BatchTestUtils.isInMemoryRepository(method));
+		final CountDownLatch ready = new CountDownLatch(launches);
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(launches, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				return new Thread(r, "batch-launch-" + count.incrementAndGet());
+			}
+		});
+		final List<Launch> results = new ArrayList<>();
+		final long wallTime;
+		try {
+			final List<Future<Launch>> futures = new ArrayList<>();
+			for (int i = 0; i < launches; i++) {
+				final JobParameters jobParameters = launcher.getParameters(method, Collections.singletonMap(BatchTest.INSTANCE_PARAMETER, String.valueOf(i)));
+				futures.add(executor.submit(new Callable<Launch>() {
+					@Override
+					public Launch call() throws InterruptedException {
+						ready.countDown();
+						start.await();
+						return launch(method, ctxt, job, jobParameters);
+					}
+				}));
+			}
+			ready.await();
+			final StackSampler sampler = StackSampler.start(method, MetricsCollector.getInstance(ctxt));
+			final long begin = System.nanoTime();
+			start.countDown();
+			try {
+				for (final Future<Launch> future : futures) {
+					results.add(future.get());
+				}
+				wallTime = System.nanoTime() - begin;
+			} finally {
+				if (sampler != null) {
+					launcher.report(method, sampler.stop());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		final ConcurrentResult result = new ConcurrentResult(launches, wallTime);
+		String exitCode = null;
+		final StringBuilder unexpected = new StringBuilder();
+		final BatchStatus expectedStatus = BatchTestUtils.getExpectedStatus(method);
+		for (int i = 0; i < results.size(); i++) {
+			final Launch launch = results.get(i);
+			result.add(launch.metrics, launch.status == BatchStatus.COMPLETED, launch.failures);
+			if (exitCode == null || launch.status != BatchStatus.COMPLETED) {
+				exitCode = launch.exitCode;
+			}
+			if (!BatchStatus.UNKNOWN.equals(expectedStatus) && expectedStatus != launch.status) {
+				unexpected.append(unexpected.length() == 0 ? "" : ", ").append("launch ").append(i).append(" ").append(launch.status);
+			}
+		}
+		ConcurrentResult.setCurrent(result);
+		LOGGER.info("Concurrent launches of " + method.getName() + " : " + result);
+		final JsonWriter json = new JsonWriter();
+		result.write(json);
+		MetricsReport.write(method, "concurrent", json);
+		if (unexpected.length() > 0) {
+			Assert.fail("Batch Status not expected (" + expectedStatus + ") : " + unexpected + ". " + result);
+		}
+		return exitCode;
+	}
+
+	/**
+	 * Runs one of the launches.
+	 *
+	 * @param method
+	 *            test method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param jobParameters
+	 *            job parameters of the launch
+	 * @return the launch
+	 */
+	private Launch launch(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final JobParameters jobParameters) {
+		try {
+			final JobExecution execution = launcher.measure(method, ctxt, job, jobParameters);
+			return new Launch(JobMetrics.current(), execution.getStatus(), execution.getExitStatus().getExitCode(), execution.getAllFailureExceptions());
+		} catch (Throwable e) {
+			LOGGER.warn("Launch with " + jobParameters + " failed : " + e);
+			LOGGER.debug("Launch failure", e);
+			return new Launch(null, BatchStatus.FAILED, ExitStatus.FAILED.getExitCode(), Collections.singletonList(e));
+		} finally {
+			JobMetrics.setCurrent(null);
+		}
+	}
+
+	/**
+	 * Outcome of a launch.
+	 */
+	private static final class Launch {
+
+		/** Metrics, null if the job couldn't run. */
+		private final JobMetrics metrics;
+
+		/** Final status. */
+		private final BatchStatus status;
+
+		/** Exit code. */
+		private final String exitCode;
+
+		/** Failures. */
+		private final List<Throwable> failures;
+
+		/**
+		 * @param metrics
+		 *            metrics, null if the job couldn't run
+		 * @param status
+		 *            final status
+		 * @param exitCode
+		 *            exit code
+		 * @param failures
+		 *            failures
+		 */
+		private Launch(final JobMetrics metrics, final BatchStatus status, final String exitCode, final List<Throwable> failures) {
+			this.metrics = metrics;
+			this.status = status;
+			this.exitCode = exitCode;
+			this.failures = failures;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.test.batch.launcher;
+
+import org.junit.Assert;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.step.item.ChunkProvider;
+import org.springframework.batch.core.step.item.SimpleChunkProvider;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes a step fail after reading a given number of items. Registered once in each context ; the injector is armed for
+ * one launch and disarmed before the restart.
+ * 
+ * @author mguennec
+ * 
+ */
+class FailureInjector {
+
+	/** Name of the injector in the context. */
+	private static final String BEAN_NAME = "batchTestFailureInjector";
+
+	/** Steps the injector listens to. */
+	private final Set<Step> instrumented = Collections.newSetFromMap(new IdentityHashMap<Step, Boolean>());
+
+	/** Items read by the armed step since the injector was armed. */
+	private final AtomicLong reads = new AtomicLong();
+
+	/** Armed step, null when disarmed. */
+	private volatile Step armed;
+
+	/** Number of the item after which the armed step fails. */
+	private volatile long failAt;
+
+	private FailureInjector() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Gets the injector of a context, creating it if needed.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @return the injector
+	 */
+	static FailureInjector getInstance(final ConfigurableApplicationContext ctxt) {
+		final ConfigurableListableBeanFactory beanFactory = ctxt.getBeanFactory();
+		synchronized (beanFactory) {
+			if (!beanFactory.containsSingleton(BEAN_NAME)) {
+				beanFactory.registerSingleton(BEAN_NAME, new FailureInjector());
+			}
+			return (FailureInjector) beanFactory.getSingleton(BEAN_NAME);
+		}
+	}
+
+	/**
+	 * Makes a step fail after reading an item.
+	 * 
+	 * @param step
+	 *            chunk-oriented step
+	 * @param item
+	 *            number of the item after which the step fails, from 1
+	 */
+	synchronized void arm(final Step step, final long item) {
+		Assert.assertTrue("The failure must be injected after a positive number of items.", item > 0);
+		if (!instrumented.contains(step)) {
+			final ChunkProvider<?> chunkProvider = StepInternals.getChunkProvider(step);
+			Assert.assertTrue("Items of step " + step.getName() + " aren't read by a simple chunk provider.", chunkProvider instanceof SimpleChunkProvider);
+			((SimpleChunkProvider<?>) chunkProvider).registerListener(new ReadCounter(step));
+			instrumented.add(step);
+		}
+		reads.set(0);
+		failAt = item;
+		armed = step;
+	}
+
+	/**
+	 * Disarms the injector.
+	 */
+	synchronized void disarm() {
+		armed = null;
+	}
+
+	/**
+	 * @return items read by the armed step since the injector was last armed
+	 */
+	long getReads() {
+		return reads.get();
+	}
+
+	/**
+	 * Counts the items read by a step and fails when the step is armed and reaches the failing item.
+	 */
+	private final class ReadCounter implements ItemReadListener<Object> {
+
+		/** Listened step. */
+		private final Step step;
+
+		/**
+		 * @param step
+		 *            listened step
+		 */
+		private ReadCounter(final Step step) {
+			this.step = step;
+		}
+
+		@Override
+		public void beforeRead() {
+			// Ne fait rien
+		}
+
+		@Override
+		public void afterRead(final Object item) {
+			if (item != null && armed == step && reads.incrementAndGet() == failAt) {
+				throw new InjectedFailureException("Failure injected after item " + failAt + " of step " + step.getName());
+			}
+		}
+
+		@Override
+		public void onReadError(final Exception ex) {
+			// Ne fait rien
+		}
+	}
+
+	/**
+	 * Failure thrown by the armed step.
+	 */
+	static class InjectedFailureException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param message
+		 *            message
+		 */
+		InjectedFailureException(final String message) {
+			super(message);
+		}
+	}
+}
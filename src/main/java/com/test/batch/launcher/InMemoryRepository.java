@@ -0,0 +1,157 @@
+package com.test.batch.launcher;
+
+import com.test.batch.context.WorkerThread;
+import com.test.batch.database.DatabaseIsolation;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.partition.support.PartitionStep;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.core.step.AbstractStep;
+import org.springframework.batch.core.step.StepLocator;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * In-memory job repository and launcher of a Spring context, used instead of the context ones to avoid the round-trips
+ * to the batch meta data tables.
+ * 
+ * The steps and jobs of the context keep a reference to the context repository : it is replaced by the in-memory one
+ * while the job runs ({@link #attach(Job)}) and put back afterwards ({@link #detach()}).
+ * 
+ * The repository of a worker slot generates its ids from the offset of the slot, like the context repositories (see
+ * {@link DatabaseIsolation}).
+ * 
+ * @author mguennec
+ * 
+ */
+class InMemoryRepository {
+
+	/** Name of the repository in the Spring context. */
+	static final String BEAN_NAME = "batchTestInMemoryRepository";
+
+	/** Name of the repository field of the jobs and steps. */
+	private static final String REPOSITORY_FIELD = "jobRepository";
+
+	/** Spring context. */
+	private final ConfigurableApplicationContext ctxt;
+
+	/** Repository factory, used to clear the repository. */
+	private final MapJobRepositoryFactoryBean factory;
+
+	/** In-memory repository. */
+	private final JobRepository jobRepository;
+
+	/** Launcher using the in-memory repository. */
+	private final SimpleJobLauncher jobLauncher;
+
+	/** Jobs and steps attached to the in-memory repository, with their original repository. */
+	private final Map<Object, Object> attached = new IdentityHashMap<>();
+
+	/**
+	 * @param ctxt
+	 *            Spring context
+	 * @param slot
+	 *            worker slot of the context
+	 * @throws Exception
+	 *             if the repository can't be created
+	 */
+	private InMemoryRepository(final ConfigurableApplicationContext ctxt, final int slot) throws Exception {
+		this.ctxt = ctxt;
+		factory = new MapJobRepositoryFactoryBean(new ResourcelessTransactionManager());
+		factory.afterPropertiesSet();
+		if (slot != WorkerThread.NO_SLOT) {
+			DatabaseIsolation.offsetIds(factory, slot);
+		}
+		jobRepository = (JobRepository) factory.getObject();
+		jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.afterPropertiesSet();
+	}
+
+	/**
+	 * Gets the in-memory repository of a context, creating it if needed. Called by the thread running the test, which
+	 * is the worker of the slot of the context.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @return the repository
+	 * @throws Exception
+	 *             if the repository can't be created
+	 */
+	static InMemoryRepository getInstance(final ConfigurableApplicationContext ctxt) throws Exception {
+		final ConfigurableListableBeanFactory beanFactory = ctxt.getBeanFactory();
+		synchronized (beanFactory) {
+			if (!beanFactory.containsSingleton(BEAN_NAME)) {
+				beanFactory.registerSingleton(BEAN_NAME, new InMemoryRepository(ctxt, WorkerThread.currentSlot()));
+			}
+			return (InMemoryRepository) beanFactory.getSingleton(BEAN_NAME);
+		}
+	}
+
+	JobRepository getJobRepository() {
+		return jobRepository;
+	}
+
+	JobLauncher getJobLauncher() {
+		return jobLauncher;
+	}
+
+	/**
+	 * Makes a job and all the steps of the context use the in-memory repository. The executions of the previous runs
+	 * are forgotten.
+	 * 
+	 * @param job
+	 *            job to launch
+	 */
+	synchronized void attach(final Job job) {
+		factory.clear();
+		replaceRepository(job);
+		if (job instanceof StepLocator) {
+			final StepLocator locator = (StepLocator) job;
+			for (final String stepName : locator.getStepNames()) {
+				replaceRepository(locator.getStep(stepName));
+			}
+		}
+		for (final AbstractStep step : ctxt.getBeansOfType(AbstractStep.class, false, false).values()) {
+			replaceRepository(step);
+		}
+	}
+
+	/**
+	 * Puts the original repositories back.
+	 */
+	synchronized void detach() {
+		for (final Entry<Object, Object> entry : attached.entrySet()) {
+			new DirectFieldAccessor(entry.getKey()).setPropertyValue(REPOSITORY_FIELD, entry.getValue());
+		}
+		attached.clear();
+	}
+
+	/**
+	 * Replaces the repository of a job, a step or a partition splitter.
+	 * 
+	 * @param target
+	 *            job, step or partition splitter
+	 */
+	private void replaceRepository(final Object target) {
+		if (target == null || attached.containsKey(target)) {
+			return;
+		}
+		final DirectFieldAccessor accessor = new DirectFieldAccessor(target);
+		if (accessor.isReadableProperty(REPOSITORY_FIELD)) {
+			attached.put(target, accessor.getPropertyValue(REPOSITORY_FIELD));
+			accessor.setPropertyValue(REPOSITORY_FIELD, jobRepository);
+		}
+		if (target instanceof PartitionStep) {
+			replaceRepository(accessor.getPropertyValue("stepExecutionSplitter"));
+		}
+	}
+}
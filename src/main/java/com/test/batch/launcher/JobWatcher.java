@@ -0,0 +1,165 @@
+package com.test.batch.launcher;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Launches a job asynchronously and watches it : the job execution is polled until the job ends or the timeout expires.
+ * On timeout, the job is asked to stop, then its thread is interrupted if it doesn't, and the test fails with a report of
+ * where the job was stuck.
+ * 
+ * @author mguennec
+ * 
+ */
+class JobWatcher implements TaskExecutor {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(JobWatcher.class);
+
+	/** Interval between two polls of the job execution, in milliseconds. */
+	private static final long POLL_INTERVAL = 100;
+
+	/** Time given to the job to stop after the timeout, in milliseconds. */
+	private static final long STOP_GRACE_PERIOD = 5000;
+
+	/** Job thread counter. */
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	/** Timeout in milliseconds. */
+	private final long timeout;
+
+	/** Thread running the job. */
+	private volatile Thread thread;
+
+	/**
+	 * @param timeout
+	 *            timeout in milliseconds
+	 */
+	JobWatcher(final long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @param jobRepository
+	 *            job repository
+	 * @return a launcher starting the job in a watched thread
+	 * @throws Exception
+	 *             if the launcher can't be created
+	 */
+	JobLauncher getJobLauncher(final JobRepository jobRepository) throws Exception {
+		final SimpleJobLauncher jobLauncher = new SimpleJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.setTaskExecutor(this);
+		jobLauncher.afterPropertiesSet();
+		return jobLauncher;
+	}
+
+	@Override
+	public void execute(final Runnable task) {
+		thread = new Thread(task, "batch-job-" + THREADS.incrementAndGet());
+		thread.start();
+	}
+
+	/**
+	 * Waits for the end of a job execution.
+	 * 
+	 * @param jobExecution
+	 *            job execution started by the launcher
+	 * @return the job execution
+	 * @throws InterruptedException
+	 *             if the test thread is interrupted
+	 */
+	JobExecution await(final JobExecution jobExecution) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while (isRunning(jobExecution)) {
+			if (System.nanoTime() - deadline >= 0) {
+				timeout(jobExecution);
+			}
+			Thread.sleep(POLL_INTERVAL);
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Job " + jobExecution.getJobId() + " " + jobExecution.getStatus() + " : " + progress(jobExecution));
+			}
+		}
+		join(0);
+		return jobExecution;
+	}
+
+	/**
+	 * Stops a job which ran out of time and fails the test.
+	 * 
+	 * @param jobExecution
+	 *            job execution
+	 * @throws InterruptedException
+	 *             if the test thread is interrupted
+	 */
+	private void timeout(final JobExecution jobExecution) throws InterruptedException {
+		final StringBuilder report = new StringBuilder("Job timed out after ").append(timeout).append("ms, ").append(progress(jobExecution));
+		final Thread job = thread;
+		if (job != null) {
+			report.append("\nJob thread ").append(job.getName()).append(" (").append(job.getState()).append(") :");
+			for (final StackTraceElement element : job.getStackTrace()) {
+				report.append("\n\tat ").append(element);
+			}
+		}
+		LOGGER.error(report);
+
+		jobExecution.stop();
+		join(STOP_GRACE_PERIOD);
+		if (isRunning(jobExecution) && job != null) {
+			LOGGER.warn("Job " + jobExecution.getJobId() + " didn't stop, interrupting " + job.getName());
+			job.interrupt();
+			join(STOP_GRACE_PERIOD);
+		}
+		Assert.fail(report.toString());
+	}
+
+	/**
+	 * @param jobExecution
+	 *            job execution
+	 * @return true while the job thread runs
+	 */
+	private boolean isRunning(final JobExecution jobExecution) {
+		final Thread job = thread;
+		return jobExecution.isRunning() || (job != null && job.isAlive());
+	}
+
+	/**
+	 * Waits for the job thread.
+	 * 
+	 * @param millis
+	 *            maximum time to wait, 0 to wait forever
+	 * @throws InterruptedException
+	 *             if the test thread is interrupted
+	 */
+	private void join(final long millis) throws InterruptedException {
+		final Thread job = thread;
+		if (job != null) {
+			job.join(millis);
+		}
+	}
+
+	/**
+	 * @param jobExecution
+	 *            job execution
+	 * @return progress of the running steps
+	 */
+	private static String progress(final JobExecution jobExecution) {
+		final StringBuilder sb = new StringBuilder();
+		for (final StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			if (stepExecution.getStatus().isRunning()) {
+				sb.append(sb.length() == 0 ? "" : ", ").append("step ").append(stepExecution.getStepName()).append(" read=").append(stepExecution.getReadCount())
+						.append(" write=").append(stepExecution.getWriteCount()).append(" commit=").append(stepExecution.getCommitCount());
+			}
+		}
+		return sb.length() == 0 ? "no running step" : sb.toString();
+	}
+}
@@ -0,0 +1,95 @@
+package com.test.batch.launcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A job to launch, read from a manifest line :
+ * 
+ * <pre>
+ * jobName context1.xml,context2.xml key1=value1 key2=value2
+ * </pre>
+ * 
+ * @author mguennec
+ * 
+ */
+public class ManifestEntry {
+
+	/** Manifest line number. */
+	private final int line;
+
+	/** Job name. */
+	private final String batchName;
+
+	/** Spring contexts. */
+	private final List<String> contexts;
+
+	/** Job parameters. */
+	private final Map<String, String> params;
+
+	/**
+	 * @param line
+	 *            manifest line number
+	 * @param batchName
+	 *            job name
+	 * @param contexts
+	 *            Spring contexts
+	 * @param params
+	 *            job parameters
+	 */
+	public ManifestEntry(final int line, final String batchName, final List<String> contexts, final Map<String, String> params) {
+		this.line = line;
+		this.batchName = batchName;
+		this.contexts = Collections.unmodifiableList(contexts);
+		this.params = Collections.unmodifiableMap(params);
+	}
+
+	/**
+	 * Parses a manifest line.
+	 * 
+	 * @param line
+	 *            line number
+	 * @param text
+	 *            line content, without comment
+	 * @return the entry
+	 */
+	public static ManifestEntry parse(final int line, final String text) {
+		final String[] tokens = text.trim().split("\\s+");
+		if (tokens.length < 2) {
+			throw new IllegalArgumentException("Line " + line + " : job name and contexts expected");
+		}
+		final Map<String, String> params = new LinkedHashMap<>();
+		for (int i = 2; i < tokens.length; i++) {
+			final int separator = tokens[i].indexOf('=');
+			if (separator <= 0) {
+				throw new IllegalArgumentException("Line " + line + " : key=value expected instead of " + tokens[i]);
+			}
+			params.put(tokens[i].substring(0, separator), tokens[i].substring(separator + 1));
+		}
+		return new ManifestEntry(line, tokens[0], Arrays.asList(tokens[1].split(",")), params);
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public String getBatchName() {
+		return batchName;
+	}
+
+	public List<String> getContexts() {
+		return contexts;
+	}
+
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	@Override
+	public String toString() {
+		return batchName + params + " (line " + line + ")";
+	}
+}
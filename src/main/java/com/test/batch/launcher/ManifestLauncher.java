@@ -0,0 +1,217 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.BatchTest;
+import org.apache.log4j.Logger;
+import org.springframework.batch.core.launch.support.ExitCodeMapper;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.core.io.FileSystemResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launches the jobs listed in a manifest file, one job per line ({@link ManifestEntry}), '#' starting a comment.
+ * 
+ * Jobs are grouped by Spring contexts : each context is started once and its jobs are launched one after the other, or
+ * concurrently up to the configured limit. The jobs of a context are launched in manifest order. Each job gets its
+ * manifest line as {@link BatchTest#INSTANCE_PARAMETER}, so identical entries are distinct job instances.
+ * 
+ * @author mguennec
+ * 
+ */
+public class ManifestLauncher {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(ManifestLauncher.class);
+
+	/** Launcher of each job. */
+	private final BatchLauncher launcher;
+
+	/** Maximum number of jobs running at the same time in a context. */
+	private int concurrency = 1;
+
+	public ManifestLauncher() {
+		this(new BatchLauncher());
+	}
+
+	/**
+	 * @param launcher
+	 *            launcher of each job
+	 */
+	public ManifestLauncher(final BatchLauncher launcher) {
+		this.launcher = launcher;
+	}
+
+	/**
+	 * Launches the jobs of a manifest : <code>ManifestLauncher manifest [concurrency]</code>. The JVM exits with the
+	 * highest return code of the jobs.
+	 * 
+	 * @param args
+	 *            manifest path and optional concurrency
+	 * @throws IOException
+	 *             if the manifest can't be read
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length == 0 || args.length > 2) {
+			System.err.println("Usage : " + ManifestLauncher.class.getName() + " manifest [concurrency]");
+			System.exit(ExitCodeMapper.JVM_EXITCODE_GENERIC_ERROR);
+		}
+		final ManifestLauncher manifestLauncher = new ManifestLauncher();
+		if (args.length == 2) {
+			manifestLauncher.setConcurrency(Integer.parseInt(args[1]));
+		}
+		final ManifestResult result = manifestLauncher.run(args[0]);
+		System.out.println(result);
+		System.exit(result.getExitCode());
+	}
+
+	/**
+	 * Launches the jobs of a manifest.
+	 * 
+	 * @param manifest
+	 *            manifest path (file system path, or classpath: / file: / URL resource)
+	 * @return return codes of the jobs
+	 * @throws IOException
+	 *             if the manifest can't be read
+	 */
+	public ManifestResult run(final String manifest) throws IOException {
+		try (Reader reader = new InputStreamReader(new FileSystemResourceLoader().getResource(manifest).getInputStream(), StandardCharsets.UTF_8)) {
+			return run(read(reader));
+		}
+	}
+
+	/**
+	 * Launches jobs, grouped by context.
+	 * 
+	 * @param entries
+	 *            jobs to launch
+	 * @return return codes of the jobs
+	 */
+	public ManifestResult run(final List<ManifestEntry> entries) {
+		final Map<List<String>, List<ManifestEntry>> groups = new LinkedHashMap<>();
+		for (final ManifestEntry entry : entries) {
+			List<ManifestEntry> group = groups.get(entry.getContexts());
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(entry.getContexts(), group);
+			}
+			group.add(entry);
+		}
+		final ManifestResult result = new ManifestResult(entries);
+		for (final Map.Entry<List<String>, List<ManifestEntry>> group : groups.entrySet()) {
+			run(group.getKey(), group.getValue(), result);
+		}
+		LOGGER.info(result);
+		return result;
+	}
+
+	/**
+	 * Launches the jobs of a context.
+	 * 
+	 * @param contexts
+	 *            Spring contexts
+	 * @param entries
+	 *            jobs to launch
+	 * @param result
+	 *            return codes of the jobs
+	 */
+	private void run(final List<String> contexts, final List<ManifestEntry> entries, final ManifestResult result) {
+		final ConfigurableApplicationContext ctxt;
+		try {
+			ctxt = new ClassPathXmlApplicationContext(contexts.toArray(new String[contexts.size()]));
+		} catch (RuntimeException e) {
+			LOGGER.error("Unable to start context " + contexts, e);
+			for (final ManifestEntry entry : entries) {
+				result.add(entry, ExitCodeMapper.JVM_EXITCODE_GENERIC_ERROR);
+			}
+			return;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, entries.size()));
+		try {
+			for (final ManifestEntry entry : entries) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						result.add(entry, launch(ctxt, entry));
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			ctxt.close();
+		}
+	}
+
+	/**
+	 * Launches a job, with the manifest line of the entry as {@link BatchTest#INSTANCE_PARAMETER}.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @param entry
+	 *            job to launch
+	 * @return return code
+	 */
+	private int launch(final ConfigurableApplicationContext ctxt, final ManifestEntry entry) {
+		LOGGER.info("Launching " + entry);
+		try {
+			// The unique parameter is a timestamp : identical entries launched in the same millisecond need their own
+			final Map<String, String> params = new LinkedHashMap<>(entry.getParams());
+			params.put(BatchTest.INSTANCE_PARAMETER, String.valueOf(entry.getLine()));
+			return launcher.run(ctxt, entry.getBatchName(), params);
+		} catch (RuntimeException | AssertionError e) {
+			LOGGER.error("Unable to launch " + entry, e);
+			return ExitCodeMapper.JVM_EXITCODE_GENERIC_ERROR;
+		}
+	}
+
+	/**
+	 * Reads the entries of a manifest.
+	 * 
+	 * @param reader
+	 *            manifest content
+	 * @return the entries
+	 * @throws IOException
+	 *             if the manifest can't be read
+	 */
+	public static List<ManifestEntry> read(final Reader reader) throws IOException {
+		final List<ManifestEntry> entries = new ArrayList<>();
+		final BufferedReader in = new BufferedReader(reader);
+		int number = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			number++;
+			final int comment = line.indexOf('#');
+			final String text = comment < 0 ? line : line.substring(0, comment);
+			if (!text.trim().isEmpty()) {
+				entries.add(ManifestEntry.parse(number, text));
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @param concurrency
+	 *            maximum number of jobs running at the same time in a context
+	 */
+	public void setConcurrency(final int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be positive : " + concurrency);
+		}
+		this.concurrency = concurrency;
+	}
+}
@@ -0,0 +1,88 @@
+package com.test.batch.launcher;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Return codes of the jobs of a manifest.
+ * 
+ * @author mguennec
+ * 
+ */
+public class ManifestResult {
+
+	/** Return code of each job, in manifest order, null until the job returns. */
+	private final Map<ManifestEntry, Integer> exitCodes = new LinkedHashMap<>();
+
+	/**
+	 * @param entries
+	 *            manifest entries, in manifest order
+	 */
+	ManifestResult(final List<ManifestEntry> entries) {
+		for (final ManifestEntry entry : entries) {
+			exitCodes.put(entry, null);
+		}
+	}
+
+	/**
+	 * @param entry
+	 *            manifest entry
+	 * @param exitCode
+	 *            return code of the job
+	 */
+	synchronized void add(final ManifestEntry entry, final int exitCode) {
+		// Keeps the manifest order of the entry
+		exitCodes.put(entry, exitCode);
+	}
+
+	/**
+	 * @return return code of each job which returned, in manifest order
+	 */
+	public synchronized Map<ManifestEntry, Integer> getExitCodes() {
+		final Map<ManifestEntry, Integer> returned = new LinkedHashMap<>();
+		for (final Entry<ManifestEntry, Integer> entry : exitCodes.entrySet()) {
+			if (entry.getValue() != null) {
+				returned.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return Collections.unmodifiableMap(returned);
+	}
+
+	/**
+	 * @return highest return code of the jobs, 0 if they all succeeded
+	 */
+	public synchronized int getExitCode() {
+		int max = 0;
+		for (final Integer exitCode : getExitCodes().values()) {
+			max = Math.max(max, exitCode);
+		}
+		return max;
+	}
+
+	/**
+	 * @return number of jobs which didn't return 0
+	 */
+	public synchronized int getFailureCount() {
+		int count = 0;
+		for (final Integer exitCode : getExitCodes().values()) {
+			if (exitCode != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public synchronized String toString() {
+		final StringBuilder sb = new StringBuilder();
+		final Map<ManifestEntry, Integer> returned = getExitCodes();
+		sb.append(returned.size()).append(" job(s), ").append(getFailureCount()).append(" failure(s), return code ").append(getExitCode());
+		for (final Entry<ManifestEntry, Integer> entry : returned.entrySet()) {
+			sb.append("\n  ").append(entry.getValue()).append(" : ").append(entry.getKey());
+		}
+		return sb.toString();
+	}
+}
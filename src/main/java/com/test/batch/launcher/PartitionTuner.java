@@ -0,0 +1,135 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.PartitionSweep;
+import org.junit.Assert;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.support.PartitionStep;
+import org.springframework.batch.core.partition.support.TaskExecutorPartitionHandler;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes the grid size and the thread count of a partitioned step.
+ * 
+ * @author mguennec
+ * 
+ */
+class PartitionTuner implements StepTuner {
+
+	/** Grid size setting. */
+	static final String GRID_SIZE = "gridSize";
+
+	/** Thread count setting. */
+	static final String THREADS = "threads";
+
+	/** Partition handler field of the step. */
+	private static final String HANDLER_FIELD = "partitionHandler";
+
+	/** Tuned step. */
+	private final String stepName;
+
+	/** Partition handler of the step. */
+	private final TaskExecutorPartitionHandler handler;
+
+	/** Settings of each run. */
+	private final List<Map<String, Integer>> settings = new ArrayList<>();
+
+	/** Original grid size. */
+	private final int gridSize;
+
+	/** Original task executor. */
+	private final TaskExecutor taskExecutor;
+
+	/** Task executor of the current run. */
+	private ThreadPoolTaskExecutor runExecutor;
+
+	/**
+	 * @param step
+	 *            partitioned step
+	 * @param sweep
+	 *            sweep configuration
+	 */
+	PartitionTuner(final Step step, final PartitionSweep sweep) {
+		stepName = step.getName();
+		Assert.assertTrue("Step " + stepName + " is not partitioned.", step instanceof PartitionStep);
+		final PartitionHandler partitionHandler = (PartitionHandler) new DirectFieldAccessor(step).getPropertyValue(HANDLER_FIELD);
+		Assert.assertTrue("Partition handler of step " + stepName + " doesn't use a task executor.", partitionHandler instanceof TaskExecutorPartitionHandler);
+		handler = (TaskExecutorPartitionHandler) partitionHandler;
+		final DirectFieldAccessor accessor = new DirectFieldAccessor(handler);
+		gridSize = (Integer) accessor.getPropertyValue(GRID_SIZE);
+		taskExecutor = (TaskExecutor) accessor.getPropertyValue("taskExecutor");
+		for (final int grid : sweep.gridSizes()) {
+			if (sweep.threads().length == 0) {
+				settings.add(setting(grid, grid));
+			}
+			for (final int threads : sweep.threads()) {
+				settings.add(setting(grid, threads));
+			}
+		}
+	}
+
+	/**
+	 * @param grid
+	 *            grid size
+	 * @param threads
+	 *            thread count
+	 * @return the settings
+	 */
+	private static Map<String, Integer> setting(final int grid, final int threads) {
+		final Map<String, Integer> setting = new LinkedHashMap<>();
+		setting.put(GRID_SIZE, grid);
+		setting.put(THREADS, threads);
+		return setting;
+	}
+
+	@Override
+	public String getName() {
+		return "partition-sweep";
+	}
+
+	@Override
+	public String getStepName() {
+		return stepName;
+	}
+
+	@Override
+	public List<Map<String, Integer>> getSettings() {
+		return settings;
+	}
+
+	@Override
+	public void apply(final Map<String, Integer> setting) {
+		shutdown();
+		runExecutor = new ThreadPoolTaskExecutor();
+		runExecutor.setCorePoolSize(setting.get(THREADS));
+		runExecutor.setMaxPoolSize(setting.get(THREADS));
+		runExecutor.setThreadNamePrefix("partition-sweep-");
+		runExecutor.initialize();
+		handler.setGridSize(setting.get(GRID_SIZE));
+		handler.setTaskExecutor(runExecutor);
+	}
+
+	@Override
+	public void restore() {
+		handler.setGridSize(gridSize);
+		handler.setTaskExecutor(taskExecutor);
+		shutdown();
+	}
+
+	/**
+	 * Stops the task executor of the current run.
+	 */
+	private void shutdown() {
+		if (runExecutor != null) {
+			runExecutor.shutdown();
+			runExecutor = null;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.RestartTest;
+import com.test.batch.annotations.utils.BatchTestUtils;
+import com.test.batch.metrics.JobMetrics;
+import com.test.batch.metrics.JsonWriter;
+import com.test.batch.metrics.MetricsReport;
+import com.test.batch.metrics.RestartResult;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * Launches a batch test failing after a given item, then restarts it with the same job parameters.
+ * 
+ * @author mguennec
+ * 
+ */
+class RestartLauncher {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(RestartLauncher.class);
+
+	/** Launcher of each run. */
+	private final BatchLauncher launcher;
+
+	/**
+	 * @param launcher
+	 *            launcher of each run
+	 */
+	RestartLauncher(final BatchLauncher launcher) {
+		this.launcher = launcher;
+	}
+
+	/**
+	 * Runs a restart test.
+	 * 
+	 * @param method
+	 *            test method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param restart
+	 *            restart test configuration
+	 * @return return code of the restart
+	 * @throws Exception
+	 *             if a launch is impossible
+	 */
+	String run(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final RestartTest restart) throws Exception {
+		Assert.assertFalse("Restart tests need a persistent job repository.", BatchTestUtils.isInMemoryRepository(method));
+		final Step step = SweepLauncher.getStep(ctxt, job, restart.step(), method);
+		JobMetrics reference = null;
+		if (restart.referenceRun()) {
+			final JobExecution execution = launcher.execute(method, ctxt, job, launcher.getParameters(method, Collections.<String, String> emptyMap()));
+			Assert.assertEquals("Reference run not completed.", BatchStatus.COMPLETED, execution.getStatus());
+			reference = JobMetrics.current();
+		}
+
+		final JobParameters jobParameters = launcher.getParameters(method, Collections.<String, String> emptyMap());
+		final FailureInjector injector = FailureInjector.getInstance(ctxt);
+		injector.arm(step, restart.failAt());
+		JobExecution execution;
+		try {
+			execution = launcher.execute(method, ctxt, job, jobParameters);
+		} finally {
+			injector.disarm();
+		}
+		final long readBeforeFailure = injector.getReads();
+		Assert.assertEquals("Injected failure after item " + restart.failAt() + " didn't fail the job, " + readBeforeFailure + " item(s) read.", BatchStatus.FAILED,
+				execution.getStatus());
+		final JobMetrics failed = JobMetrics.current();
+
+		execution = launcher.execute(method, ctxt, job, jobParameters);
+		Assert.assertEquals("Restart not completed.", BatchStatus.COMPLETED, execution.getStatus());
+		final RestartResult result = new RestartResult(step.getName(), readBeforeFailure, reference, failed, JobMetrics.current());
+		RestartResult.setCurrent(result);
+		LOGGER.info("Restart of " + method.getName() + " : " + result);
+		final JsonWriter json = new JsonWriter();
+		result.write(json);
+		MetricsReport.write(method, "restart", json);
+		return execution.getExitStatus().getExitCode();
+	}
+}
@@ -0,0 +1,106 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.ScalingTest;
+import com.test.batch.input.InputGenerator;
+import com.test.batch.metrics.JobMetrics;
+import com.test.batch.metrics.JsonWriter;
+import com.test.batch.metrics.MetricsReport;
+import com.test.batch.metrics.ScalingResult;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.batch.core.Job;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Launches a batch test for several input sizes and checks how its duration grows.
+ * 
+ * @author mguennec
+ * 
+ */
+class ScalingLauncher {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(ScalingLauncher.class);
+
+	/** Launcher of each run. */
+	private final BatchLauncher launcher;
+
+	/**
+	 * @param launcher
+	 *            launcher of each run
+	 */
+	ScalingLauncher(final BatchLauncher launcher) {
+		this.launcher = launcher;
+	}
+
+	/**
+	 * Runs a scaling test.
+	 * 
+	 * @param method
+	 *            test method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param scaling
+	 *            scaling test configuration
+	 * @return return code of the last run
+	 * @throws Exception
+	 *             if the input can't be generated
+	 */
+	String run(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final ScalingTest scaling) throws Exception {
+		Assert.assertTrue("At least two sizes are needed.", scaling.sizes().length >= 2);
+		final InputGenerator generator = BeanUtils.instantiateClass(scaling.generator());
+		ctxt.getAutowireCapableBeanFactory().autowireBeanProperties(generator, AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, false);
+		final long[] sizes = scaling.sizes().clone();
+		Arrays.sort(sizes);
+
+		String exitCode = null;
+		for (int i = 0; i < scaling.warmupIterations(); i++) {
+			exitCode = launch(method, ctxt, job, generator, sizes[0]);
+		}
+		final ScalingResult result = new ScalingResult();
+		for (final long size : sizes) {
+			exitCode = launch(method, ctxt, job, generator, size);
+			result.add(size, JobMetrics.current());
+		}
+		ScalingResult.setCurrent(result);
+		LOGGER.info("Scaling of " + method.getName() + " : " + result);
+		final JsonWriter json = new JsonWriter();
+		result.write(json);
+		MetricsReport.write(method, "scaling", json);
+
+		Assert.assertTrue(String.format("Duration grows as size^%.2f, more than size^%.2f : %s", result.getExponent(), scaling.maxExponent(), result),
+				result.getExponent() <= scaling.maxExponent());
+		return exitCode;
+	}
+
+	/**
+	 * Generates input and launches the job.
+	 * 
+	 * @param method
+	 *            test method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param generator
+	 *            input generator
+	 * @param size
+	 *            input size
+	 * @return return code
+	 * @throws Exception
+	 *             if the input can't be generated
+	 */
+	private String launch(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final InputGenerator generator, final long size) throws Exception {
+		JobMetrics.setCurrent(null);
+		final String exitCode = launcher.run(method, ctxt, job, generator.generate(size));
+		Assert.assertNotNull("Run with size " + size + " failed.", JobMetrics.current());
+		return exitCode;
+	}
+}
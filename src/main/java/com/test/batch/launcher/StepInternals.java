@@ -0,0 +1,42 @@
+package com.test.batch.launcher;
+
+import org.junit.Assert;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.step.item.ChunkOrientedTasklet;
+import org.springframework.batch.core.step.item.ChunkProvider;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.DirectFieldAccessor;
+
+/**
+ * Access to the parts of a step which aren't exposed once it is built.
+ * 
+ * @author mguennec
+ * 
+ */
+final class StepInternals {
+
+	private StepInternals() {
+		// Ne fait rien
+	}
+
+	/**
+	 * @param step
+	 *            a step
+	 * @return the tasklet step
+	 */
+	static TaskletStep getTaskletStep(final Step step) {
+		Assert.assertTrue("Step " + step.getName() + " is not a tasklet step.", step instanceof TaskletStep);
+		return (TaskletStep) step;
+	}
+
+	/**
+	 * @param step
+	 *            a chunk-oriented step
+	 * @return the provider reading the items of each chunk of the step
+	 */
+	static ChunkProvider<?> getChunkProvider(final Step step) {
+		final Object tasklet = new DirectFieldAccessor(getTaskletStep(step)).getPropertyValue("tasklet");
+		Assert.assertTrue("Step " + step.getName() + " is not chunk-oriented.", tasklet instanceof ChunkOrientedTasklet);
+		return (ChunkProvider<?>) new DirectFieldAccessor(tasklet).getPropertyValue("chunkProvider");
+	}
+}
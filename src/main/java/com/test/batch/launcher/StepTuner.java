@@ -0,0 +1,43 @@
+package com.test.batch.launcher;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes the settings of a step between the runs of a sweep.
+ * 
+ * @author mguennec
+ * 
+ */
+interface StepTuner {
+
+	/**
+	 * @return report kind of the sweep
+	 */
+	String getName();
+
+	/**
+	 * @return name of the tuned step
+	 */
+	String getStepName();
+
+	/**
+	 * @return settings of each run, by name
+	 */
+	List<Map<String, Integer>> getSettings();
+
+	/**
+	 * Applies the settings of a run to the step.
+	 * 
+	 * @param settings
+	 *            settings of the run
+	 * @throws Exception
+	 *             if the step can't be changed
+	 */
+	void apply(Map<String, Integer> settings) throws Exception;
+
+	/**
+	 * Gives the step back its original settings.
+	 */
+	void restore();
+}
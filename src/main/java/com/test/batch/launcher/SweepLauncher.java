@@ -0,0 +1,106 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.utils.BatchTestUtils;
+import com.test.batch.metrics.JobMetrics;
+import com.test.batch.metrics.JsonWriter;
+import com.test.batch.metrics.MetricsReport;
+import com.test.batch.metrics.SweepResult;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.step.StepLocator;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Launches the step of a batch test once for each setting of a {@link StepTuner} and reports the throughput of each
+ * run.
+ * 
+ * @author mguennec
+ * 
+ */
+class SweepLauncher {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(SweepLauncher.class);
+
+	/** Launcher of each run. */
+	private final BatchLauncher launcher;
+
+	/**
+	 * @param launcher
+	 *            launcher of each run
+	 */
+	SweepLauncher(final BatchLauncher launcher) {
+		this.launcher = launcher;
+	}
+
+	/**
+	 * Gets a step of a batch test.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param stepName
+	 *            step name, the step of the test when empty
+	 * @param method
+	 *            test method
+	 * @return the step
+	 */
+	static Step getStep(final ConfigurableApplicationContext ctxt, final Job job, final String stepName, final Method method) {
+		final String name = StringUtils.hasLength(stepName) ? stepName : BatchTestUtils.getStepName(method);
+		Assert.assertTrue("Step name must be specified.", StringUtils.hasLength(name));
+		if (job instanceof StepLocator && ((StepLocator) job).getStepNames().contains(name)) {
+			return ((StepLocator) job).getStep(name);
+		}
+		return ctxt.getBean(name, Step.class);
+	}
+
+	/**
+	 * Runs a sweep.
+	 * 
+	 * @param method
+	 *            test method
+	 * @param ctxt
+	 *            Spring context
+	 * @param job
+	 *            job
+	 * @param tuner
+	 *            settings of the step
+	 * @param warmupIterations
+	 *            number of runs of each setting before measuring
+	 * @return return code of the last run
+	 * @throws Exception
+	 *             if the step can't be changed
+	 */
+	String run(final Method method, final ConfigurableApplicationContext ctxt, final Job job, final StepTuner tuner, final int warmupIterations) throws Exception {
+		Assert.assertFalse("At least one setting is needed.", tuner.getSettings().isEmpty());
+		final SweepResult result = new SweepResult(tuner.getStepName());
+		String exitCode = null;
+		try {
+			for (final Map<String, Integer> settings : tuner.getSettings()) {
+				tuner.apply(settings);
+				for (int i = 0; i <= warmupIterations; i++) {
+					JobMetrics.setCurrent(null);
+					exitCode = launcher.run(method, ctxt, job, Collections.<String, String> emptyMap());
+					Assert.assertNotNull("Run with " + settings + " failed.", JobMetrics.current());
+				}
+				result.add(settings, JobMetrics.current());
+			}
+		} finally {
+			tuner.restore();
+		}
+		SweepResult.setCurrent(result);
+		LOGGER.info("Sweep of " + method.getName() + " : " + result);
+		final JsonWriter json = new JsonWriter();
+		result.write(json);
+		MetricsReport.write(method, tuner.getName(), json);
+		return exitCode;
+	}
+}
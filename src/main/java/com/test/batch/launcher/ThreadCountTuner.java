@@ -0,0 +1,165 @@
+package com.test.batch.launcher;
+
+import com.test.batch.annotations.ThreadCountSweep;
+import com.test.batch.metrics.SweepResult;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.repeat.RepeatOperations;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+import org.springframework.batch.repeat.support.TaskExecutorRepeatTemplate;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes the thread count of a chunk-oriented step : the loop running the chunks of the step is replaced by a
+ * {@link TaskExecutorRepeatTemplate} with a task executor and a throttle limit of that many threads. Thread contention
+ * monitoring is enabled during the sweep, so the time the chunks spend blocked is measured.
+ * 
+ * @author mguennec
+ * 
+ */
+class ThreadCountTuner implements StepTuner {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(ThreadCountTuner.class);
+
+	/** Fields of the repeat template copied to the multi-threaded one. */
+	private static final String[] TEMPLATE_FIELDS = { "completionPolicy", "exceptionHandler", "listeners" };
+
+	/** Thread MXBean. */
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/** Tuned step. */
+	private final TaskletStep step;
+
+	/** Original loop running the chunks. */
+	private final RepeatOperations stepOperations;
+
+	/** Settings of each run. */
+	private final List<Map<String, Integer>> settings = new ArrayList<>();
+
+	/** Contention monitoring state before the sweep. */
+	private final boolean contentionMonitoring;
+
+	/** Task executor of the current run. */
+	private ThreadPoolTaskExecutor runExecutor;
+
+	/**
+	 * @param step
+	 *            chunk-oriented step
+	 * @param sweep
+	 *            sweep configuration
+	 */
+	ThreadCountTuner(final Step step, final ThreadCountSweep sweep) {
+		Assert.assertTrue("Highest thread count must be positive.", sweep.maxThreads() > 0);
+		this.step = StepInternals.getTaskletStep(step);
+		stepOperations = (RepeatOperations) new DirectFieldAccessor(this.step).getPropertyValue("stepOperations");
+		contentionMonitoring = THREADS.isThreadContentionMonitoringSupported() && THREADS.isThreadContentionMonitoringEnabled();
+		for (int threads = 1; threads < sweep.maxThreads(); threads *= 2) {
+			settings.add(Collections.singletonMap(SweepResult.THREADS, threads));
+		}
+		settings.add(Collections.singletonMap(SweepResult.THREADS, sweep.maxThreads()));
+		final Object chunkProvider = StepInternals.getChunkProvider(step);
+		final Object tasklet = new DirectFieldAccessor(step).getPropertyValue("tasklet");
+		final Object chunkProcessor = new DirectFieldAccessor(tasklet).getPropertyValue("chunkProcessor");
+		checkSynchronized(new DirectFieldAccessor(chunkProvider).getPropertyValue("itemReader"), "read");
+		checkSynchronized(new DirectFieldAccessor(chunkProcessor).getPropertyValue("itemWriter"), "write", List.class);
+	}
+
+	/**
+	 * Warns if a reader or writer of the step serializes its callers.
+	 * 
+	 * @param item
+	 *            reader or writer
+	 * @param methodName
+	 *            name of the method called by each thread
+	 * @param parameterTypes
+	 *            parameter types of the method
+	 */
+	private void checkSynchronized(final Object item, final String methodName, final Class<?>... parameterTypes) {
+		if (item == null) {
+			return;
+		}
+		// Step scoped readers and writers are proxies
+		final Class<?> itemClass = AopUtils.getTargetClass(item);
+		try {
+			final Method method = itemClass.getMethod(methodName, parameterTypes);
+			if (Modifier.isSynchronized(method.getModifiers())) {
+				LOGGER.warn(itemClass.getName() + "." + methodName + "() of step " + step.getName() + " is synchronized : its threads take turns");
+			}
+		} catch (final NoSuchMethodException e) {
+			// Ne fait rien
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "thread-count-sweep";
+	}
+
+	@Override
+	public String getStepName() {
+		return step.getName();
+	}
+
+	@Override
+	public List<Map<String, Integer>> getSettings() {
+		return settings;
+	}
+
+	@Override
+	public void apply(final Map<String, Integer> setting) {
+		shutdown();
+		final int threads = setting.get(SweepResult.THREADS);
+		runExecutor = new ThreadPoolTaskExecutor();
+		runExecutor.setCorePoolSize(threads);
+		runExecutor.setMaxPoolSize(threads);
+		runExecutor.setThreadNamePrefix("thread-sweep-");
+		runExecutor.initialize();
+		final TaskExecutorRepeatTemplate template = new TaskExecutorRepeatTemplate();
+		if (stepOperations instanceof RepeatTemplate) {
+			final DirectFieldAccessor source = new DirectFieldAccessor(stepOperations);
+			final DirectFieldAccessor target = new DirectFieldAccessor(template);
+			for (final String field : TEMPLATE_FIELDS) {
+				target.setPropertyValue(field, source.getPropertyValue(field));
+			}
+		}
+		template.setTaskExecutor(runExecutor);
+		template.setThrottleLimit(threads);
+		step.setStepOperations(template);
+		if (THREADS.isThreadContentionMonitoringSupported()) {
+			THREADS.setThreadContentionMonitoringEnabled(true);
+		}
+	}
+
+	@Override
+	public void restore() {
+		step.setStepOperations(stepOperations);
+		shutdown();
+		if (THREADS.isThreadContentionMonitoringSupported()) {
+			THREADS.setThreadContentionMonitoringEnabled(contentionMonitoring);
+		}
+	}
+
+	/**
+	 * Stops the task executor of the current run.
+	 */
+	private void shutdown() {
+		if (runExecutor != null) {
+			runExecutor.shutdown();
+			runExecutor = null;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package com.test.batch.metrics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Performance metrics of a batch test, by name, stored as a properties file sorted by name so that a new baseline can be
+ * reviewed as a diff. Throughputs ({@value #ITEMS_PER_SECOND} metrics) are better when higher, the other metrics
+ * (durations, allocation) when lower. Chunk duration percentiles are only kept for benchmarks : the percentiles of a
+ * single run are too noisy to be compared.
+ *
+ * @author mguennec
+ *
+ */
+public class Baseline {
+
+	/** Suffix of the throughput metrics. */
+	public static final String ITEMS_PER_SECOND = "itemsPerSecond";
+
+	/** Prefix of the chunk duration percentile metrics of a step. */
+	public static final String CHUNK_PERCENTILE = "chunkP";
+
+	/** Metric values, by name. */
+	private final Map<String, Double> values = new TreeMap<>();
+
+	/** True if the chunk duration percentiles are measured. */
+	private boolean percentiles;
+
+	/**
+	 * @param metrics
+	 *            metrics of a run
+	 * @return the metrics of the run
+	 */
+	public static Baseline of(final JobMetrics metrics) {
+		final Baseline baseline = new Baseline();
+		baseline.values.put("job.durationMs", (double) metrics.getDuration());
+		baseline.addRun(metrics, false);
+		return baseline;
+	}
+
+	/**
+	 * @param result
+	 *            benchmark result
+	 * @return the median duration and mean throughput of the benchmark, the other metrics of its median run
+	 */
+	public static Baseline of(final BenchmarkResult result) {
+		final List<JobMetrics> runs = new ArrayList<>(result.getRuns());
+		Collections.sort(runs, new Comparator<JobMetrics>() {
+			@Override
+			public int compare(final JobMetrics o1, final JobMetrics o2) {
+				return Long.compare(o1.getDuration(), o2.getDuration());
+			}
+		});
+		final Baseline baseline = new Baseline();
+		baseline.values.put("job.durationMs", (double) result.getDurations().getPercentile(50));
+		baseline.addRun(runs.get(runs.size() / 2), true);
+		baseline.values.put("job." + ITEMS_PER_SECOND, result.getItemsPerSecond());
+		return baseline;
+	}
+
+	/**
+	 * Adds the throughput and allocation of a run and of its steps.
+	 *
+	 * @param metrics
+	 *            metrics of the run
+	 * @param withPercentiles
+	 *            true to add the chunk duration percentiles of the steps
+	 */
+	private void addRun(final JobMetrics metrics, final boolean withPercentiles) {
+		percentiles = withPercentiles;
+		values.put("job." + ITEMS_PER_SECOND, metrics.getItemsPerSecond());
+		if (metrics.getAllocatedBytes() >= 0) {
+			values.put("job.allocatedBytes", (double) metrics.getAllocatedBytes());
+		}
+		for (final StepMetrics step : metrics.getSteps()) {
+			final String prefix = "step." + step.getStepName() + ".";
+			values.put(prefix + ITEMS_PER_SECOND, step.getItemsPerSecond());
+			if (step.getChunks().getCount() > 0) {
+				if (withPercentiles) {
+					values.put(prefix + CHUNK_PERCENTILE + "50Ms", step.getChunkPercentile(50));
+					values.put(prefix + CHUNK_PERCENTILE + "90Ms", step.getChunkPercentile(90));
+					values.put(prefix + CHUNK_PERCENTILE + "99Ms", step.getChunkPercentile(99));
+				}
+				values.put(prefix + "allocatedBytes", (double) step.getAllocatedBytes());
+			}
+		}
+	}
+
+	/**
+	 * @return metric values, by name
+	 */
+	public Map<String, Double> getValues() {
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Compares these metrics with a baseline. Metrics which are null in the baseline (not measured) aren't compared. A
+	 * metric of the baseline missing from these metrics (renamed step...) is a regression, except the chunk duration
+	 * percentiles when these metrics don't have them.
+	 *
+	 * @param reference
+	 *            baseline
+	 * @param tolerance
+	 *            accepted degradation of a metric, relative to the baseline
+	 * @return descriptions of the metrics worse than the baseline by more than the tolerance or missing
+	 */
+	public List<String> compare(final Baseline reference, final double tolerance) {
+		final List<String> regressions = new ArrayList<>();
+		for (final Entry<String, Double> entry : reference.values.entrySet()) {
+			final Double actual = values.get(entry.getKey());
+			final double expected = entry.getValue();
+			if (actual == null) {
+				if (percentiles || !isPercentile(entry.getKey())) {
+					regressions.add(String.format(Locale.ROOT, "%s = %.3f in the baseline is missing from the run", entry.getKey(), expected));
+				}
+				continue;
+			}
+			if (expected <= 0 || !percentiles && isPercentile(entry.getKey())) {
+				continue;
+			}
+			final double change = (actual - expected) / expected;
+			final double degradation = entry.getKey().endsWith(ITEMS_PER_SECOND) ? -change : change;
+			if (degradation > tolerance) {
+				regressions.add(String.format(Locale.ROOT, "%s = %.3f against %.3f in the baseline (%+.1f%%)", entry.getKey(), actual, expected, change * 100));
+			}
+		}
+		return regressions;
+	}
+
+	/**
+	 * @param name
+	 *            metric name
+	 * @return true if the metric is a chunk duration percentile
+	 */
+	private static boolean isPercentile(final String name) {
+		return name.startsWith("step.") && name.contains("." + CHUNK_PERCENTILE);
+	}
+
+	/**
+	 * @param file
+	 *            baseline file
+	 * @return the baseline
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	public static Baseline load(final File file) throws IOException {
+		final Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			properties.load(in);
+		}
+		final Baseline baseline = new Baseline();
+		for (final String name : properties.stringPropertyNames()) {
+			try {
+				baseline.values.put(name, Double.valueOf(properties.getProperty(name)));
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid value of " + name + " in " + file, e);
+			}
+		}
+		return baseline;
+	}
+
+	/**
+	 * Writes the metrics in a baseline file.
+	 *
+	 * @param file
+	 *            baseline file
+	 * @param comment
+	 *            comment written on the first line
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void store(final File file, final String comment) throws IOException {
+		final File dir = file.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create baseline directory " + dir);
+		}
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.ISO_8859_1)) {
+			out.write("# " + comment + "\n");
+			for (final Entry<String, Double> entry : values.entrySet()) {
+				out.write(escape(entry.getKey()) + "=" + String.format(Locale.ROOT, "%.3f", entry.getValue()) + "\n");
+			}
+		}
+	}
+
+	/**
+	 * @param name
+	 *            metric name
+	 * @return the name escaped as a properties key
+	 */
+	private static String escape(final String name) {
+		final StringBuilder sb = new StringBuilder();
+		for (final char c : name.toCharArray()) {
+			if (c == ' ' || c == ':' || c == '=' || c == '#' || c == '!' || c == '\\') {
+				sb.append('\\');
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
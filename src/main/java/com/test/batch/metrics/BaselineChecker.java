@@ -0,0 +1,128 @@
+package com.test.batch.metrics;
+
+import com.test.batch.annotations.PerformanceBaseline;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Compares the metrics of a batch test with its {@link PerformanceBaseline}. Baselines are read from the directory given
+ * by the system property {@value #DIRECTORY_PROPERTY} ({@value #DEFAULT_DIRECTORY} by default) ; they are recorded
+ * instead of compared when the system property {@value #RECORD_PROPERTY} is true, if the job (every run of a benchmark)
+ * completed :
+ *
+ * <pre>
+ * mvn test -Dtest=MyBatchTest -Dbatch.test.baseline.record=true
+ * </pre>
+ *
+ * @author mguennec
+ *
+ */
+public class BaselineChecker {
+
+	/** System property giving the baseline directory. */
+	public static final String DIRECTORY_PROPERTY = "batch.test.baseline.dir";
+
+	/** Default baseline directory. */
+	public static final String DEFAULT_DIRECTORY = "src/test/baselines";
+
+	/** System property switching to the record mode. */
+	public static final String RECORD_PROPERTY = "batch.test.baseline.record";
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(BaselineChecker.class);
+
+	public BaselineChecker() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Compares the metrics of the last run of a test with its baseline, or records them.
+	 *
+	 * @param method
+	 *            test method
+	 * @throws IOException
+	 *             if the baseline can't be read or written
+	 */
+	public void check(final Method method) throws IOException {
+		final PerformanceBaseline annotation = method.getAnnotation(PerformanceBaseline.class);
+		if (annotation == null) {
+			return;
+		}
+		final Baseline actual = getMetrics();
+		Assert.assertNotNull("No metrics to compare with the baseline.", actual);
+		final File file = getFile(method, annotation);
+		final String test = method.getDeclaringClass().getName() + "." + method.getName();
+		if (Boolean.getBoolean(RECORD_PROPERTY)) {
+			final String status = getStatus();
+			Assert.assertTrue("Baseline of " + test + " not recorded : the job ended " + status, BatchStatus.COMPLETED.toString().equals(status));
+			actual.store(file, "Baseline of " + test);
+			LOGGER.info("Baseline of " + method.getName() + " recorded in " + file);
+			return;
+		}
+		if (!file.isFile()) {
+			LOGGER.warn("No baseline for " + test + " in " + file + ", record it with -D" + RECORD_PROPERTY + "=true");
+			return;
+		}
+		final List<String> regressions = actual.compare(Baseline.load(file), annotation.tolerance());
+		if (!regressions.isEmpty()) {
+			final StringBuilder message = new StringBuilder("Performance worse than the baseline ").append(file).append(" by more than ")
+					.append(Math.round(annotation.tolerance() * 100)).append("% :");
+			for (final String regression : regressions) {
+				message.append("\n  ").append(regression);
+			}
+			Assert.fail(message.toString());
+		}
+		LOGGER.info("Metrics of " + method.getName() + " within " + Math.round(annotation.tolerance() * 100) + "% of the baseline " + file);
+	}
+
+	/**
+	 * @return metrics of the last benchmark or run of the current thread, null if there is none
+	 */
+	private static Baseline getMetrics() {
+		final BenchmarkResult benchmark = BenchmarkResult.current();
+		if (benchmark != null) {
+			return Baseline.of(benchmark);
+		}
+		final JobMetrics metrics = JobMetrics.current();
+		return metrics == null ? null : Baseline.of(metrics);
+	}
+
+	/**
+	 * @return status of the last run of the current thread, the first status other than COMPLETED of the runs of the last
+	 *         benchmark
+	 */
+	private static String getStatus() {
+		final BenchmarkResult benchmark = BenchmarkResult.current();
+		if (benchmark != null) {
+			for (final JobMetrics run : benchmark.getRuns()) {
+				if (!BatchStatus.COMPLETED.toString().equals(run.getStatus())) {
+					return run.getStatus();
+				}
+			}
+			return BatchStatus.COMPLETED.toString();
+		}
+		return JobMetrics.current().getStatus();
+	}
+
+	/**
+	 * @param method
+	 *            test method
+	 * @param annotation
+	 *            baseline configuration
+	 * @return baseline file of the test
+	 */
+	private static File getFile(final Method method, final PerformanceBaseline annotation) {
+		if (StringUtils.hasLength(annotation.file())) {
+			return new File(annotation.file());
+		}
+		final File dir = new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+		return new File(dir, method.getDeclaringClass().getName() + "." + method.getName() + ".properties");
+	}
+}
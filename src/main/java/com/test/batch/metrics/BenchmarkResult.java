@@ -0,0 +1,141 @@
+package com.test.batch.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a benchmark : duration and throughput statistics over the measured runs. The result of the last benchmark
+ * run by the current thread is available to the test method through {@link #current()}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class BenchmarkResult {
+
+	/** Result of the last benchmark of the current thread. */
+	private static final ThreadLocal<BenchmarkResult> CURRENT = new ThreadLocal<>();
+
+	/** Number of warm-up runs. */
+	private final int warmupIterations;
+
+	/** Metrics of the measured runs. */
+	private final List<JobMetrics> runs;
+
+	/** Run durations in milliseconds. */
+	private final Statistics durations;
+
+	/**
+	 * @param warmupIterations
+	 *            number of warm-up runs
+	 * @param runs
+	 *            metrics of the measured runs
+	 */
+	public BenchmarkResult(final int warmupIterations, final List<JobMetrics> runs) {
+		this.warmupIterations = warmupIterations;
+		this.runs = new ArrayList<>(runs);
+		final List<Long> values = new ArrayList<>();
+		for (final JobMetrics run : runs) {
+			values.add(run.getDuration());
+		}
+		durations = new Statistics(values);
+	}
+
+	/**
+	 * @return result of the last benchmark run by the current thread, null if there is none
+	 */
+	public static BenchmarkResult current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param result
+	 *            result of the last benchmark run by the current thread
+	 */
+	public static void setCurrent(final BenchmarkResult result) {
+		if (result == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(result);
+		}
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	public List<JobMetrics> getRuns() {
+		return Collections.unmodifiableList(runs);
+	}
+
+	/**
+	 * @return run durations in milliseconds
+	 */
+	public Statistics getDurations() {
+		return durations;
+	}
+
+	/**
+	 * @return items read per second, over all the measured runs
+	 */
+	public double getItemsPerSecond() {
+		long items = 0;
+		for (final JobMetrics run : runs) {
+			items += run.getReadCount();
+		}
+		return durations.getSum() == 0 ? 0 : items * 1000d / durations.getSum();
+	}
+
+	/**
+	 * @return lowest throughput of a run, in items read per second
+	 */
+	public double getMinItemsPerSecond() {
+		double min = runs.isEmpty() ? 0 : Double.MAX_VALUE;
+		for (final JobMetrics run : runs) {
+			min = Math.min(min, run.getItemsPerSecond());
+		}
+		return min;
+	}
+
+	/**
+	 * @return highest throughput of a run, in items read per second
+	 */
+	public double getMaxItemsPerSecond() {
+		double max = 0;
+		for (final JobMetrics run : runs) {
+			max = Math.max(max, run.getItemsPerSecond());
+		}
+		return max;
+	}
+
+	/**
+	 * Writes the result as a JSON object.
+	 * 
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("warmupIterations", warmupIterations).field("iterations", runs.size());
+		json.name("durationMs").beginObject();
+		json.field("min", durations.getMin()).field("mean", durations.getMean()).field("p50", durations.getPercentile(50));
+		json.field("p99", durations.getPercentile(99)).field("max", durations.getMax());
+		json.endObject();
+		json.name("itemsPerSecond").beginObject();
+		json.field("min", getMinItemsPerSecond()).field("mean", getItemsPerSecond()).field("max", getMaxItemsPerSecond());
+		json.endObject();
+		json.name("runs").beginArray();
+		for (final JobMetrics run : runs) {
+			run.write(json);
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d run(s) after %d warm-up : min=%dms mean=%.1fms p50=%dms p99=%dms max=%dms, %.1f items/s (min %.1f, max %.1f)", runs.size(),
+				warmupIterations, durations.getMin(), durations.getMean(), durations.getPercentile(50), durations.getPercentile(99), durations.getMax(),
+				getItemsPerSecond(), getMinItemsPerSecond(), getMaxItemsPerSecond());
+	}
+}
@@ -0,0 +1,108 @@
+package com.test.batch.metrics;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.listener.StepExecutionListenerSupport;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Chunk listener measuring the duration and the heap allocation of each committed chunk. Allocation is read from the
+ * per-thread counters of the JVM, so chunks running in other threads (multi-threaded or partitioned steps) are measured
+ * too. When thread contention monitoring is enabled, the time the thread of the chunk spent blocked on monitors or
+ * waiting is measured as well. The threads running the steps and the chunks are reported to the collector, which knows
+ * the threads of its jobs this way.
+ * 
+ * @author mguennec
+ * 
+ */
+class ChunkTimer extends StepExecutionListenerSupport implements ChunkListener {
+
+	/** Thread MXBean, null if the JVM doesn't count allocated bytes. */
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+	/** Thread MXBean measuring contention. */
+	private static final ThreadMXBean CONTENTION = ManagementFactory.getThreadMXBean();
+
+	/** Start time, allocated bytes and blocked time of the current chunk of each thread. */
+	private final ThreadLocal<long[]> start = new ThreadLocal<>();
+
+	/** Collector receiving the measures. */
+	private final MetricsCollector collector;
+
+	/**
+	 * @param collector
+	 *            collector receiving the measures
+	 */
+	ChunkTimer(final MetricsCollector collector) {
+		this.collector = collector;
+	}
+
+	/**
+	 * @return true if allocated bytes are measured
+	 */
+	static boolean isAllocationSupported() {
+		return THREADS != null;
+	}
+
+	@Override
+	public void beforeStep(final StepExecution stepExecution) {
+		collector.jobThreadStarted();
+	}
+
+	@Override
+	public void beforeChunk() {
+		collector.jobThreadStarted();
+		start.set(new long[] { System.nanoTime(), allocatedBytes(), blockedTime() });
+	}
+
+	@Override
+	public void afterChunk() {
+		final long[] begin = start.get();
+		final StepContext context = StepSynchronizationManager.getContext();
+		if (begin != null && context != null) {
+			final long blocked = begin[2] < 0 ? -1 : blockedTime();
+			collector.chunkCommitted(context.getStepExecution(), System.nanoTime() - begin[0], allocatedBytes() - begin[1], blocked < 0 ? -1 : blocked - begin[2]);
+		}
+		start.remove();
+	}
+
+	/**
+	 * @return bytes allocated by the current thread, 0 if not supported
+	 */
+	private static long allocatedBytes() {
+		return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return milliseconds the current thread spent blocked or waiting, -1 if contention monitoring is disabled
+	 */
+	private static long blockedTime() {
+		if (!CONTENTION.isThreadContentionMonitoringEnabled()) {
+			return -1;
+		}
+		final ThreadInfo info = CONTENTION.getThreadInfo(Thread.currentThread().getId());
+		return info == null || info.getBlockedTime() < 0 ? -1 : info.getBlockedTime() + Math.max(0, info.getWaitedTime());
+	}
+
+	/**
+	 * @return the thread MXBean if it counts allocated bytes, null otherwise
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter() {
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+			if (counter.isThreadAllocatedMemorySupported()) {
+				if (!counter.isThreadAllocatedMemoryEnabled()) {
+					counter.setThreadAllocatedMemoryEnabled(true);
+				}
+				return counter;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,231 @@
+package com.test.batch.metrics;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launches of the same job started at the same time. The throughput is the one of all the launches over the wall time
+ * of the test ; the latency spread is the difference between the slowest and the fastest launch. Failures are counted by
+ * cause : deadlocks and lock timeouts (pessimistic locking failures, SQL states of class 40), optimistic locking failures
+ * (concurrent update of the job repository) and others. The result of the last concurrent test of the current thread is
+ * available to the test method through {@link #current()}.
+ *
+ * @author mguennec
+ *
+ */
+public class ConcurrentResult {
+
+	/** Result of the last concurrent test of the current thread. */
+	private static final ThreadLocal<ConcurrentResult> CURRENT = new ThreadLocal<>();
+
+	/** SQL state class of the transaction rollbacks (deadlocks, serialization failures). */
+	private static final String ROLLBACK_SQL_STATE = "40";
+
+	/** Number of launches. */
+	private final int launches;
+
+	/** Wall time of all the launches in milliseconds. */
+	private final long wallTime;
+
+	/** Metrics of the launches which ran. */
+	private final List<JobMetrics> runs = new ArrayList<>();
+
+	/** Number of launches which didn't complete. */
+	private int failedLaunches;
+
+	/** Number of deadlocks and lock timeouts. */
+	private int deadlocks;
+
+	/** Number of optimistic locking failures. */
+	private int optimisticLockingFailures;
+
+	/** Number of other failures. */
+	private int otherFailures;
+
+	/**
+	 * @param launches
+	 *            number of launches
+	 * @param wallTimeNanos
+	 *            wall time of all the launches in nanoseconds
+	 */
+	public ConcurrentResult(final int launches, final long wallTimeNanos) {
+		this.launches = launches;
+		this.wallTime = TimeUnit.NANOSECONDS.toMillis(wallTimeNanos);
+	}
+
+	/**
+	 * @return result of the last concurrent test run by the current thread, null if there is none
+	 */
+	public static ConcurrentResult current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param result
+	 *            result of the last concurrent test run by the current thread
+	 */
+	public static void setCurrent(final ConcurrentResult result) {
+		if (result == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(result);
+		}
+	}
+
+	/**
+	 * @param metrics
+	 *            metrics of the launch, null if it couldn't run
+	 * @param completed
+	 *            true if the launch completed
+	 * @param failures
+	 *            failures of the launch
+	 */
+	public void add(final JobMetrics metrics, final boolean completed, final List<Throwable> failures) {
+		if (metrics != null) {
+			runs.add(metrics);
+		}
+		if (!completed) {
+			failedLaunches++;
+		}
+		for (final Throwable failure : failures) {
+			if (isCausedBy(failure, PessimisticLockingFailureException.class) || isRollback(failure)) {
+				deadlocks++;
+			} else if (isCausedBy(failure, OptimisticLockingFailureException.class)) {
+				optimisticLockingFailures++;
+			} else {
+				otherFailures++;
+			}
+		}
+	}
+
+	/**
+	 * @param failure
+	 *            failure
+	 * @param type
+	 *            exception type
+	 * @return true if the failure or one of its causes has the given type
+	 */
+	private static boolean isCausedBy(final Throwable failure, final Class<? extends Throwable> type) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			if (type.isInstance(cause)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param failure
+	 *            failure
+	 * @return true if the failure is caused by a transaction rollback of the database
+	 */
+	private static boolean isRollback(final Throwable failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null && ((SQLException) cause).getSQLState().startsWith(ROLLBACK_SQL_STATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getLaunches() {
+		return launches;
+	}
+
+	/**
+	 * @return wall time of all the launches in milliseconds
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	public List<JobMetrics> getRuns() {
+		return Collections.unmodifiableList(runs);
+	}
+
+	public int getFailedLaunches() {
+		return failedLaunches;
+	}
+
+	/**
+	 * @return number of deadlocks and lock timeouts
+	 */
+	public int getDeadlocks() {
+		return deadlocks;
+	}
+
+	public int getOptimisticLockingFailures() {
+		return optimisticLockingFailures;
+	}
+
+	public int getOtherFailures() {
+		return otherFailures;
+	}
+
+	/**
+	 * @return launch durations in milliseconds
+	 */
+	public Statistics getDurations() {
+		final List<Long> durations = new ArrayList<>();
+		for (final JobMetrics run : runs) {
+			durations.add(run.getDuration());
+		}
+		return new Statistics(durations);
+	}
+
+	/**
+	 * @return difference between the slowest and the fastest launch in milliseconds
+	 */
+	public long getSpread() {
+		final Statistics durations = getDurations();
+		return durations.getCount() == 0 ? 0 : durations.getMax() - durations.getMin();
+	}
+
+	/**
+	 * @return items read per second by all the launches
+	 */
+	public double getItemsPerSecond() {
+		long items = 0;
+		for (final JobMetrics run : runs) {
+			items += run.getReadCount();
+		}
+		return wallTime == 0 ? 0 : items * 1000d / wallTime;
+	}
+
+	/**
+	 * Writes the result as a JSON object.
+	 *
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		final Statistics durations = getDurations();
+		json.beginObject();
+		json.field("launches", launches).field("failedLaunches", failedLaunches).field("wallTimeMs", wallTime).field("itemsPerSecond", getItemsPerSecond());
+		json.name("durationMs").beginObject();
+		json.field("min", durations.getMin()).field("p50", durations.getPercentile(50)).field("p90", durations.getPercentile(90)).field("max", durations.getMax());
+		json.field("spread", getSpread());
+		json.endObject();
+		json.field("deadlocks", deadlocks).field("optimisticLockingFailures", optimisticLockingFailures).field("otherFailures", otherFailures);
+		json.name("runs").beginArray();
+		for (final JobMetrics run : runs) {
+			run.write(json);
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final Statistics durations = getDurations();
+		return String.format("%d launch(es), %d failed, in %dms : %.1f items/s, durations min=%dms p50=%dms p90=%dms max=%dms (spread %dms), %d deadlock(s), "
+				+ "%d optimistic locking failure(s), %d other failure(s)", launches, failedLaunches, wallTime, getItemsPerSecond(), durations.getMin(),
+				durations.getPercentile(50), durations.getPercentile(90), durations.getMax(), getSpread(), deadlocks, optimisticLockingFailures, otherFailures);
+	}
+}
@@ -0,0 +1,62 @@
+package com.test.batch.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Garbage collections done by the JVM, read from the garbage collector MXBeans.
+ * 
+ * @author mguennec
+ * 
+ */
+public final class GcUsage {
+
+	/** Number of collections. */
+	private final long count;
+
+	/** Accumulated collection time in milliseconds. */
+	private final long time;
+
+	/**
+	 * @param count
+	 *            number of collections
+	 * @param time
+	 *            accumulated collection time in milliseconds
+	 */
+	private GcUsage(final long count, final long time) {
+		this.count = count;
+		this.time = time;
+	}
+
+	/**
+	 * @return collections done since the JVM start
+	 */
+	public static GcUsage now() {
+		long count = 0;
+		long time = 0;
+		for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(gc.getCollectionCount(), 0);
+			time += Math.max(gc.getCollectionTime(), 0);
+		}
+		return new GcUsage(count, time);
+	}
+
+	/**
+	 * @return collections done since this usage was read
+	 */
+	public GcUsage elapsed() {
+		final GcUsage now = now();
+		return new GcUsage(now.count - count, now.time - time);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return accumulated collection time in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+}
@@ -0,0 +1,228 @@
+package com.test.batch.metrics;
+
+import com.test.batch.jdbc.JdbcMetrics;
+import org.springframework.batch.core.JobExecution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of a job run. The metrics of the last run launched by the current thread are available to the test method
+ * through {@link #current()}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class JobMetrics {
+
+	/** Metrics of the last run of the current thread. */
+	private static final ThreadLocal<JobMetrics> CURRENT = new ThreadLocal<>();
+
+	/** Job name. */
+	private final String jobName;
+
+	/** Final status. */
+	private final String status;
+
+	/** Exit code. */
+	private final String exitCode;
+
+	/** Launch duration in milliseconds. */
+	private final long duration;
+
+	/** Garbage collections during the launch. */
+	private final GcUsage gc;
+
+	/** Metrics of each step execution. */
+	private final List<StepMetrics> steps = new ArrayList<>();
+
+	/** JDBC activity, null if not recorded. */
+	private JdbcMetrics jdbc;
+
+	/**
+	 * @param jobExecution
+	 *            job execution
+	 * @param durationNanos
+	 *            launch duration in nanoseconds
+	 * @param gc
+	 *            garbage collections during the launch
+	 */
+	public JobMetrics(final JobExecution jobExecution, final long durationNanos, final GcUsage gc) {
+		jobName = jobExecution.getJobInstance() == null ? null : jobExecution.getJobInstance().getJobName();
+		status = String.valueOf(jobExecution.getStatus());
+		exitCode = jobExecution.getExitStatus().getExitCode();
+		duration = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		this.gc = gc;
+	}
+
+	/**
+	 * @return metrics of the last run launched by the current thread, null if there is none
+	 */
+	public static JobMetrics current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param metrics
+	 *            metrics of the last run launched by the current thread
+	 */
+	public static void setCurrent(final JobMetrics metrics) {
+		if (metrics == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(metrics);
+		}
+	}
+
+	/**
+	 * @param step
+	 *            metrics of a step execution
+	 */
+	void addStep(final StepMetrics step) {
+		steps.add(step);
+	}
+
+	public String getJobName() {
+		return jobName;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public String getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * @return launch duration in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return items read by all the steps
+	 */
+	public long getReadCount() {
+		long count = 0;
+		for (final StepMetrics step : steps) {
+			count += step.getReadCount();
+		}
+		return count;
+	}
+
+	/**
+	 * @return bytes allocated by the committed chunks of all the steps, -1 if the JVM doesn't measure allocation
+	 */
+	public long getAllocatedBytes() {
+		if (!ChunkTimer.isAllocationSupported()) {
+			return -1;
+		}
+		long bytes = 0;
+		for (final StepMetrics step : steps) {
+			bytes += step.getAllocatedBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return garbage collections during the launch (whole JVM)
+	 */
+	public GcUsage getGc() {
+		return gc;
+	}
+
+	/**
+	 * @return items read per second over the whole run
+	 */
+	public double getItemsPerSecond() {
+		return duration == 0 ? 0 : getReadCount() * 1000d / duration;
+	}
+
+	public List<StepMetrics> getSteps() {
+		return Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * @param stepName
+	 *            step name
+	 * @return metrics of the step, null if the step wasn't executed
+	 */
+	public StepMetrics getStep(final String stepName) {
+		for (final StepMetrics step : steps) {
+			if (step.getStepName().equals(stepName)) {
+				return step;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return JDBC activity during the run, null if not recorded
+	 */
+	public JdbcMetrics getJdbc() {
+		return jdbc;
+	}
+
+	/**
+	 * @param jdbc
+	 *            JDBC activity during the run
+	 */
+	void setJdbc(final JdbcMetrics jdbc) {
+		this.jdbc = jdbc;
+	}
+
+	/**
+	 * Writes the metrics as a JSON object.
+	 * 
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("job", jobName).field("status", status).field("exitCode", exitCode).field("durationMs", duration);
+		json.field("itemsPerSecond", getItemsPerSecond()).field("allocatedBytes", getAllocatedBytes());
+		json.field("gcCount", gc.getCount()).field("gcTimeMs", gc.getTime());
+		json.name("steps").beginArray();
+		for (final StepMetrics step : steps) {
+			json.beginObject();
+			json.field("step", step.getStepName()).field("status", step.getStatus());
+			json.field("readCount", step.getReadCount()).field("writeCount", step.getWriteCount()).field("filterCount", step.getFilterCount());
+			json.field("readSkipCount", step.getReadSkipCount()).field("processSkipCount", step.getProcessSkipCount()).field("writeSkipCount", step.getWriteSkipCount());
+			json.field("commitCount", step.getCommitCount()).field("rollbackCount", step.getRollbackCount());
+			json.field("wallTimeMs", step.getWallTime()).field("itemsPerSecond", step.getItemsPerSecond()).field("allocatedBytes", step.getAllocatedBytes());
+			if (step.getBlockedTime() >= 0) {
+				json.field("blockedMs", step.getBlockedTime());
+			}
+			json.name("chunks").beginObject();
+			json.field("count", step.getChunks().getCount());
+			json.field("p50Ms", step.getChunkPercentile(50)).field("p90Ms", step.getChunkPercentile(90)).field("p99Ms", step.getChunkPercentile(99));
+			json.field("maxMs", step.getChunkPercentile(100));
+			json.endObject();
+			json.endObject();
+		}
+		json.endArray();
+		if (jdbc != null) {
+			json.name("jdbc");
+			jdbc.write(json);
+		}
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(jobName).append(" [").append(status).append("] ").append(duration).append("ms, allocated ").append(getAllocatedBytes() / 1024).append("KB, ")
+				.append(gc.getCount()).append(" GC (").append(gc.getTime()).append("ms)");
+		for (final StepMetrics step : steps) {
+			sb.append("\n  ").append(step);
+		}
+		if (jdbc != null) {
+			sb.append("\n  JDBC : ").append(jdbc);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,155 @@
+package com.test.batch.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Minimal JSON writer used by the reports.
+ * 
+ * @author mguennec
+ * 
+ */
+public class JsonWriter {
+
+	/** Output. */
+	private final StringBuilder out = new StringBuilder();
+
+	/** For each open object or array, true if it already contains a value. */
+	private final Deque<Boolean> scopes = new ArrayDeque<>();
+
+	/** True if the next value follows a name. */
+	private boolean named;
+
+	public JsonWriter beginObject() {
+		separate();
+		out.append('{');
+		scopes.push(Boolean.FALSE);
+		return this;
+	}
+
+	public JsonWriter endObject() {
+		scopes.pop();
+		out.append('}');
+		return this;
+	}
+
+	public JsonWriter beginArray() {
+		separate();
+		out.append('[');
+		scopes.push(Boolean.FALSE);
+		return this;
+	}
+
+	public JsonWriter endArray() {
+		scopes.pop();
+		out.append(']');
+		return this;
+	}
+
+	/**
+	 * Writes the name of the next object member.
+	 * 
+	 * @param name
+	 *            member name
+	 * @return this writer
+	 */
+	public JsonWriter name(final String name) {
+		separate();
+		quote(name);
+		out.append(':');
+		named = true;
+		return this;
+	}
+
+	/**
+	 * Writes a value : numbers and booleans are written as is, null as null, everything else as a string.
+	 * 
+	 * @param value
+	 *            the value
+	 * @return this writer
+	 */
+	public JsonWriter value(final Object value) {
+		separate();
+		if (value == null) {
+			out.append("null");
+		} else if (value instanceof Double || value instanceof Float) {
+			final double d = ((Number) value).doubleValue();
+			out.append(Double.isNaN(d) || Double.isInfinite(d) ? "null" : String.format(Locale.ROOT, "%.3f", d));
+		} else if (value instanceof Number || value instanceof Boolean) {
+			out.append(value);
+		} else {
+			quote(value.toString());
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a member.
+	 * 
+	 * @param name
+	 *            member name
+	 * @param value
+	 *            member value
+	 * @return this writer
+	 */
+	public JsonWriter field(final String name, final Object value) {
+		return name(name).value(value);
+	}
+
+	/**
+	 * Adds a comma if needed before a new value.
+	 */
+	private void separate() {
+		if (named) {
+			named = false;
+		} else if (!scopes.isEmpty()) {
+			if (scopes.pop()) {
+				out.append(',');
+			}
+			scopes.push(Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Writes a quoted string.
+	 * 
+	 * @param s
+	 *            the string
+	 */
+	private void quote(final String s) {
+		out.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				} else {
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
+
+	@Override
+	public String toString() {
+		return out.toString();
+	}
+}
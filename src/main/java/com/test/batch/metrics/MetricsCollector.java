@@ -0,0 +1,231 @@
+package com.test.batch.metrics;
+
+import com.test.batch.jdbc.JdbcMetrics;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.step.StepLocator;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of the jobs launched in a Spring context. The collector is registered once in each context and
+ * adds a {@link ChunkTimer} to every tasklet step of the context. Heap allocation is the sum of the allocation of the
+ * committed chunks, garbage collections are counted for the whole JVM. Blocked time is the sum of the contention of the
+ * committed chunks, measured while thread contention monitoring is enabled. The threads running the steps of the
+ * context are recorded for the {@link StackSampler}s started on the context.
+ * 
+ * @author mguennec
+ * 
+ */
+public class MetricsCollector {
+
+	/** Name of the collector in the Spring context. */
+	public static final String BEAN_NAME = "batchTestMetricsCollector";
+
+	/** Chunks of the running step executions, by step execution id. */
+	private final ConcurrentMap<Long, Chunks> chunks = new ConcurrentHashMap<>();
+
+	/** Instrumented steps. */
+	private final Set<Step> instrumented = Collections.newSetFromMap(new IdentityHashMap<Step, Boolean>());
+
+	/** Chunk listener added to the steps. */
+	private final ChunkTimer timer = new ChunkTimer(this);
+
+	/** Threads running the steps of the context, one set for each running {@link StackSampler}. */
+	private final Queue<Set<Thread>> jobThreads = new ConcurrentLinkedQueue<>();
+
+	/** Time of the last chunk commit, from {@link System#nanoTime()}. */
+	private volatile long lastCommit = System.nanoTime();
+
+	/**
+	 * Gets the collector of a context, creating it if needed.
+	 * 
+	 * @param ctxt
+	 *            Spring context
+	 * @return the collector
+	 */
+	public static MetricsCollector getInstance(final ConfigurableApplicationContext ctxt) {
+		final ConfigurableListableBeanFactory beanFactory = ctxt.getBeanFactory();
+		synchronized (beanFactory) {
+			if (!beanFactory.containsSingleton(BEAN_NAME)) {
+				final MetricsCollector collector = new MetricsCollector();
+				// Step factory beans may announce a tasklet step and build a partitioned one
+				for (final Step step : ctxt.getBeansOfType(Step.class, false, false).values()) {
+					collector.instrument(step);
+				}
+				beanFactory.registerSingleton(BEAN_NAME, collector);
+			}
+			return (MetricsCollector) beanFactory.getSingleton(BEAN_NAME);
+		}
+	}
+
+	/**
+	 * Instruments the steps of a job which aren't declared as beans.
+	 * 
+	 * @param job
+	 *            the job
+	 */
+	public void instrument(final Job job) {
+		if (job instanceof StepLocator) {
+			final StepLocator locator = (StepLocator) job;
+			for (final String stepName : locator.getStepNames()) {
+				instrument(locator.getStep(stepName));
+			}
+		}
+	}
+
+	/**
+	 * Adds the chunk timer to a step.
+	 * 
+	 * @param step
+	 *            the step
+	 */
+	private synchronized void instrument(final Step step) {
+		if (step instanceof TaskletStep && instrumented.add(step)) {
+			((TaskletStep) step).registerChunkListener(timer);
+			((TaskletStep) step).registerStepExecutionListener(timer);
+		}
+	}
+
+	/**
+	 * Starts recording the threads running the steps of the context.
+	 * 
+	 * @return the threads which have run a step or a chunk since the call, updated until
+	 *         {@link #untrackJobThreads(Set)}
+	 */
+	Set<Thread> trackJobThreads() {
+		final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		jobThreads.add(threads);
+		return threads;
+	}
+
+	/**
+	 * Stops recording threads.
+	 * 
+	 * @param threads
+	 *            threads returned by {@link #trackJobThreads()}
+	 */
+	void untrackJobThreads(final Set<Thread> threads) {
+		jobThreads.remove(threads);
+	}
+
+	/**
+	 * Records the current thread, starting a step or a chunk.
+	 */
+	void jobThreadStarted() {
+		for (final Set<Thread> threads : jobThreads) {
+			threads.add(Thread.currentThread());
+		}
+	}
+
+	/**
+	 * Records the duration and the allocation of a committed chunk.
+	 * 
+	 * @param stepExecution
+	 *            step execution
+	 * @param nanos
+	 *            chunk duration
+	 * @param allocatedBytes
+	 *            bytes allocated by the chunk
+	 * @param blockedMillis
+	 *            milliseconds the chunk spent blocked or waiting, -1 if not measured
+	 */
+	void chunkCommitted(final StepExecution stepExecution, final long nanos, final long allocatedBytes, final long blockedMillis) {
+		lastCommit = System.nanoTime();
+		final Long id = stepExecution.getId();
+		if (id == null) {
+			return;
+		}
+		Chunks stepChunks = chunks.get(id);
+		if (stepChunks == null) {
+			stepChunks = new Chunks();
+			final Chunks previous = chunks.putIfAbsent(id, stepChunks);
+			if (previous != null) {
+				stepChunks = previous;
+			}
+		}
+		stepChunks.durations.add(nanos);
+		stepChunks.allocatedBytes.addAndGet(allocatedBytes);
+		if (blockedMillis >= 0) {
+			stepChunks.blockedTime.compareAndSet(-1, 0);
+			stepChunks.blockedTime.addAndGet(blockedMillis);
+		}
+	}
+
+	/**
+	 * @return time of the last chunk commit of the context, from {@link System#nanoTime()}
+	 */
+	long getLastCommit() {
+		return lastCommit;
+	}
+
+	/**
+	 * Builds the metrics of a finished job execution.
+	 * 
+	 * @param jobExecution
+	 *            job execution
+	 * @param durationNanos
+	 *            launch duration
+	 * @param gc
+	 *            garbage collections during the launch
+	 * @return the metrics
+	 */
+	public JobMetrics collect(final JobExecution jobExecution, final long durationNanos, final GcUsage gc) {
+		return collect(jobExecution, durationNanos, gc, null);
+	}
+
+	/**
+	 * Builds the metrics of a finished job execution.
+	 * 
+	 * @param jobExecution
+	 *            job execution
+	 * @param durationNanos
+	 *            launch duration
+	 * @param gc
+	 *            garbage collections during the launch
+	 * @param jdbc
+	 *            JDBC activity during the launch, null if not recorded
+	 * @return the metrics
+	 */
+	public JobMetrics collect(final JobExecution jobExecution, final long durationNanos, final GcUsage gc, final JdbcMetrics jdbc) {
+		final JobMetrics metrics = new JobMetrics(jobExecution, durationNanos, gc);
+		metrics.setJdbc(jdbc);
+		for (final StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			final Chunks stepChunks = stepExecution.getId() == null ? null : chunks.remove(stepExecution.getId());
+			if (stepChunks == null) {
+				metrics.addStep(new StepMetrics(stepExecution, new ArrayList<Long>(), 0));
+			} else {
+				metrics.addStep(new StepMetrics(stepExecution, stepChunks.durations, stepChunks.allocatedBytes.get(), stepChunks.blockedTime.get()));
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Committed chunks of a step execution.
+	 */
+	private static final class Chunks {
+
+		/** Chunk durations in nanoseconds. */
+		private final Queue<Long> durations = new ConcurrentLinkedQueue<>();
+
+		/** Bytes allocated by the chunks. */
+		private final AtomicLong allocatedBytes = new AtomicLong();
+
+		/** Milliseconds the chunks spent blocked or waiting, -1 if not measured. */
+		private final AtomicLong blockedTime = new AtomicLong(-1);
+	}
+}
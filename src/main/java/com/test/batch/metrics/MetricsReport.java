@@ -0,0 +1,62 @@
+package com.test.batch.metrics;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the machine-readable reports of the batch tests, as JSON files in the directory given by the system property
+ * {@value #DIRECTORY_PROPERTY} ({@value #DEFAULT_DIRECTORY} by default).
+ * 
+ * @author mguennec
+ * 
+ */
+public final class MetricsReport {
+
+	/** System property giving the report directory. */
+	public static final String DIRECTORY_PROPERTY = "batch.test.metrics.dir";
+
+	/** Default report directory. */
+	public static final String DEFAULT_DIRECTORY = "target/batch-metrics";
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(MetricsReport.class);
+
+	private MetricsReport() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Writes a report of a test method. The report is named after the test class, the method and the report kind.
+	 * Failures are logged, a report never fails a test.
+	 * 
+	 * @param method
+	 *            test method
+	 * @param kind
+	 *            report kind
+	 * @param json
+	 *            report content
+	 * @return the report file, null if it couldn't be written
+	 */
+	public static File write(final Method method, final String kind, final JsonWriter json) {
+		final File dir = new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+		final File file = new File(dir, method.getDeclaringClass().getName() + "." + method.getName() + "." + kind + ".json");
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			LOGGER.warn("Unable to create report directory " + dir);
+			return null;
+		}
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			out.write(json.toString());
+		} catch (IOException e) {
+			LOGGER.warn("Unable to write report " + file, e);
+			return null;
+		}
+		return file;
+	}
+}
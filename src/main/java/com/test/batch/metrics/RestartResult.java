@@ -0,0 +1,195 @@
+package com.test.batch.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of the restart of a job failing after a given item of a step. The result of the last restart test run by the
+ * current thread is available to the test method through {@link #current()}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class RestartResult {
+
+	/** Separator of the step and partition names of a partition execution. */
+	private static final String PARTITION_SEPARATOR = ":";
+
+	/** Result of the last restart test of the current thread. */
+	private static final ThreadLocal<RestartResult> CURRENT = new ThreadLocal<>();
+
+	/** Failing step. */
+	private final String stepName;
+
+	/** Items read by the failing step during the failed run, including the uncommitted ones. */
+	private final long readBeforeFailure;
+
+	/** Metrics of the run without failure, null if there is none. */
+	private final JobMetrics reference;
+
+	/** Metrics of the failed run. */
+	private final JobMetrics failed;
+
+	/** Metrics of the restart. */
+	private final JobMetrics restarted;
+
+	/**
+	 * @param stepName
+	 *            failing step
+	 * @param readBeforeFailure
+	 *            items read by the failing step during the failed run, including the uncommitted ones
+	 * @param reference
+	 *            metrics of the run without failure, null if there is none
+	 * @param failed
+	 *            metrics of the failed run
+	 * @param restarted
+	 *            metrics of the restart
+	 */
+	public RestartResult(final String stepName, final long readBeforeFailure, final JobMetrics reference, final JobMetrics failed, final JobMetrics restarted) {
+		this.stepName = stepName;
+		this.readBeforeFailure = readBeforeFailure;
+		this.reference = reference;
+		this.failed = failed;
+		this.restarted = restarted;
+	}
+
+	/**
+	 * @return result of the last restart test run by the current thread, null if there is none
+	 */
+	public static RestartResult current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param result
+	 *            result of the last restart test run by the current thread
+	 */
+	public static void setCurrent(final RestartResult result) {
+		if (result == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(result);
+		}
+	}
+
+	public String getStepName() {
+		return stepName;
+	}
+
+	public long getReadBeforeFailure() {
+		return readBeforeFailure;
+	}
+
+	/**
+	 * @return items of the failing step committed before the failure
+	 */
+	public long getCommittedBeforeFailure() {
+		long count = 0;
+		for (final StepMetrics step : getSteps(failed)) {
+			count += step.getWriteCount() + step.getFilterCount() + step.getProcessSkipCount() + step.getWriteSkipCount();
+		}
+		return count;
+	}
+
+	/**
+	 * @return items read by the failing step during the restart
+	 */
+	public long getReadByRestart() {
+		return readCount(restarted);
+	}
+
+	/**
+	 * Items read twice by the failing step. Without reference run, the restart is supposed to resume after the last
+	 * committed item.
+	 * 
+	 * @return items read again because of the failure
+	 */
+	public long getReprocessedItems() {
+		if (reference == null) {
+			return readBeforeFailure - getCommittedBeforeFailure();
+		}
+		return readBeforeFailure + getReadByRestart() - readCount(reference);
+	}
+
+	/**
+	 * @return duration of the restart in milliseconds
+	 */
+	public long getRecoveryTime() {
+		return restarted.getDuration();
+	}
+
+	/**
+	 * @return time lost because of the failure in milliseconds (both launches against the reference run), -1 without
+	 *         reference run
+	 */
+	public long getOverhead() {
+		return reference == null ? -1 : failed.getDuration() + restarted.getDuration() - reference.getDuration();
+	}
+
+	public JobMetrics getReference() {
+		return reference;
+	}
+
+	public JobMetrics getFailed() {
+		return failed;
+	}
+
+	public JobMetrics getRestarted() {
+		return restarted;
+	}
+
+	/**
+	 * @param metrics
+	 *            metrics of a run
+	 * @return items read by the failing step during the run
+	 */
+	private long readCount(final JobMetrics metrics) {
+		long count = 0;
+		for (final StepMetrics step : getSteps(metrics)) {
+			count += step.getReadCount();
+		}
+		return count;
+	}
+
+	/**
+	 * @param metrics
+	 *            metrics of a run
+	 * @return executions of the failing step during the run, one per partition when the step is partitioned
+	 */
+	private List<StepMetrics> getSteps(final JobMetrics metrics) {
+		final List<StepMetrics> steps = new ArrayList<>();
+		for (final StepMetrics step : metrics.getSteps()) {
+			if (step.getStepName().equals(stepName) || step.getStepName().startsWith(stepName + PARTITION_SEPARATOR)) {
+				steps.add(step);
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * Writes the result as a JSON object.
+	 * 
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("step", stepName).field("readBeforeFailure", readBeforeFailure).field("committedBeforeFailure", getCommittedBeforeFailure());
+		json.field("readByRestart", getReadByRestart()).field("reprocessedItems", getReprocessedItems());
+		json.field("failedDurationMs", failed.getDuration()).field("recoveryTimeMs", getRecoveryTime());
+		if (reference != null) {
+			json.field("referenceDurationMs", reference.getDuration()).field("overheadMs", getOverhead());
+		}
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(String.format("%s read %d item(s) (%d committed) in the failed run of %dms, restart read %d item(s) in %dms, %d item(s) read again",
+				stepName, readBeforeFailure, getCommittedBeforeFailure(), failed.getDuration(), getReadByRestart(), getRecoveryTime(), getReprocessedItems()));
+		if (reference != null) {
+			sb.append(String.format(", %dms lost against a %dms clean run", getOverhead(), reference.getDuration()));
+		}
+		return sb.toString();
+	}
+}
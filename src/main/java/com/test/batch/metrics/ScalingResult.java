@@ -0,0 +1,117 @@
+package com.test.batch.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Durations of a job for several input sizes, fitted to <code>duration = a * size ^ exponent</code> by a least squares
+ * regression in log-log space. The result of the last scaling test run by the current thread is available to the test
+ * method through {@link #current()}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class ScalingResult {
+
+	/** Result of the last scaling test of the current thread. */
+	private static final ThreadLocal<ScalingResult> CURRENT = new ThreadLocal<>();
+
+	/** Input sizes. */
+	private final List<Long> sizes = new ArrayList<>();
+
+	/** Metrics of the run for each size. */
+	private final List<JobMetrics> runs = new ArrayList<>();
+
+	/**
+	 * @return result of the last scaling test run by the current thread, null if there is none
+	 */
+	public static ScalingResult current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param result
+	 *            result of the last scaling test run by the current thread
+	 */
+	public static void setCurrent(final ScalingResult result) {
+		if (result == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(result);
+		}
+	}
+
+	/**
+	 * @param size
+	 *            input size
+	 * @param metrics
+	 *            metrics of the run
+	 */
+	public void add(final long size, final JobMetrics metrics) {
+		sizes.add(size);
+		runs.add(metrics);
+	}
+
+	public List<Long> getSizes() {
+		return Collections.unmodifiableList(sizes);
+	}
+
+	public List<JobMetrics> getRuns() {
+		return Collections.unmodifiableList(runs);
+	}
+
+	/**
+	 * @return growth exponent of the duration, NaN with less than two sizes
+	 */
+	public double getExponent() {
+		final int n = sizes.size();
+		if (n < 2) {
+			return Double.NaN;
+		}
+		double sumX = 0;
+		double sumY = 0;
+		double sumXY = 0;
+		double sumXX = 0;
+		for (int i = 0; i < n; i++) {
+			final double x = Math.log(Math.max(sizes.get(i), 1));
+			final double y = Math.log(Math.max(runs.get(i).getDuration(), 1));
+			sumX += x;
+			sumY += y;
+			sumXY += x * y;
+			sumXX += x * x;
+		}
+		final double denominator = n * sumXX - sumX * sumX;
+		return denominator == 0 ? Double.NaN : (n * sumXY - sumX * sumY) / denominator;
+	}
+
+	/**
+	 * Writes the result as a JSON object.
+	 * 
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("exponent", getExponent());
+		json.name("runs").beginArray();
+		for (int i = 0; i < sizes.size(); i++) {
+			final JobMetrics run = runs.get(i);
+			json.beginObject();
+			json.field("size", sizes.get(i)).field("durationMs", run.getDuration()).field("itemsPerSecond", run.getItemsPerSecond());
+			json.endObject();
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(String.format("exponent %.2f", getExponent()));
+		for (int i = 0; i < sizes.size(); i++) {
+			final JobMetrics run = runs.get(i);
+			sb.append(String.format("%n  size %d : %dms, %.1f items/s", sizes.get(i), run.getDuration(), run.getItemsPerSecond()));
+		}
+		return sb.toString();
+	}
+}
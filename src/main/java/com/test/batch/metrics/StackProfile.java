@@ -0,0 +1,230 @@
+package com.test.batch.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Stack samples of the job threads, folded by stack (frames from the root to the leaf, separated by ';', as read by
+ * flame graph tools). Frames are also counted once per sample they appear in, ignoring the frames of the JDK and of the
+ * batch infrastructure, to show the readers, processors and writers where the job spends its time. The profile of the
+ * last run of the current thread is available to the test method through {@link #current()}.
+ *
+ * @author mguennec
+ *
+ */
+public class StackProfile {
+
+	/** Profile of the last run of the current thread. */
+	private static final ThreadLocal<StackProfile> CURRENT = new ThreadLocal<>();
+
+	/** Packages of the frames which aren't counted as hot frames. */
+	private static final String[] INFRASTRUCTURE = { "java.", "javax.", "jdk.", "sun.", "com.sun.", "org.junit.", "com.test.batch.", "org.springframework.batch.core.",
+			"org.springframework.batch.repeat.", "org.springframework.batch.retry.", "org.springframework.batch.test.", "org.springframework.core.",
+			"org.springframework.beans.", "org.springframework.context.", "org.springframework.transaction.", "org.springframework.aop." };
+
+	/** Number of leaf frames of a stack printed by {@link #toString()}. */
+	private static final int PRINTED_FRAMES = 4;
+
+	/** Interval between two samples in milliseconds. */
+	private final long interval;
+
+	/** Time without commit after which the job is sampled in milliseconds, 0 if sampled all the time. */
+	private final long stallTimeout;
+
+	/** Number of reported stacks and frames. */
+	private final int top;
+
+	/** Number of thread stacks sampled. */
+	private int samples;
+
+	/** Number of periods without commit longer than the stall timeout. */
+	private int stalls;
+
+	/** Number of samples of each folded stack. */
+	private final Map<String, Integer> stacks = new HashMap<>();
+
+	/** Number of samples containing each frame. */
+	private final Map<String, Integer> frames = new HashMap<>();
+
+	/**
+	 * @param interval
+	 *            interval between two samples in milliseconds
+	 * @param stallTimeout
+	 *            time without commit after which the job is sampled in milliseconds, 0 if sampled all the time
+	 * @param top
+	 *            number of reported stacks and frames
+	 */
+	public StackProfile(final long interval, final long stallTimeout, final int top) {
+		this.interval = interval;
+		this.stallTimeout = stallTimeout;
+		this.top = top;
+	}
+
+	/**
+	 * @return profile of the last run launched by the current thread, null if there is none
+	 */
+	public static StackProfile current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param profile
+	 *            profile of the last run launched by the current thread
+	 */
+	public static void setCurrent(final StackProfile profile) {
+		if (profile == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(profile);
+		}
+	}
+
+	/**
+	 * Adds a thread stack.
+	 *
+	 * @param stack
+	 *            stack, from the leaf to the root
+	 */
+	void add(final StackTraceElement[] stack) {
+		samples++;
+		final StringBuilder folded = new StringBuilder();
+		final Set<String> seen = new HashSet<>();
+		for (int i = stack.length - 1; i >= 0; i--) {
+			final String frame = stack[i].getClassName() + "." + stack[i].getMethodName();
+			folded.append(folded.length() == 0 ? "" : ";").append(frame);
+			if (!isInfrastructure(frame) && seen.add(frame)) {
+				increment(frames, frame);
+			}
+		}
+		increment(stacks, folded.toString());
+	}
+
+	/**
+	 * Counts a period without commit longer than the stall timeout.
+	 */
+	void stalled() {
+		stalls++;
+	}
+
+	/**
+	 * @param counts
+	 *            counts
+	 * @param key
+	 *            counted key
+	 */
+	private static void increment(final Map<String, Integer> counts, final String key) {
+		final Integer count = counts.get(key);
+		counts.put(key, count == null ? 1 : count + 1);
+	}
+
+	/**
+	 * @param frame
+	 *            frame
+	 * @return true if the frame belongs to the JDK or to the batch infrastructure
+	 */
+	private static boolean isInfrastructure(final String frame) {
+		for (final String prefix : INFRASTRUCTURE) {
+			if (frame.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param counts
+	 *            counts
+	 * @return the most frequent keys with their counts, most frequent first
+	 */
+	private List<Entry<String, Integer>> top(final Map<String, Integer> counts) {
+		final List<Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+		Collections.sort(entries, new Comparator<Entry<String, Integer>>() {
+			@Override
+			public int compare(final Entry<String, Integer> o1, final Entry<String, Integer> o2) {
+				return o2.getValue().compareTo(o1.getValue());
+			}
+		});
+		return entries.subList(0, Math.min(top, entries.size()));
+	}
+
+	/**
+	 * @return number of thread stacks sampled
+	 */
+	public int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return number of periods without commit longer than the stall timeout
+	 */
+	public int getStalls() {
+		return stalls;
+	}
+
+	/**
+	 * @return number of samples of each folded stack
+	 */
+	public Map<String, Integer> getStacks() {
+		return Collections.unmodifiableMap(stacks);
+	}
+
+	/**
+	 * @return the most sampled stacks, most sampled first
+	 */
+	public List<Entry<String, Integer>> getHotStacks() {
+		return top(stacks);
+	}
+
+	/**
+	 * @return the application frames found in the most samples, most sampled first
+	 */
+	public List<Entry<String, Integer>> getHotFrames() {
+		return top(frames);
+	}
+
+	/**
+	 * @param json
+	 *            writer receiving the profile
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("intervalMs", interval).field("stallTimeoutMs", stallTimeout).field("samples", samples).field("stalls", stalls);
+		json.name("hotFrames").beginArray();
+		for (final Entry<String, Integer> frame : getHotFrames()) {
+			json.beginObject().field("frame", frame.getKey()).field("samples", frame.getValue()).endObject();
+		}
+		json.endArray();
+		json.name("stacks").beginObject();
+		for (final Entry<String, Integer> stack : stacks.entrySet()) {
+			json.field(stack.getKey(), stack.getValue());
+		}
+		json.endObject();
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder().append(samples).append(" sample(s) every ").append(interval).append("ms");
+		if (stallTimeout > 0) {
+			sb.append(", ").append(stalls).append(" stall(s) of more than ").append(stallTimeout).append("ms");
+		}
+		for (final Entry<String, Integer> frame : getHotFrames()) {
+			sb.append(String.format("%n  %5.1f%% %s", 100.0 * frame.getValue() / samples, frame.getKey()));
+		}
+		for (final Entry<String, Integer> stack : getHotStacks()) {
+			final String[] stackFrames = stack.getKey().split(";");
+			sb.append(String.format("%n  %5.1f%% ", 100.0 * stack.getValue() / samples));
+			for (int i = stackFrames.length - 1; i >= Math.max(0, stackFrames.length - PRINTED_FRAMES); i--) {
+				sb.append(i == stackFrames.length - 1 ? "" : " <- ").append(stackFrames[i]);
+			}
+		}
+		return sb.toString();
+	}
+}
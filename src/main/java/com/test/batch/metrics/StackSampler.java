@@ -0,0 +1,190 @@
+package com.test.batch.metrics;
+
+import com.test.batch.annotations.StackSampling;
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the stacks of the job threads while a job runs, as configured by {@link StackSampling}. Job threads are the
+ * threads which have started a step or a chunk of the context of the job since the sampling started, so the threads of
+ * partitioned and multi-threaded steps are sampled too, but not the jobs of other contexts (other workers of
+ * parallel tests). They are only sampled while they run Spring Batch job or step code, not while idle in a pool. With a
+ * stall timeout, the threads are only sampled while no chunk of the context has been committed for that long, and the
+ * stacks are logged at the start of each stall.
+ *
+ * @author mguennec
+ *
+ */
+public final class StackSampler implements Runnable {
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(StackSampler.class);
+
+	/** Package of the frames of a job thread. */
+	private static final String JOB_PACKAGE = "org.springframework.batch.core.";
+
+	/** Collector giving the time of the last commit and the job threads. */
+	private final MetricsCollector collector;
+
+	/** Threads which have run the steps of the context since the sampling started. */
+	private final Set<Thread> jobThreads;
+
+	/** Samples. */
+	private final StackProfile profile;
+
+	/** Interval between two samples in milliseconds. */
+	private final long interval;
+
+	/** Time without commit after which the job is sampled in nanoseconds, 0 to sample all the time. */
+	private final long stallTimeout;
+
+	/** Start of the sampling, from {@link System#nanoTime()}. */
+	private final long start = System.nanoTime();
+
+	/** Sampling thread. */
+	private final Thread thread;
+
+	/** True while the job runs. */
+	private volatile boolean running = true;
+
+	/** True during a stall. */
+	private boolean stalled;
+
+	/**
+	 * @param collector
+	 *            collector giving the time of the last commit and the job threads
+	 * @param sampling
+	 *            sampling configuration
+	 */
+	private StackSampler(final MetricsCollector collector, final StackSampling sampling) {
+		if (sampling.interval() < 1) {
+			throw new IllegalArgumentException("Sampling interval must be positive : " + sampling.interval());
+		}
+		this.collector = collector;
+		this.jobThreads = collector.trackJobThreads();
+		this.profile = new StackProfile(sampling.interval(), sampling.stallTimeout(), sampling.top());
+		this.interval = sampling.interval();
+		this.stallTimeout = TimeUnit.MILLISECONDS.toNanos(sampling.stallTimeout());
+		this.thread = new Thread(this, "stack-sampler");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts sampling the job threads if the test asks for it.
+	 *
+	 * @param method
+	 *            test method
+	 * @param collector
+	 *            collector of the context of the job
+	 * @return the started sampler, null if the test isn't sampled
+	 */
+	public static StackSampler start(final Method method, final MetricsCollector collector) {
+		final StackSampling sampling = method.getAnnotation(StackSampling.class);
+		if (sampling == null) {
+			return null;
+		}
+		final StackSampler sampler = new StackSampler(collector, sampling);
+		sampler.thread.start();
+		return sampler;
+	}
+
+	/**
+	 * Stops sampling.
+	 *
+	 * @return the samples
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the sampling thread
+	 */
+	public StackProfile stop() throws InterruptedException {
+		running = false;
+		thread.interrupt();
+		thread.join();
+		collector.untrackJobThreads(jobThreads);
+		return profile;
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				return;
+			}
+			sample();
+		}
+	}
+
+	/**
+	 * Samples the job threads, if the job is stalled when a stall timeout is set.
+	 */
+	private void sample() {
+		if (stallTimeout > 0) {
+			final long lastCommit = collector.getLastCommit();
+			final long idle = System.nanoTime() - (lastCommit - start > 0 ? lastCommit : start);
+			if (idle < stallTimeout) {
+				stalled = false;
+				return;
+			}
+			if (!stalled) {
+				stalled = true;
+				profile.stalled();
+				logStall(idle);
+			}
+		}
+		for (final Entry<Thread, StackTraceElement[]> entry : getJobStacks().entrySet()) {
+			profile.add(entry.getValue());
+		}
+	}
+
+	/**
+	 * @return stacks of the job threads running job or step code
+	 */
+	private Map<Thread, StackTraceElement[]> getJobStacks() {
+		final Map<Thread, StackTraceElement[]> stacks = new LinkedHashMap<>();
+		for (final Thread jobThread : jobThreads) {
+			final StackTraceElement[] stack = jobThread.getStackTrace();
+			if (isJobThread(stack)) {
+				stacks.put(jobThread, stack);
+			}
+		}
+		return stacks;
+	}
+
+	/**
+	 * Logs the stacks of the job threads at the start of a stall.
+	 *
+	 * @param idle
+	 *            time since the last commit in nanoseconds
+	 */
+	private void logStall(final long idle) {
+		final StringBuilder report = new StringBuilder("No chunk committed for ").append(TimeUnit.NANOSECONDS.toMillis(idle)).append("ms");
+		for (final Entry<Thread, StackTraceElement[]> entry : getJobStacks().entrySet()) {
+			report.append("\nJob thread ").append(entry.getKey().getName()).append(" (").append(entry.getKey().getState()).append(") :");
+			for (final StackTraceElement element : entry.getValue()) {
+				report.append("\n\tat ").append(element);
+			}
+		}
+		LOGGER.warn(report);
+	}
+
+	/**
+	 * @param stack
+	 *            thread stack
+	 * @return true if the thread runs job or step code
+	 */
+	private static boolean isJobThread(final StackTraceElement[] stack) {
+		for (final StackTraceElement element : stack) {
+			if (element.getClassName().startsWith(JOB_PACKAGE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
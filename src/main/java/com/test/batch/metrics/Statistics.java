@@ -0,0 +1,86 @@
+package com.test.batch.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Descriptive statistics over a set of measures.
+ * 
+ * @author mguennec
+ * 
+ */
+public final class Statistics {
+
+	/** Sorted measures. */
+	private final long[] values;
+
+	/**
+	 * @param measures
+	 *            measures, in any order
+	 */
+	public Statistics(final Collection<Long> measures) {
+		values = new long[measures.size()];
+		int i = 0;
+		for (final Long measure : measures) {
+			values[i++] = measure;
+		}
+		Arrays.sort(values);
+	}
+
+	/**
+	 * @return number of measures
+	 */
+	public int getCount() {
+		return values.length;
+	}
+
+	/**
+	 * @return smallest measure, 0 if there is none
+	 */
+	public long getMin() {
+		return values.length == 0 ? 0 : values[0];
+	}
+
+	/**
+	 * @return largest measure, 0 if there is none
+	 */
+	public long getMax() {
+		return values.length == 0 ? 0 : values[values.length - 1];
+	}
+
+	/**
+	 * @return sum of the measures
+	 */
+	public long getSum() {
+		long sum = 0;
+		for (final long value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return mean of the measures, 0 if there is none
+	 */
+	public double getMean() {
+		return values.length == 0 ? 0 : (double) getSum() / values.length;
+	}
+
+	/**
+	 * Gets a percentile using the nearest-rank method.
+	 * 
+	 * @param percentile
+	 *            percentile, between 0 and 100
+	 * @return the measure, 0 if there is none
+	 */
+	public long getPercentile(final double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100 : " + percentile);
+		}
+		if (values.length == 0) {
+			return 0;
+		}
+		final int rank = (int) Math.ceil(percentile / 100 * values.length);
+		return values[Math.max(rank, 1) - 1];
+	}
+}
@@ -0,0 +1,184 @@
+package com.test.batch.metrics;
+
+import org.springframework.batch.core.StepExecution;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of a step execution : item counts, wall time, throughput and chunk durations.
+ * 
+ * @author mguennec
+ * 
+ */
+public class StepMetrics {
+
+	/** Step name. */
+	private final String stepName;
+
+	/** Final status. */
+	private final String status;
+
+	private final int readCount;
+
+	private final int writeCount;
+
+	private final int filterCount;
+
+	private final int readSkipCount;
+
+	private final int processSkipCount;
+
+	private final int writeSkipCount;
+
+	private final int commitCount;
+
+	private final int rollbackCount;
+
+	/** Wall time in milliseconds. */
+	private final long wallTime;
+
+	/** Committed chunk durations in nanoseconds. */
+	private final Statistics chunks;
+
+	/** Bytes allocated by the committed chunks. */
+	private final long allocatedBytes;
+
+	/** Milliseconds the committed chunks spent blocked or waiting, -1 if not measured. */
+	private final long blockedTime;
+
+	/**
+	 * @param stepExecution
+	 *            step execution
+	 * @param chunkDurations
+	 *            committed chunk durations in nanoseconds
+	 * @param allocatedBytes
+	 *            bytes allocated by the committed chunks
+	 */
+	public StepMetrics(final StepExecution stepExecution, final Collection<Long> chunkDurations, final long allocatedBytes) {
+		this(stepExecution, chunkDurations, allocatedBytes, -1);
+	}
+
+	/**
+	 * @param stepExecution
+	 *            step execution
+	 * @param chunkDurations
+	 *            committed chunk durations in nanoseconds
+	 * @param allocatedBytes
+	 *            bytes allocated by the committed chunks
+	 * @param blockedTime
+	 *            milliseconds the committed chunks spent blocked or waiting, -1 if not measured
+	 */
+	public StepMetrics(final StepExecution stepExecution, final Collection<Long> chunkDurations, final long allocatedBytes, final long blockedTime) {
+		stepName = stepExecution.getStepName();
+		status = String.valueOf(stepExecution.getStatus());
+		readCount = stepExecution.getReadCount();
+		writeCount = stepExecution.getWriteCount();
+		filterCount = stepExecution.getFilterCount();
+		readSkipCount = stepExecution.getReadSkipCount();
+		processSkipCount = stepExecution.getProcessSkipCount();
+		writeSkipCount = stepExecution.getWriteSkipCount();
+		commitCount = stepExecution.getCommitCount();
+		rollbackCount = stepExecution.getRollbackCount();
+		final Date start = stepExecution.getStartTime();
+		final Date end = stepExecution.getEndTime() == null ? new Date() : stepExecution.getEndTime();
+		wallTime = start == null ? 0 : end.getTime() - start.getTime();
+		chunks = new Statistics(chunkDurations);
+		this.allocatedBytes = allocatedBytes;
+		this.blockedTime = blockedTime;
+	}
+
+	public String getStepName() {
+		return stepName;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public int getReadCount() {
+		return readCount;
+	}
+
+	public int getWriteCount() {
+		return writeCount;
+	}
+
+	public int getFilterCount() {
+		return filterCount;
+	}
+
+	public int getReadSkipCount() {
+		return readSkipCount;
+	}
+
+	public int getProcessSkipCount() {
+		return processSkipCount;
+	}
+
+	public int getWriteSkipCount() {
+		return writeSkipCount;
+	}
+
+	public int getCommitCount() {
+		return commitCount;
+	}
+
+	public int getRollbackCount() {
+		return rollbackCount;
+	}
+
+	/**
+	 * @return wall time in milliseconds
+	 */
+	public long getWallTime() {
+		return wallTime;
+	}
+
+	/**
+	 * @return items read per second
+	 */
+	public double getItemsPerSecond() {
+		return wallTime == 0 ? 0 : readCount * 1000d / wallTime;
+	}
+
+	/**
+	 * @return bytes allocated by the committed chunks
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return milliseconds the committed chunks spent blocked on monitors or waiting, summed over their threads, -1 if
+	 *         thread contention monitoring was disabled
+	 */
+	public long getBlockedTime() {
+		return blockedTime;
+	}
+
+	/**
+	 * @return committed chunk durations in nanoseconds
+	 */
+	public Statistics getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * @param percentile
+	 *            percentile, between 0 and 100
+	 * @return chunk duration percentile in milliseconds
+	 */
+	public double getChunkPercentile(final double percentile) {
+		return chunks.getPercentile(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [%s] read=%d write=%d filter=%d skip=%d/%d/%d commit=%d rollback=%d time=%dms %.1f items/s chunks=%d p50=%.2fms p90=%.2fms p99=%.2fms allocated=%dKB",
+				stepName, status, readCount, writeCount, filterCount, readSkipCount, processSkipCount, writeSkipCount, commitCount, rollbackCount, wallTime,
+				getItemsPerSecond(), chunks.getCount(), getChunkPercentile(50), getChunkPercentile(90), getChunkPercentile(99), allocatedBytes / 1024)
+				+ (blockedTime < 0 ? "" : " blocked=" + blockedTime + "ms");
+	}
+}
@@ -0,0 +1,284 @@
+package com.test.batch.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Runs of a step with several settings (grid size, thread count, commit interval...). The throughput of each run is the
+ * one of the swept step ; the speedup is relative to the first run. When the settings give a thread count, the
+ * efficiency of each run is its speedup divided by the growth of the thread count, and the runs where more threads
+ * don't bring at least {@value #PLATEAU_GAIN} times the throughput of the previous run are reported with their likely
+ * cause. The result of the last sweep run by the current thread is available to the test method through
+ * {@link #current()}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class SweepResult {
+
+	/** Thread count setting. */
+	public static final String THREADS = "threads";
+
+	/** Lowest throughput ratio between a run and the previous one, with fewer threads, not reported as a plateau. */
+	public static final double PLATEAU_GAIN = 1.1;
+
+	/** Blocked share of the thread time above which contention is reported as the cause of a plateau. */
+	private static final double CONTENDED = 0.25;
+
+	/** Result of the last sweep of the current thread. */
+	private static final ThreadLocal<SweepResult> CURRENT = new ThreadLocal<>();
+
+	/** Swept step. */
+	private final String stepName;
+
+	/** Settings of each run. */
+	private final List<Map<String, Integer>> settings = new ArrayList<>();
+
+	/** Metrics of each run. */
+	private final List<JobMetrics> runs = new ArrayList<>();
+
+	/**
+	 * @param stepName
+	 *            swept step
+	 */
+	public SweepResult(final String stepName) {
+		this.stepName = stepName;
+	}
+
+	/**
+	 * @return result of the last sweep run by the current thread, null if there is none
+	 */
+	public static SweepResult current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @param result
+	 *            result of the last sweep run by the current thread
+	 */
+	public static void setCurrent(final SweepResult result) {
+		if (result == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(result);
+		}
+	}
+
+	/**
+	 * @param runSettings
+	 *            settings of the run, by name
+	 * @param metrics
+	 *            metrics of the run
+	 */
+	public void add(final Map<String, Integer> runSettings, final JobMetrics metrics) {
+		settings.add(runSettings);
+		runs.add(metrics);
+	}
+
+	public String getStepName() {
+		return stepName;
+	}
+
+	public List<Map<String, Integer>> getSettings() {
+		return Collections.unmodifiableList(settings);
+	}
+
+	public List<JobMetrics> getRuns() {
+		return Collections.unmodifiableList(runs);
+	}
+
+	/**
+	 * @param index
+	 *            run index
+	 * @return metrics of the swept step in the run
+	 */
+	public StepMetrics getStep(final int index) {
+		final StepMetrics step = runs.get(index).getStep(stepName);
+		if (step == null) {
+			throw new IllegalStateException("Step " + stepName + " not executed by run " + index);
+		}
+		return step;
+	}
+
+	/**
+	 * @param index
+	 *            run index
+	 * @return items read per second by the swept step
+	 */
+	public double getThroughput(final int index) {
+		return getStep(index).getItemsPerSecond();
+	}
+
+	/**
+	 * @param index
+	 *            run index
+	 * @return throughput of the run divided by the throughput of the first run
+	 */
+	public double getSpeedup(final int index) {
+		final double reference = getThroughput(0);
+		return reference == 0 ? Double.NaN : getThroughput(index) / reference;
+	}
+
+	/**
+	 * @param index
+	 *            run index
+	 * @return speedup of the run divided by the growth of its thread count against the first run, NaN if the settings
+	 *         don't give a thread count
+	 */
+	public double getEfficiency(final int index) {
+		final Integer reference = settings.get(0).get(THREADS);
+		final Integer threads = settings.get(index).get(THREADS);
+		if (reference == null || threads == null) {
+			return Double.NaN;
+		}
+		return getSpeedup(index) * reference / threads;
+	}
+
+	/**
+	 * @param index
+	 *            run index
+	 * @return share of the time of the threads of the run spent blocked on monitors or waiting, NaN if it wasn't
+	 *         measured or the settings don't give a thread count
+	 */
+	public double getBlockedShare(final int index) {
+		final Integer threads = settings.get(index).get(THREADS);
+		final StepMetrics step = getStep(index);
+		if (threads == null || step.getBlockedTime() < 0 || step.getWallTime() == 0) {
+			return Double.NaN;
+		}
+		return step.getBlockedTime() / ((double) threads * step.getWallTime());
+	}
+
+	/**
+	 * Tells whether the throughput stops growing with the thread count at a run whose settings differ from the previous
+	 * one by their thread count only, and why : items read differently than
+	 * by the first run (thread-unsafe reader), threads blocked for a large share of their time (synchronized reader or
+	 * writer, lock contention), more threads than processors, or else a resource shared outside the JVM.
+	 * 
+	 * @param index
+	 *            run index
+	 * @return description of the plateau or drop of the throughput at the run, null if there is none
+	 */
+	public String getScalingLimit(final int index) {
+		if (index == 0) {
+			return null;
+		}
+		final Integer previous = settings.get(index - 1).get(THREADS);
+		final Integer threads = settings.get(index).get(THREADS);
+		final double reference = getThroughput(index - 1);
+		if (previous == null || threads == null || threads <= previous || reference == 0 || !sameOtherSettings(index - 1, index)) {
+			return null;
+		}
+		final double gain = getThroughput(index) / reference;
+		if (gain >= PLATEAU_GAIN) {
+			return null;
+		}
+		final StringBuilder sb = new StringBuilder(gain < 1 ? "drop" : "plateau");
+		sb.append(String.format(" (%+.0f%% throughput from %d to %d threads) : ", (gain - 1) * 100, previous, threads));
+		final double blocked = getBlockedShare(index);
+		final int processors = Runtime.getRuntime().availableProcessors();
+		if (getStep(index).getReadCount() != getStep(0).getReadCount()) {
+			sb.append(String.format("%d item(s) read instead of %d, the reader isn't thread-safe", getStep(index).getReadCount(), getStep(0).getReadCount()));
+		} else if (blocked >= CONTENDED) {
+			sb.append(String.format("threads blocked %.0f%% of their time, synchronized reader or writer or lock contention", blocked * 100));
+		} else if (threads > processors) {
+			sb.append("more threads than the ").append(processors).append(" processor(s)");
+		} else {
+			sb.append("little contention in the JVM, resource shared outside (database, disk)");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param first
+	 *            run index
+	 * @param second
+	 *            run index
+	 * @return true if the settings of the runs differ by their thread count only
+	 */
+	private boolean sameOtherSettings(final int first, final int second) {
+		final Map<String, Integer> others = new HashMap<>(settings.get(first));
+		others.put(THREADS, settings.get(second).get(THREADS));
+		return others.equals(settings.get(second));
+	}
+
+	/**
+	 * @return index of the run with the highest throughput, -1 if there is no run
+	 */
+	public int getBest() {
+		int best = -1;
+		for (int i = 0; i < runs.size(); i++) {
+			if (best < 0 || getThroughput(i) > getThroughput(best)) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Writes the result as a JSON object.
+	 * 
+	 * @param json
+	 *            writer
+	 */
+	public void write(final JsonWriter json) {
+		json.beginObject();
+		json.field("step", stepName);
+		final int best = getBest();
+		json.name("best");
+		writeSettings(json, best < 0 ? Collections.<String, Integer> emptyMap() : settings.get(best));
+		json.name("runs").beginArray();
+		for (int i = 0; i < runs.size(); i++) {
+			final StepMetrics step = getStep(i);
+			json.beginObject();
+			json.name("settings");
+			writeSettings(json, settings.get(i));
+			json.field("durationMs", runs.get(i).getDuration()).field("readCount", step.getReadCount()).field("commitCount", step.getCommitCount());
+			json.field("itemsPerSecond", getThroughput(i)).field("speedup", getSpeedup(i));
+			if (settings.get(i).containsKey(THREADS)) {
+				json.field("efficiency", getEfficiency(i)).field("blockedShare", getBlockedShare(i)).field("limit", getScalingLimit(i));
+			}
+			json.endObject();
+		}
+		json.endArray();
+		json.endObject();
+	}
+
+	/**
+	 * @param json
+	 *            writer
+	 * @param runSettings
+	 *            settings of a run
+	 */
+	private static void writeSettings(final JsonWriter json, final Map<String, Integer> runSettings) {
+		json.beginObject();
+		for (final Entry<String, Integer> entry : runSettings.entrySet()) {
+			json.field(entry.getKey(), entry.getValue());
+		}
+		json.endObject();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(stepName);
+		final int best = getBest();
+		if (best >= 0) {
+			sb.append(", best ").append(settings.get(best));
+		}
+		for (int i = 0; i < runs.size(); i++) {
+			sb.append(String.format("%n  %s : %.1f items/s, %d commit(s), speedup %.2f", settings.get(i), getThroughput(i), getStep(i).getCommitCount(), getSpeedup(i)));
+			if (settings.get(i).containsKey(THREADS)) {
+				sb.append(String.format(", efficiency %.2f", getEfficiency(i)));
+			}
+			final String limit = getScalingLimit(i);
+			if (limit != null) {
+				sb.append(", ").append(limit);
+			}
+		}
+		return sb.toString();
+	}
+}
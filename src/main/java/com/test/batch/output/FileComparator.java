@@ -0,0 +1,239 @@
+package com.test.batch.output;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares large files with constant memory : the files are mapped in memory chunk by chunk. The byte comparison stops
+ * at the first difference and reports its line and byte offset. The comparison ignoring line order compares the number
+ * of lines and a hash of the set of lines of each file.
+ * 
+ * @author mguennec
+ * 
+ */
+public final class FileComparator {
+
+	/** Size of the mapped chunks. */
+	private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+
+	/** Maximum length of the lines shown in the differences, centered on the first different byte. */
+	private static final int MAX_LINE_LENGTH = 200;
+
+	/** Mark of the truncated parts of the lines shown in the differences. */
+	private static final String ELLIPSIS = "...";
+
+	/** FNV-1a offset basis. */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/** FNV-1a prime. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private FileComparator() {
+		// Ne fait rien
+	}
+
+	/**
+	 * Compares two files byte by byte.
+	 * 
+	 * @param expected
+	 *            expected file
+	 * @param actual
+	 *            compared file
+	 * @return description of the first difference, null if the files are identical
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	public static String compare(final File expected, final File actual) throws IOException {
+		try (FileInputStream expectedIn = new FileInputStream(expected); FileInputStream actualIn = new FileInputStream(actual)) {
+			final FileChannel expectedChannel = expectedIn.getChannel();
+			final FileChannel actualChannel = actualIn.getChannel();
+			final long size = Math.min(expectedChannel.size(), actualChannel.size());
+			long offset = mismatch(expectedChannel, actualChannel, size);
+			if (offset < 0) {
+				if (expectedChannel.size() == actualChannel.size()) {
+					return null;
+				}
+				offset = size;
+			}
+			final long[] line = locate(expectedChannel, offset);
+			return String.format("%s differs from %s at line %d, column %d (byte offset %d) : expected \"%s\" but was \"%s\"", actual, expected, line[0],
+					offset - line[1] + 1, offset, readLine(expectedChannel, line[1], offset), readLine(actualChannel, line[1], offset));
+		}
+	}
+
+	/**
+	 * Compares the lines of two files regardless of their order.
+	 * 
+	 * @param expected
+	 *            expected file
+	 * @param actual
+	 *            compared file
+	 * @return description of the difference, null if the files have the same lines
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	public static String compareIgnoringOrder(final File expected, final File actual) throws IOException {
+		final long[] expectedDigest = digest(expected);
+		final long[] actualDigest = digest(actual);
+		if (expectedDigest[0] != actualDigest[0]) {
+			return String.format("%s differs from %s ignoring line order : %d line(s) expected but was %d", actual, expected, expectedDigest[0], actualDigest[0]);
+		}
+		if (expectedDigest[1] != actualDigest[1]) {
+			return String.format("%s differs from %s ignoring line order : same number of lines (%d), different content", actual, expected, expectedDigest[0]);
+		}
+		return null;
+	}
+
+	/**
+	 * @param expected
+	 *            first file
+	 * @param actual
+	 *            second file
+	 * @param size
+	 *            number of bytes to compare
+	 * @return offset of the first different byte, -1 if the bytes are the same
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	private static long mismatch(final FileChannel expected, final FileChannel actual, final long size) throws IOException {
+		for (long position = 0; position < size; position += CHUNK_SIZE) {
+			final int length = (int) Math.min(CHUNK_SIZE, size - position);
+			final MappedByteBuffer expectedBuffer = expected.map(MapMode.READ_ONLY, position, length);
+			final MappedByteBuffer actualBuffer = actual.map(MapMode.READ_ONLY, position, length);
+			int i = 0;
+			while (i + 8 <= length && expectedBuffer.getLong(i) == actualBuffer.getLong(i)) {
+				i += 8;
+			}
+			for (; i < length; i++) {
+				if (expectedBuffer.get(i) != actualBuffer.get(i)) {
+					return position + i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param channel
+	 *            file
+	 * @param offset
+	 *            byte offset
+	 * @return line number of the offset and offset of the start of the line
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	private static long[] locate(final FileChannel channel, final long offset) throws IOException {
+		long line = 1;
+		long lineStart = 0;
+		final long size = Math.min(offset, channel.size());
+		for (long position = 0; position < size; position += CHUNK_SIZE) {
+			final int length = (int) Math.min(CHUNK_SIZE, size - position);
+			final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+			for (int i = 0; i < length; i++) {
+				if (buffer.get(i) == '\n') {
+					line++;
+					lineStart = position + i + 1;
+				}
+			}
+		}
+		return new long[] { line, lineStart };
+	}
+
+	/**
+	 * @param channel
+	 *            file
+	 * @param lineStart
+	 *            offset of the start of the line
+	 * @param offset
+	 *            offset of the first different byte
+	 * @return the line, truncated to a window of {@value #MAX_LINE_LENGTH} bytes around the different byte
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	private static String readLine(final FileChannel channel, final long lineStart, final long offset) throws IOException {
+		if (lineStart >= channel.size()) {
+			return "<end of file>";
+		}
+		final long start = Math.max(lineStart, offset - MAX_LINE_LENGTH / 2);
+		final ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE_LENGTH);
+		channel.read(buffer, start);
+		buffer.flip();
+		int length = 0;
+		while (length < buffer.limit() && buffer.get(length) != '\n' && buffer.get(length) != '\r') {
+			length++;
+		}
+		final StringBuilder line = new StringBuilder();
+		if (start > lineStart) {
+			line.append(ELLIPSIS);
+		}
+		line.append(new String(buffer.array(), 0, length, StandardCharsets.UTF_8));
+		if (length == MAX_LINE_LENGTH && start + length < channel.size()) {
+			line.append(ELLIPSIS);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Computes the number of lines of a file and a hash of its lines which doesn't depend on their order.
+	 * 
+	 * @param file
+	 *            file
+	 * @return line count and hash
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	private static long[] digest(final File file) throws IOException {
+		long lines = 0;
+		long sum = 0;
+		long hash = FNV_OFFSET;
+		boolean pending = false;
+		try (FileInputStream in = new FileInputStream(file)) {
+			final FileChannel channel = in.getChannel();
+			final long size = channel.size();
+			for (long position = 0; position < size; position += CHUNK_SIZE) {
+				final int length = (int) Math.min(CHUNK_SIZE, size - position);
+				final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+				for (int i = 0; i < length; i++) {
+					final byte b = buffer.get(i);
+					if (b == '\n') {
+						lines++;
+						sum += mix(hash);
+						hash = FNV_OFFSET;
+						pending = false;
+					} else {
+						hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+						pending = true;
+					}
+				}
+			}
+		}
+		if (pending) {
+			lines++;
+			sum += mix(hash);
+		}
+		return new long[] { lines, sum };
+	}
+
+	/**
+	 * Spreads the bits of a line hash, so that the sum of the hashes of different lines rarely collides.
+	 * 
+	 * @param hash
+	 *            line hash
+	 * @return mixed hash
+	 */
+	private static long mix(final long hash) {
+		long h = hash;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,114 @@
+package com.test.batch.output;
+
+import com.test.batch.annotations.ExpectedFile;
+import com.test.batch.annotations.ExpectedTable;
+import com.test.batch.annotations.ExpectedTables;
+import org.junit.Assert;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+
+/**
+ * Checks the output of a batch test against the expected output declared by its annotations.
+ * 
+ * @author mguennec
+ * 
+ */
+public class OutputChecker {
+
+	/** Spring context, resolving the locations. */
+	private final ConfigurableApplicationContext ctxt;
+
+	/**
+	 * @param ctxt
+	 *            Spring context
+	 */
+	public OutputChecker(final ConfigurableApplicationContext ctxt) {
+		this.ctxt = ctxt;
+	}
+
+	/**
+	 * Checks the output of a test.
+	 * 
+	 * @param method
+	 *            test method
+	 * @throws IOException
+	 *             if the output can't be read
+	 * @throws SQLException
+	 *             if a table can't be read
+	 */
+	public void check(final Method method) throws IOException, SQLException {
+		final ExpectedFile expectedFile = method.getAnnotation(ExpectedFile.class);
+		if (expectedFile != null) {
+			check(expectedFile);
+		}
+		final ExpectedTable expectedTable = method.getAnnotation(ExpectedTable.class);
+		if (expectedTable != null) {
+			check(expectedTable);
+		}
+		final ExpectedTables expectedTables = method.getAnnotation(ExpectedTables.class);
+		if (expectedTables != null) {
+			for (final ExpectedTable table : expectedTables.value()) {
+				check(table);
+			}
+		}
+	}
+
+	/**
+	 * Compares a table with the expected dataset.
+	 * 
+	 * @param expectedTable
+	 *            table and dataset to compare
+	 * @throws IOException
+	 *             if the dataset can't be read
+	 * @throws SQLException
+	 *             if the table can't be read
+	 */
+	private void check(final ExpectedTable expectedTable) throws IOException, SQLException {
+		final DataSource dataSource = StringUtils.hasLength(expectedTable.dataSource()) ? ctxt.getBean(expectedTable.dataSource(), DataSource.class) : ctxt
+				.getBean(DataSource.class);
+		final Resource expected = ctxt.getResource(expectedTable.expected());
+		Assert.assertTrue("Expected dataset not found : " + expected.getDescription(), expected.exists());
+		final String difference = new TableComparator(dataSource).compare(expectedTable.table(), expectedTable.key(), expected);
+		if (difference != null) {
+			Assert.fail(difference);
+		}
+	}
+
+	/**
+	 * Compares a file written by the job with the expected file.
+	 * 
+	 * @param expectedFile
+	 *            files to compare
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	private void check(final ExpectedFile expectedFile) throws IOException {
+		final File output = getFile(expectedFile.output());
+		final File expected = getFile(expectedFile.expected());
+		Assert.assertTrue("Output file not found : " + output, output.isFile());
+		Assert.assertTrue("Expected file not found : " + expected, expected.isFile());
+		final String difference = expectedFile.ignoreOrder() ? FileComparator.compareIgnoringOrder(expected, output) : FileComparator.compare(expected, output);
+		if (difference != null) {
+			Assert.fail(difference);
+		}
+	}
+
+	/**
+	 * @param location
+	 *            resource location
+	 * @return the file of the resource
+	 * @throws IOException
+	 *             if the resource isn't a file
+	 */
+	private File getFile(final String location) throws IOException {
+		final Resource resource = ctxt.getResource(location);
+		return resource.getFile();
+	}
+}
@@ -0,0 +1,215 @@
+package com.test.batch.output;
+
+import com.test.batch.database.CsvReader;
+import org.springframework.core.io.Resource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Compares a table with an expected CSV dataset sorted by key, without keeping the rows in memory. The table is read
+ * through a forward-only cursor ordered by key, in step with the dataset, and each row is compared with the expected
+ * record : the first different row is reported in the same pass.
+ *
+ * @author mguennec
+ *
+ */
+public class TableComparator {
+
+	/** Number of rows fetched at once. */
+	private static final int FETCH_SIZE = 1000;
+
+	/** Data source of the table. */
+	private final DataSource dataSource;
+
+	/**
+	 * @param dataSource
+	 *            data source of the table
+	 */
+	public TableComparator(final DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Compares a table with an expected dataset.
+	 *
+	 * @param table
+	 *            table name
+	 * @param key
+	 *            key columns
+	 * @param expected
+	 *            expected CSV dataset, sorted by key
+	 * @return description of the first difference, null if the table has the expected content
+	 * @throws IOException
+	 *             if the dataset can't be read
+	 * @throws SQLException
+	 *             if the table can't be read
+	 */
+	public String compare(final String table, final String[] key, final Resource expected) throws IOException, SQLException {
+		try (CsvReader csv = new CsvReader(expected.getInputStream()); TableReader rows = new TableReader(dataSource, table, csv.getColumns(), key)) {
+			for (long row = 1;; row++) {
+				final String[] expectedRow = csv.next();
+				final String[] actualRow = rows.next();
+				if (!Arrays.equals(expectedRow, actualRow)) {
+					return String.format("Table %s differs from %s at row %d (line %d, key %s) : expected %s but was %s", table, expected.getDescription(), row,
+							csv.getLineNumber(), Arrays.toString(rows.getKey(expectedRow == null ? actualRow : expectedRow)), describe(expectedRow),
+							describe(actualRow));
+				}
+				if (expectedRow == null) {
+					return null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param row
+	 *            row values
+	 * @return printable row
+	 */
+	private static String describe(final String[] row) {
+		return row == null ? "no more rows" : Arrays.toString(row);
+	}
+
+	/**
+	 * Streams the rows of a table ordered by key.
+	 */
+	private static final class TableReader implements Closeable {
+
+		/** Connection. */
+		private final Connection connection;
+
+		/** Initial auto-commit mode of the connection. */
+		private final boolean autoCommit;
+
+		/** Query. */
+		private final Statement statement;
+
+		/** Rows. */
+		private final ResultSet rs;
+
+		/** Read columns. */
+		private final String[] columns;
+
+		/** Indexes of the key columns in the read columns. */
+		private final int[] keyIndexes;
+
+		/**
+		 * @param dataSource
+		 *            data source
+		 * @param table
+		 *            table name
+		 * @param columns
+		 *            read columns
+		 * @param key
+		 *            key columns
+		 * @throws SQLException
+		 *             if the table can't be read
+		 */
+		private TableReader(final DataSource dataSource, final String table, final String[] columns, final String[] key) throws SQLException {
+			this.columns = columns;
+			keyIndexes = new int[key.length];
+			for (int i = 0; i < key.length; i++) {
+				keyIndexes[i] = indexOf(columns, key[i]);
+				if (keyIndexes[i] < 0) {
+					throw new IllegalArgumentException("Key column " + key[i] + " is not in the expected columns " + Arrays.toString(columns));
+				}
+			}
+			connection = dataSource.getConnection();
+			try {
+				autoCommit = connection.getAutoCommit();
+				// Some drivers only stream the rows inside a transaction
+				connection.setAutoCommit(false);
+				statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				statement.setFetchSize(FETCH_SIZE);
+				rs = statement.executeQuery("SELECT " + join(columns) + " FROM " + table + " ORDER BY " + join(key));
+			} catch (SQLException | RuntimeException e) {
+				connection.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * @param names
+		 *            column names
+		 * @param name
+		 *            searched column
+		 * @return index of the column, -1 if absent
+		 */
+		private static int indexOf(final String[] names, final String name) {
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equalsIgnoreCase(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @param names
+		 *            column names
+		 * @return comma separated names
+		 */
+		private static String join(final String[] names) {
+			final StringBuilder sb = new StringBuilder();
+			for (final String name : names) {
+				sb.append(sb.length() == 0 ? "" : ", ").append(name);
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * @return values of the next row, null at the end of the table
+		 * @throws SQLException
+		 *             if the row can't be read
+		 */
+		private String[] next() throws SQLException {
+			if (!rs.next()) {
+				return null;
+			}
+			final String[] row = new String[columns.length];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = rs.getString(i + 1);
+			}
+			return row;
+		}
+
+		/**
+		 * @param row
+		 *            row values
+		 * @return key values of the row
+		 */
+		private String[] getKey(final String[] row) {
+			if (row == null) {
+				return null;
+			}
+			final String[] key = new String[keyIndexes.length];
+			for (int i = 0; i < key.length; i++) {
+				key[i] = row[keyIndexes[i]];
+			}
+			return key;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				try {
+					rs.close();
+					statement.close();
+					connection.rollback();
+					connection.setAutoCommit(autoCommit);
+				} finally {
+					connection.close();
+				}
+			} catch (SQLException e) {
+				throw new IOException("Unable to close the cursor", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.test.batch.runner;
+
+import org.junit.runner.Runner;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Suite running its test classes longest first according to the {@link TimingHistory} when the system property
+ * {@value TimingHistory#LONGEST_FIRST_PROPERTY} is true, in declaration order otherwise. When the system properties
+ * {@value #SHARD_COUNT_PROPERTY} and {@value #SHARD_INDEX_PROPERTY} are set, the classes are split into shards of about
+ * the same duration and only the classes of the given shard are run, so that CI jobs can share the suite. Every CI job
+ * must read the same timing history (committed file, see {@link TimingHistory#FILE_PROPERTY}) ; as long as the duration
+ * of a class is missing from it, the classes are split by a hash of their name instead, which is the same on every job :
+ *
+ * <pre>
+ * mvn test -Dtest=AllBatchTests -Dbatch.test.shard.count=4 -Dbatch.test.shard.index=0
+ * </pre>
+ *
+ * @author mguennec
+ *
+ */
+public class BalancedSuite extends Suite {
+
+	/** System property giving the number of shards. */
+	public static final String SHARD_COUNT_PROPERTY = "batch.test.shard.count";
+
+	/** System property giving the index of the shard to run, from 0. */
+	public static final String SHARD_INDEX_PROPERTY = "batch.test.shard.index";
+
+	/** Runners of the test classes to run, in order. */
+	private List<Runner> children;
+
+	/**
+	 * @param klass
+	 *            suite class
+	 * @param builder
+	 *            builds the runners of the test classes
+	 * @throws InitializationError
+	 *             if the suite is invalid
+	 */
+	public BalancedSuite(final Class<?> klass, final RunnerBuilder builder) throws InitializationError {
+		super(klass, builder);
+	}
+
+	@Override
+	protected List<Runner> getChildren() {
+		if (children == null) {
+			children = balance(super.getChildren());
+		}
+		return children;
+	}
+
+	/**
+	 * @param runners
+	 *            runners of the test classes of the suite
+	 * @return runners of the current shard, longest first
+	 */
+	private static List<Runner> balance(final List<Runner> runners) {
+		final Map<Runner, Long> durations = new HashMap<>();
+		for (final Runner runner : runners) {
+			durations.put(runner, TimingHistory.getInstance().getClassDuration(runner.getDescription().getClassName()));
+		}
+		final int count = Integer.getInteger(SHARD_COUNT_PROPERTY, 1);
+		final int index = Integer.getInteger(SHARD_INDEX_PROPERTY, 0);
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException("Shard index " + index + " is not in [0, " + count + "[");
+		}
+		if (count > 1) {
+			final List<String> names = new ArrayList<>();
+			final Map<String, Long> classDurations = new HashMap<>();
+			for (final Runner runner : runners) {
+				names.add(runner.getDescription().getClassName());
+				classDurations.put(runner.getDescription().getClassName(), durations.get(runner));
+			}
+			final Set<String> shard = new HashSet<>(TimingHistory.shard(names, classDurations, count).get(index));
+			final List<Runner> selected = new ArrayList<>();
+			for (final Runner runner : TimingHistory.longestFirst(runners, durations)) {
+				if (shard.contains(runner.getDescription().getClassName())) {
+					selected.add(runner);
+				}
+			}
+			return selected;
+		}
+		return TimingHistory.isLongestFirst() ? TimingHistory.longestFirst(runners, durations) : runners;
+	}
+}
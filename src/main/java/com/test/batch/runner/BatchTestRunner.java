@@ -1,24 +1,41 @@
 package com.test.batch.runner;
 
 import com.test.batch.annotations.BatchTest;
+import com.test.batch.annotations.ParallelBatchTests;
+import com.test.batch.annotations.PrefetchContexts;
+import com.test.batch.context.ContextCache;
 import com.test.batch.context.TestContext;
 import com.test.batch.statements.CloseContextStatement;
+import com.test.batch.statements.PrefetchContextsStatement;
+import com.test.batch.statements.RecordDurationStatement;
 import com.test.batch.statements.RunBatch;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.internal.runners.statements.InvokeMethod;
+import org.junit.runner.Description;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Runner to launch a batch test :
  * - Context init
  * - Launch batch
  * - Launch test
+ * Test methods are run concurrently when the class is annotated with {@link ParallelBatchTests}, the contexts of every
+ * worker being built in the background when the class starts.
+ * The contexts of the next test methods are built in the background when the class is annotated with
+ * {@link PrefetchContexts}.
+ * Test methods are run longest first according to the {@link TimingHistory}, which records their durations, when the
+ * system property {@value TimingHistory#LONGEST_FIRST_PROPERTY} is true ; they keep their declaration order otherwise.
  * 
  * @author mguennec
  * 
@@ -28,6 +45,15 @@ public class BatchTestRunner extends BlockJUnit4ClassRunner {
 	/** Runner Spring context. */
 	private final TestContext ctxt;
 
+	/** Number of test methods whose context is built ahead, 0 to disable prefetching. */
+	private final int prefetch;
+
+	/** Number of worker threads, 0 when the test methods are not run concurrently. */
+	private final int workers;
+
+	/** Test methods which will run, computed once the filters are applied. */
+	private List<FrameworkMethod> scheduled;
+
 	/**
 	 * @param klass
 	 *            test class
@@ -35,18 +61,116 @@ public class BatchTestRunner extends BlockJUnit4ClassRunner {
 	 */
 	public BatchTestRunner(final Class<?> klass) throws InitializationError {
 		super(klass);
-		ctxt = new TestContext();
+		final ParallelBatchTests parallel = klass.getAnnotation(ParallelBatchTests.class);
+		if (parallel == null) {
+			ctxt = new TestContext();
+			workers = 0;
+		} else {
+			workers = parallel.threads() == ParallelBatchTests.AVAILABLE_PROCESSORS ? Runtime.getRuntime().availableProcessors() : parallel.threads();
+			setScheduler(new BatchTestScheduler(klass.getSimpleName(), workers));
+			ctxt = new TestContext(ContextCache.getInstance(), true);
+		}
+		final PrefetchContexts prefetchContexts = klass.getAnnotation(PrefetchContexts.class);
+		prefetch = prefetchContexts == null || parallel != null ? 0 : Math.max(0, prefetchContexts.max());
 	}
 
 	@Override
 	protected List<FrameworkMethod> computeTestMethods() {
 		final List<FrameworkMethod> methods = new ArrayList<>(getTestClass().getAnnotatedMethods(BatchTest.class));
 		methods.addAll(getTestClass().getAnnotatedMethods(Test.class));
-		return methods;
+		if (!TimingHistory.isLongestFirst()) {
+			return methods;
+		}
+		final Map<FrameworkMethod, Long> durations = new HashMap<>();
+		for (final FrameworkMethod method : methods) {
+			durations.put(method, TimingHistory.getInstance().getDuration(getKey(method)));
+		}
+		return TimingHistory.longestFirst(methods, durations);
+	}
+
+	/**
+	 * @param method
+	 *            test method
+	 * @return key of the method in the {@link TimingHistory}
+	 */
+	private String getKey(final FrameworkMethod method) {
+		return TimingHistory.key(getTestClass().getJavaClass().getName(), method.getName());
+	}
+
+	/**
+	 * @param method
+	 *            current test method
+	 * @return the test methods whose context is built while the current method runs
+	 */
+	private List<FrameworkMethod> getPrefetchedMethods(final FrameworkMethod method) {
+		final List<FrameworkMethod> methods = getScheduledChildren();
+		final int index = methods.indexOf(method);
+		if (index < 0) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(methods.subList(index + 1, Math.min(methods.size(), index + 1 + prefetch)));
+	}
+
+	/**
+	 * @return the test methods which will run, in their order : the children left by the filters of the runner (single
+	 *         method run from an IDE, <code>-Dtest=Class#method</code>...), without the ignored ones
+	 */
+	private synchronized List<FrameworkMethod> getScheduledChildren() {
+		if (scheduled == null) {
+			// getChildren() ignores the filters, the description only has the filtered children
+			final Map<Description, FrameworkMethod> methods = new HashMap<>();
+			for (final FrameworkMethod method : getChildren()) {
+				methods.put(describeChild(method), method);
+			}
+			scheduled = new ArrayList<>();
+			for (final Description child : getDescription().getChildren()) {
+				final FrameworkMethod method = methods.get(child);
+				if (method != null && !isIgnored(method)) {
+					scheduled.add(method);
+				}
+			}
+		}
+		return scheduled;
+	}
+
+	/**
+	 * @param method
+	 *            test method
+	 * @return true if the method is ignored
+	 */
+	private static boolean isIgnored(final FrameworkMethod method) {
+		return method.getAnnotation(Ignore.class) != null;
+	}
+
+	@Override
+	protected Statement classBlock(final RunNotifier notifier) {
+		final Statement statement = super.classBlock(notifier);
+		if (workers == 0) {
+			return statement;
+		}
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				final List<Method> methods = new ArrayList<>();
+				for (final FrameworkMethod method : getScheduledChildren()) {
+					methods.add(method.getMethod());
+				}
+				ctxt.prefetch(methods, Math.min(workers, methods.size()));
+				statement.evaluate();
+			}
+		};
 	}
 
 	@Override
 	protected Statement methodInvoker(final FrameworkMethod method, final Object test) {
-		return new CloseContextStatement(method, ctxt, new RunBatch(method, ctxt, test, new InvokeMethod(method, test)));
+		Statement statement = new RunBatch(method, ctxt, test, new InvokeMethod(method, test));
+		if (prefetch > 0) {
+			statement = new PrefetchContextsStatement(method, getPrefetchedMethods(method), ctxt, statement);
+		}
+		statement = new CloseContextStatement(method, ctxt, statement);
+		if (!TimingHistory.isRecorded()) {
+			return statement;
+		}
+		return new RecordDurationStatement(getKey(method), TimingHistory.getInstance(), statement);
 	}
 }
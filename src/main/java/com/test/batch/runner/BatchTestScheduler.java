@@ -0,0 +1,58 @@
+package com.test.batch.runner;
+
+import com.test.batch.context.WorkerThread;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduler running the test methods of a class on a bounded pool of {@link WorkerThread}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class BatchTestScheduler implements RunnerScheduler {
+
+	/** Worker pool. */
+	private final ExecutorService executor;
+
+	/**
+	 * @param name
+	 *            name used for the worker threads
+	 * @param threads
+	 *            number of workers
+	 */
+	public BatchTestScheduler(final String name, final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive : " + threads);
+		}
+		final AtomicInteger slots = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final int slot = slots.getAndIncrement();
+				return new WorkerThread(r, name + "-worker-" + slot, slot);
+			}
+		});
+	}
+
+	@Override
+	public void schedule(final Runnable childStatement) {
+		executor.execute(childStatement);
+	}
+
+	@Override
+	public void finished() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+}
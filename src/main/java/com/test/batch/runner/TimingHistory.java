@@ -0,0 +1,323 @@
+package com.test.batch.runner;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+/**
+ * Durations of the batch tests, kept from a run to the next in a properties file (system property
+ * {@value #FILE_PROPERTY}, {@value #DEFAULT_FILE} by default). Durations are used to run the longest tests first and to
+ * split test classes into shards of the same duration. Shards computed on several machines only match when they read
+ * the same history file (committed, or shared by the CI jobs) ; otherwise the classes are split by name.
+ *
+ * Durations are only recorded when the history is used (see {@link #isRecorded()}). The history is loaded once per JVM
+ * and the durations recorded by the JVM are merged into the file at shutdown, so
+ * several JVMs (forked workers) can share the same file. A recorded duration is averaged with the previous one to smooth
+ * the noise of a single run.
+ *
+ * @author mguennec
+ *
+ */
+public final class TimingHistory {
+
+	/** System property giving the history file. */
+	public static final String FILE_PROPERTY = "batch.test.timings.file";
+
+	/** Default history file. */
+	public static final String DEFAULT_FILE = "target/batch-test-timings.properties";
+
+	/** System property enabling the longest first order when set to true. */
+	public static final String LONGEST_FIRST_PROPERTY = "batch.test.longestFirst";
+
+	/** Logger. */
+	private static final Logger LOGGER = Logger.getLogger(TimingHistory.class);
+
+	/** Shared instance. */
+	private static final TimingHistory INSTANCE = new TimingHistory(new File(System.getProperty(FILE_PROPERTY, DEFAULT_FILE)));
+
+	/** History file. */
+	private final File file;
+
+	/** Durations in milliseconds by test key, loaded from the file. */
+	private final Map<String, Long> durations;
+
+	/** Durations recorded by this JVM, by test key. */
+	private final Map<String, Long> recorded = new HashMap<>();
+
+	/**
+	 * @param file
+	 *            history file
+	 */
+	TimingHistory(final File file) {
+		this.file = file;
+		this.durations = load(file);
+		Runtime.getRuntime().addShutdownHook(new Thread("timing-history-save") {
+			@Override
+			public void run() {
+				save();
+			}
+		});
+	}
+
+	/**
+	 * @return the shared history
+	 */
+	public static TimingHistory getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return true if the tests are run longest first, false (declaration order) by default
+	 */
+	public static boolean isLongestFirst() {
+		return Boolean.getBoolean(LONGEST_FIRST_PROPERTY);
+	}
+
+	/**
+	 * @return true if the test durations are recorded : when the tests are run longest first or split into shards
+	 */
+	public static boolean isRecorded() {
+		return isLongestFirst() || Integer.getInteger(BalancedSuite.SHARD_COUNT_PROPERTY, 1) > 1;
+	}
+
+	/**
+	 * @param className
+	 *            test class name
+	 * @param methodName
+	 *            test method name
+	 * @return key of the test in the history
+	 */
+	public static String key(final String className, final String methodName) {
+		return className + "#" + methodName;
+	}
+
+	/**
+	 * @param key
+	 *            test key
+	 * @return last known duration of the test in milliseconds, -1 if unknown
+	 */
+	public synchronized long getDuration(final String key) {
+		final Long duration = durations.get(key);
+		return duration == null ? -1 : duration;
+	}
+
+	/**
+	 * @param className
+	 *            test class name
+	 * @return sum of the known durations of the tests of the class in milliseconds, -1 if none is known
+	 */
+	public synchronized long getClassDuration(final String className) {
+		final String prefix = key(className, "");
+		long total = -1;
+		for (final Entry<String, Long> entry : durations.entrySet()) {
+			if (entry.getKey().startsWith(prefix)) {
+				total = Math.max(total, 0) + entry.getValue();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Records the duration of a test run.
+	 *
+	 * @param key
+	 *            test key
+	 * @param millis
+	 *            duration in milliseconds
+	 */
+	public synchronized void record(final String key, final long millis) {
+		recorded.put(key, millis);
+	}
+
+	/**
+	 * Sorts items by decreasing duration. Items of unknown duration are given the mean known duration ; items of the same
+	 * duration keep their order.
+	 *
+	 * @param items
+	 *            items to sort
+	 * @param durations
+	 *            durations of the items, -1 if unknown
+	 * @param <T>
+	 *            item type
+	 * @return the sorted items
+	 */
+	public static <T> List<T> longestFirst(final List<T> items, final Map<T, Long> durations) {
+		final Map<T, Long> estimates = estimate(durations);
+		final List<T> sorted = new ArrayList<>(items);
+		Collections.sort(sorted, new Comparator<T>() {
+			@Override
+			public int compare(final T o1, final T o2) {
+				return Long.compare(estimates.get(o2), estimates.get(o1));
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * Splits named items into shards of about the same total duration : the longest items are placed first, each one in
+	 * the shard with the smallest total duration so far (longest processing time first). The split only depends on the
+	 * items, their order and their durations, so that every shard computes the same one from the same history. When the
+	 * duration of an item is unknown, the history isn't the same on every shard (local history of a shard only holding
+	 * its own items, new item...) : the items are then split by a hash of their name, which doesn't depend on the
+	 * history.
+	 *
+	 * @param names
+	 *            names of the items to split
+	 * @param durations
+	 *            durations of the items, -1 if unknown
+	 * @param count
+	 *            number of shards
+	 * @return the shards, their items sorted longest first
+	 */
+	public static List<List<String>> shard(final List<String> names, final Map<String, Long> durations, final int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Shard count must be positive : " + count);
+		}
+		final Map<String, Long> estimates = estimate(durations);
+		final List<List<String>> shards = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			shards.add(new ArrayList<String>());
+		}
+		if (durations.values().contains(-1L)) {
+			LOGGER.info("Incomplete test duration history, tests split into shards by name");
+			for (final String name : longestFirst(names, estimates)) {
+				// String.hashCode() is specified, so it is the same in every JVM
+				shards.get((name.hashCode() & Integer.MAX_VALUE) % count).add(name);
+			}
+			return shards;
+		}
+		final long[] loads = new long[count];
+		for (final String name : longestFirst(names, estimates)) {
+			int lightest = 0;
+			for (int i = 1; i < count; i++) {
+				// Same load : the shard with fewer items
+				if (loads[i] < loads[lightest] || loads[i] == loads[lightest] && shards.get(i).size() < shards.get(lightest).size()) {
+					lightest = i;
+				}
+			}
+			shards.get(lightest).add(name);
+			loads[lightest] += estimates.get(name);
+		}
+		return shards;
+	}
+
+	/**
+	 * @param durations
+	 *            durations, -1 if unknown
+	 * @param <T>
+	 *            item type
+	 * @return the durations, unknown ones replaced by the mean known duration
+	 */
+	private static <T> Map<T, Long> estimate(final Map<T, Long> durations) {
+		long total = 0;
+		int known = 0;
+		for (final Long duration : durations.values()) {
+			if (duration >= 0) {
+				total += duration;
+				known++;
+			}
+		}
+		final long mean = known == 0 ? 0 : total / known;
+		final Map<T, Long> estimates = new HashMap<>();
+		for (final Entry<T, Long> entry : durations.entrySet()) {
+			estimates.put(entry.getKey(), entry.getValue() < 0 ? mean : entry.getValue());
+		}
+		return estimates;
+	}
+
+	/**
+	 * Merges the recorded durations into the history file. The file is locked while it is rewritten, so that JVMs sharing
+	 * it don't lose each other's durations.
+	 */
+	synchronized void save() {
+		if (recorded.isEmpty()) {
+			return;
+		}
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			LOGGER.warn("Unable to create " + parent);
+			return;
+		}
+		final File lockFile = new File(parent, file.getName() + ".lock");
+		try (RandomAccessFile lock = new RandomAccessFile(lockFile, "rw")) {
+			final FileLock fileLock = lock.getChannel().lock();
+			try {
+				merge(parent);
+			} finally {
+				fileLock.release();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Unable to save the test durations in " + file, e);
+		}
+	}
+
+	/**
+	 * Merges the recorded durations into the history file, once it is locked.
+	 *
+	 * @param parent
+	 *            directory of the history file
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	private void merge(final File parent) throws IOException {
+		final Map<String, Long> merged = load(file);
+		for (final Entry<String, Long> entry : recorded.entrySet()) {
+			final Long previous = merged.get(entry.getKey());
+			merged.put(entry.getKey(), previous == null ? entry.getValue() : (previous + entry.getValue()) / 2);
+		}
+		final Properties properties = new Properties();
+		for (final Entry<String, Long> entry : merged.entrySet()) {
+			properties.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		final File tmp = new File(parent, file.getName() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)) {
+			properties.store(out, "Batch test durations (ms)");
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		recorded.clear();
+	}
+
+	/**
+	 * @param file
+	 *            history file
+	 * @return durations by test key, empty if the file doesn't exist or can't be read
+	 */
+	private static Map<String, Long> load(final File file) {
+		final Map<String, Long> loaded = new HashMap<>();
+		if (!file.isFile()) {
+			return loaded;
+		}
+		final Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			properties.load(in);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read the test durations from " + file, e);
+			return loaded;
+		}
+		for (final String key : properties.stringPropertyNames()) {
+			try {
+				loaded.put(key, Long.valueOf(properties.getProperty(key)));
+			} catch (NumberFormatException e) {
+				LOGGER.warn("Invalid duration for " + key + " in " + file);
+			}
+		}
+		return loaded;
+	}
+}
@@ -0,0 +1,56 @@
+package com.test.batch.statements;
+
+import com.test.batch.context.TestContext;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+
+import java.util.List;
+
+/**
+ * Statement getting the context of a test, then starting to build the contexts of the next tests in the background
+ * before launching another statement.
+ * 
+ * @author mguennec
+ * 
+ */
+public class PrefetchContextsStatement extends Statement {
+
+	/** next statement. */
+	private final Statement next;
+
+	/** test method. */
+	private final FrameworkMethod method;
+
+	/** test methods run after the current one. */
+	private final List<FrameworkMethod> nextMethods;
+
+	private final TestContext testContext;
+
+	/**
+	 * @param method
+	 *            test method
+	 * @param nextMethods
+	 *            test methods run after the current one
+	 * @param testContext
+	 *            test context
+	 * @param next
+	 *            next statement
+	 */
+	public PrefetchContextsStatement(final FrameworkMethod method, final List<FrameworkMethod> nextMethods, final TestContext testContext, final Statement next) {
+		this.method = method;
+		this.nextMethods = nextMethods;
+		this.testContext = testContext;
+		this.next = next;
+	}
+
+	@Override
+	public void evaluate() throws Throwable {
+		// The current context first, so that both builds don't compete
+		testContext.getContext(method.getMethod());
+		for (final FrameworkMethod nextMethod : nextMethods) {
+			testContext.prefetch(nextMethod.getMethod());
+		}
+		next.evaluate();
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.test.batch.statements;
+
+import com.test.batch.runner.TimingHistory;
+import org.junit.runners.model.Statement;
+
+/**
+ * Statement recording the duration of another statement in the {@link TimingHistory}.
+ *
+ * @author mguennec
+ *
+ */
+public class RecordDurationStatement extends Statement {
+
+	/** Key of the test in the history. */
+	private final String key;
+
+	/** Timing history. */
+	private final TimingHistory history;
+
+	/** Timed statement. */
+	private final Statement next;
+
+	/**
+	 * @param key
+	 *            key of the test in the history
+	 * @param history
+	 *            timing history
+	 * @param next
+	 *            timed statement
+	 */
+	public RecordDurationStatement(final String key, final TimingHistory history, final Statement next) {
+		this.key = key;
+		this.history = history;
+		this.next = next;
+	}
+
+	@Override
+	public void evaluate() throws Throwable {
+		final long start = System.nanoTime();
+		try {
+			next.evaluate();
+		} finally {
+			history.record(key, (System.nanoTime() - start) / 1000000L);
+		}
+	}
+}
@@ -2,13 +2,15 @@ package com.test.batch.statements;
 
 import com.test.batch.context.TestContext;
 import com.test.batch.launcher.BatchLauncher;
+import com.test.batch.metrics.BaselineChecker;
+import com.test.batch.output.OutputChecker;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.Statement;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ConfigurableApplicationContext;
 
 /**
- * Statement launching a batch before launching another statement.
+ * Statement launching a batch and checking its output and performance before launching another statement.
  * 
  * @author mguennec
  * 
@@ -42,6 +44,8 @@ public class RunBatch extends Statement {
         final ConfigurableApplicationContext context = testContext.getContext(method.getMethod());
         context.getAutowireCapableBeanFactory().autowireBeanProperties(testObject, AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE, false);
 		new BatchLauncher().run(method.getMethod(), context);
+		new OutputChecker(context).check(method.getMethod());
+		new BaselineChecker().check(method.getMethod());
 		next.evaluate();
 	}
 
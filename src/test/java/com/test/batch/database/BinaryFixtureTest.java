@@ -0,0 +1,123 @@
+package com.test.batch.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+/**
+ * Tests of {@link BinaryFixture}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class BinaryFixtureTest {
+
+	@Test
+	public void integers() throws IOException {
+		final long[] values = { 0, 1, -1, 63, -64, 64, -65, 127, 128, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (BinaryFixture.Writer writer = new BinaryFixture.Writer(out, new String[] { "N" })) {
+			for (final long value : values) {
+				writer.write(new Object[] { value });
+			}
+			Assert.assertEquals(values.length, writer.getCount());
+		}
+		try (FixtureSource source = BinaryFixture.open(new ByteArrayInputStream(out.toByteArray()))) {
+			for (final long value : values) {
+				Assert.assertEquals(value, source.next()[0]);
+			}
+			Assert.assertNull(source.next());
+		}
+	}
+
+	@Test
+	public void smallIntegersTakeOneByte() throws IOException {
+		Assert.assertEquals(size(0L) + 1, size(64L));
+		Assert.assertEquals(size(0L), size(63L));
+		Assert.assertEquals(size(0L), size(-64L));
+		Assert.assertEquals(size(0L) + 1, size(-65L));
+		Assert.assertEquals(size(0L) + 9, size(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void types() throws IOException {
+		final Object[] row = { null, 42, 1.5d, new BigDecimal("12.340"), "\u00e9t\u00e9", new byte[] { 1, 2, 3 }, true, java.sql.Date.valueOf("2013-05-11"),
+				Time.valueOf("16:52:00"), Timestamp.valueOf("2013-05-11 16:52:00.123"), new StringBuilder("other") };
+		final String[] columns = new String[row.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = "C" + i;
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (BinaryFixture.Writer writer = new BinaryFixture.Writer(out, columns)) {
+			writer.write(row);
+		}
+		try (FixtureSource source = BinaryFixture.open(new ByteArrayInputStream(out.toByteArray()))) {
+			Assert.assertArrayEquals(columns, source.getColumns());
+			final Object[] read = source.next();
+			Assert.assertNull(read[0]);
+			Assert.assertEquals(42L, read[1]);
+			Assert.assertEquals(1.5d, read[2]);
+			Assert.assertEquals(new BigDecimal("12.340"), read[3]);
+			Assert.assertEquals("\u00e9t\u00e9", read[4]);
+			Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) read[5]);
+			Assert.assertEquals(true, read[6]);
+			Assert.assertEquals(java.sql.Date.valueOf("2013-05-11"), read[7]);
+			Assert.assertEquals(Time.valueOf("16:52:00"), read[8]);
+			Assert.assertEquals(Timestamp.valueOf("2013-05-11 16:52:00.123"), read[9]);
+			Assert.assertEquals("other", read[10]);
+			Assert.assertNull(source.next());
+		}
+	}
+
+	@Test
+	public void csv() throws IOException {
+		try (FixtureSource source = BinaryFixture.open(new ByteArrayInputStream("ID,LABEL\n1,a\n".getBytes(StandardCharsets.UTF_8)))) {
+			Assert.assertArrayEquals(new String[] { "ID", "LABEL" }, source.getColumns());
+			Assert.assertEquals(Arrays.asList("1", "a"), Arrays.asList(source.next()));
+			Assert.assertNull(source.next());
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void truncated() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (BinaryFixture.Writer writer = new BinaryFixture.Writer(out, new String[] { "N" })) {
+			writer.write(new Object[] { 300L });
+		}
+		final byte[] content = Arrays.copyOf(out.toByteArray(), out.size() - 2);
+		try (FixtureSource source = BinaryFixture.open(new ByteArrayInputStream(content))) {
+			source.next();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongColumnCount() throws IOException {
+		try (BinaryFixture.Writer writer = new BinaryFixture.Writer(new ByteArrayOutputStream(), new String[] { "N" })) {
+			writer.write(new Object[] { 1L, 2L });
+		}
+	}
+
+	/**
+	 * @param value
+	 *            integer
+	 * @return size of a fixture holding the integer
+	 * @throws IOException
+	 *             if the fixture can't be written
+	 */
+	private static int size(final long value) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (BinaryFixture.Writer writer = new BinaryFixture.Writer(out, new String[] { "N" })) {
+			writer.write(new Object[] { value });
+		}
+		return out.size();
+	}
+}
@@ -0,0 +1,115 @@
+package com.test.batch.database;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of {@link BulkInserter}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class BulkInserterTest {
+
+	/** Data source of the filled table. */
+	private SingleConnectionDataSource dataSource;
+
+	@Before
+	public void createTable() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:bulk_inserter", "sa", "", true);
+		new JdbcTemplate(dataSource).execute("CREATE TABLE ITEMS (ID INT PRIMARY KEY, LABEL VARCHAR(20))");
+	}
+
+	@After
+	public void dropTable() {
+		new JdbcTemplate(dataSource).execute("DROP TABLE ITEMS");
+		dataSource.destroy();
+		System.clearProperty(BulkInserter.ROWS_PER_INSERT_PROPERTY);
+	}
+
+	@Test
+	public void empty() throws SQLException {
+		Assert.assertEquals(0, insert(0));
+		Assert.assertEquals(0, count());
+	}
+
+	@Test
+	public void partialInsert() throws SQLException {
+		Assert.assertEquals(42, insert(42));
+		checkRows(42);
+	}
+
+	@Test
+	public void fullBatchesAndRemainder() throws SQLException {
+		// 2 batches of 50 inserts of 100 rows, 3 inserts in the last batch and 7 rows left
+		final int rows = 2 * 50 * BulkInserter.DEFAULT_ROWS_PER_INSERT + 3 * BulkInserter.DEFAULT_ROWS_PER_INSERT + 7;
+		Assert.assertEquals(rows, insert(rows));
+		checkRows(rows);
+	}
+
+	@Test
+	public void singleRowInserts() throws SQLException {
+		System.setProperty(BulkInserter.ROWS_PER_INSERT_PROPERTY, "1");
+		Assert.assertEquals(123, insert(123));
+		checkRows(123);
+	}
+
+	@Test
+	public void nulls() throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				BulkInserter inserter = new BulkInserter(connection, "ITEMS", new String[] { "ID", "LABEL" }, new int[] { Types.INTEGER, Types.VARCHAR })) {
+			inserter.add(new Object[] { 1, null });
+			inserter.flush();
+		}
+		Assert.assertNull(new JdbcTemplate(dataSource).queryForObject("SELECT LABEL FROM ITEMS WHERE ID = 1", String.class));
+	}
+
+	/**
+	 * @param rows
+	 *            number of rows to insert
+	 * @return number of rows added to the inserter
+	 * @throws SQLException
+	 *             if the rows can't be inserted
+	 */
+	private long insert(final int rows) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				BulkInserter inserter = new BulkInserter(connection, "ITEMS", new String[] { "ID", "LABEL" }, new int[] { Types.INTEGER, Types.VARCHAR })) {
+			for (int i = 0; i < rows; i++) {
+				inserter.add(new Object[] { i, "item" + i });
+			}
+			inserter.flush();
+			return inserter.getCount();
+		}
+	}
+
+	/**
+	 * Checks that every inserted row is in the table, once.
+	 * 
+	 * @param rows
+	 *            number of inserted rows
+	 */
+	private void checkRows(final int rows) {
+		Assert.assertEquals(rows, count());
+		final List<Map<String, Object>> last = new JdbcTemplate(dataSource).queryForList("SELECT ID, LABEL FROM ITEMS WHERE ID = ?", rows - 1);
+		Assert.assertEquals(1, last.size());
+		Assert.assertEquals(Arrays.<Object> asList(rows - 1, "item" + (rows - 1)), Arrays.asList(last.get(0).values().toArray()));
+	}
+
+	/**
+	 * @return number of rows of the table
+	 */
+	private int count() {
+		return new JdbcTemplate(dataSource).queryForInt("SELECT COUNT(*) FROM ITEMS");
+	}
+}
@@ -0,0 +1,78 @@
+package com.test.batch.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests of {@link CsvReader}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class CsvReaderTest {
+
+	@Test
+	public void headerAndRecords() throws IOException {
+		try (CsvReader csv = reader(" ID , LABEL\n1,a\n\n2,b\n")) {
+			Assert.assertArrayEquals(new String[] { "ID", "LABEL" }, csv.getColumns());
+			Assert.assertArrayEquals(new String[] { "1", "a" }, csv.next());
+			Assert.assertArrayEquals(new String[] { "2", "b" }, csv.next());
+			Assert.assertEquals(4, csv.getLineNumber());
+			Assert.assertNull(csv.next());
+		}
+	}
+
+	@Test
+	public void quotes() throws IOException {
+		try (CsvReader csv = reader("A,B,C\n\"x,y\",\"say \"\"hi\"\"\",\"\"\n")) {
+			Assert.assertArrayEquals(new String[] { "x,y", "say \"hi\"", "" }, csv.next());
+		}
+	}
+
+	@Test
+	public void emptyFieldIsNull() throws IOException {
+		try (CsvReader csv = reader("A,B,C\n,b,\n")) {
+			Assert.assertArrayEquals(new String[] { null, "b", null }, csv.next());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void unclosedQuote() throws IOException {
+		try (CsvReader csv = reader("A,B\n\"a,b\n")) {
+			csv.next();
+		}
+	}
+
+	@Test
+	public void wrongFieldCount() throws IOException {
+		try (CsvReader csv = reader("A,B\na,b\na,b,c\n")) {
+			csv.next();
+			try {
+				csv.next();
+				Assert.fail("Record with 3 fields read");
+			} catch (IOException e) {
+				Assert.assertEquals("Line 3 has 3 field(s), 2 expected", e.getMessage());
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void emptyDataset() throws IOException {
+		reader("").close();
+	}
+
+	/**
+	 * @param content
+	 *            CSV content
+	 * @return reader of the content
+	 * @throws IOException
+	 *             if the header can't be read
+	 */
+	private static CsvReader reader(final String content) throws IOException {
+		return new CsvReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+}
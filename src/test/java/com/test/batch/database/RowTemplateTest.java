@@ -0,0 +1,44 @@
+package com.test.batch.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests of {@link RowTemplate}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class RowTemplateTest {
+
+	@Test
+	public void columns() {
+		final RowTemplate template = new RowTemplate(new String[] { " ID =${row}", "LABEL=item" }, 1, 1);
+		Assert.assertArrayEquals(new String[] { "ID", "LABEL" }, template.getColumns());
+	}
+
+	@Test
+	public void rows() {
+		final RowTemplate template = new RowTemplate(new String[] { "ID=${row}", "GRP=${ row % 3 }", "PAGE=${row/10}", "LABEL=item-${row}-${row%2}", "CODE=A", "NOTE=" }, 24, 25);
+		Assert.assertEquals(Arrays.asList(24L, 0L, 2L, "item-24-0", "A", null), Arrays.asList(template.next()));
+		Assert.assertEquals(Arrays.asList(25L, 1L, 2L, "item-25-1", "A", null), Arrays.asList(template.next()));
+		Assert.assertNull(template.next());
+	}
+
+	@Test
+	public void noRows() {
+		Assert.assertNull(new RowTemplate(new String[] { "ID=${row}" }, 2, 1).next());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void missingColumn() {
+		new RowTemplate(new String[] { "${row}" }, 1, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void divisionByZero() {
+		new RowTemplate(new String[] { "ID=${row % 0}" }, 1, 1);
+	}
+}
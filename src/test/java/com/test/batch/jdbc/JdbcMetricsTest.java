@@ -0,0 +1,45 @@
+package com.test.batch.jdbc;
+
+import com.test.batch.jdbc.JdbcMetrics.SqlMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of {@link JdbcMetrics}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class JdbcMetricsTest {
+
+	@Test
+	public void shape() {
+		Assert.assertEquals("SELECT * FROM T WHERE ID = ? AND NAME = ? AND X IN (?)", JdbcRecorder.shape("SELECT *  FROM T\n WHERE ID = 12 AND NAME = 'it''s' AND X IN (?, ?, ?)"));
+	}
+
+	@Test
+	public void usesTablePrefix() {
+		Assert.assertTrue(statement("UPDATE BATCH_JOB_EXECUTION SET VERSION = ?").uses("BATCH_"));
+		Assert.assertTrue(statement("select * from batch_step_execution where id = ?").uses("BATCH_"));
+		Assert.assertTrue(statement("SELECT * FROM APP.BATCH_JOB_INSTANCE").uses("BATCH_"));
+		Assert.assertTrue(statement("SELECT * FROM \"BATCH_JOB_INSTANCE\"").uses("BATCH_"));
+		Assert.assertTrue(statement("SELECT R.ID FROM MY_BATCH_RESULT R JOIN BATCH_JOB_EXECUTION E ON R.ID = E.ID").uses("BATCH_"));
+	}
+
+	@Test
+	public void tableContainingThePrefixIsNotIgnored() {
+		Assert.assertFalse(statement("INSERT INTO MY_BATCH_RESULT VALUES (?, ?)").uses("BATCH_"));
+		Assert.assertFalse(statement("SELECT * FROM ITEMS WHERE KIND = ?").uses("BATCH_"));
+	}
+
+	/**
+	 * @param sql
+	 *            SQL
+	 * @return metrics of the SQL executed once
+	 */
+	private static SqlMetrics statement(final String sql) {
+		final JdbcMetrics metrics = new JdbcMetrics();
+		metrics.executed(JdbcRecorder.shape(sql), 1000);
+		return metrics.getStatements().get(0);
+	}
+}
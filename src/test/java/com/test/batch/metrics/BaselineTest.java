@@ -0,0 +1,102 @@
+package com.test.batch.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests of {@link Baseline}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class BaselineTest {
+
+	@Test
+	public void sameMetrics() throws IOException {
+		final Baseline run = Baseline.of(run("load", 1000, 1000000000L));
+		Assert.assertEquals(Collections.emptyList(), run.compare(roundTrip(run), 0.1));
+	}
+
+	@Test
+	public void singleRunWithoutPercentiles() {
+		final Baseline run = Baseline.of(run("load", 1000, 1000000000L));
+		Assert.assertTrue(run.getValues().containsKey("step.load.itemsPerSecond"));
+		Assert.assertFalse(run.getValues().containsKey("step.load.chunkP99Ms"));
+	}
+
+	@Test
+	public void benchmarkWithPercentiles() {
+		final JobMetrics metrics = run("load", 1000, 1000000000L);
+		final Baseline benchmark = Baseline.of(new BenchmarkResult(0, Arrays.asList(metrics, metrics, metrics)));
+		Assert.assertEquals(10d, benchmark.getValues().get("step.load.chunkP99Ms"), 0.001);
+	}
+
+	@Test
+	public void slowerStep() throws IOException {
+		final Baseline reference = roundTrip(Baseline.of(run("load", 1000, 1000000000L)));
+		final List<String> regressions = Baseline.of(run("load", 1000, 2000000000L)).compare(reference, 0.1);
+		Assert.assertTrue(regressions.toString(), regressions.contains("step.load.itemsPerSecond = 500.000 against 1000.000 in the baseline (-50.0%)"));
+	}
+
+	@Test
+	public void missingStep() throws IOException {
+		final Baseline reference = roundTrip(Baseline.of(run("load", 1000, 1000000000L)));
+		final List<String> regressions = Baseline.of(run("import", 1000, 1000000000L)).compare(reference, 0.1);
+		Assert.assertTrue(regressions.toString(), regressions.contains("step.load.itemsPerSecond = 1000.000 in the baseline is missing from the run"));
+	}
+
+	@Test
+	public void percentilesOfABenchmarkBaselineIgnoredForASingleRun() throws IOException {
+		final JobMetrics metrics = run("load", 1000, 1000000000L);
+		final Baseline reference = roundTrip(Baseline.of(new BenchmarkResult(0, Arrays.asList(metrics))));
+		Assert.assertEquals(Collections.emptyList(), Baseline.of(metrics).compare(reference, 0.1));
+	}
+
+	/**
+	 * @param stepName
+	 *            name of the single step
+	 * @param items
+	 *            items written, in chunks of 10ms
+	 * @param durationNanos
+	 *            job and step duration
+	 * @return metrics of a run
+	 */
+	private static JobMetrics run(final String stepName, final int items, final long durationNanos) {
+		final JobExecution jobExecution = new JobExecution(new JobInstance(1L, new JobParameters(), "job"), 1L);
+		jobExecution.setStartTime(new Date(0));
+		jobExecution.setEndTime(new Date(durationNanos / 1000000));
+		final StepExecution stepExecution = jobExecution.createStepExecution(stepName);
+		stepExecution.setReadCount(items);
+		stepExecution.setWriteCount(items);
+		stepExecution.setStartTime(new Date(0));
+		stepExecution.setEndTime(new Date(durationNanos / 1000000));
+		final JobMetrics metrics = new JobMetrics(jobExecution, durationNanos, GcUsage.now());
+		metrics.addStep(new StepMetrics(stepExecution, Collections.nCopies(items / 10, 10000000L), 0));
+		return metrics;
+	}
+
+	/**
+	 * @param baseline
+	 *            metrics
+	 * @return the metrics stored in a file and loaded again
+	 * @throws IOException
+	 *             if the file can't be written or read
+	 */
+	private static Baseline roundTrip(final Baseline baseline) throws IOException {
+		final File file = File.createTempFile("baseline", ".properties");
+		file.deleteOnExit();
+		baseline.store(file, "test");
+		return Baseline.load(file);
+	}
+}
@@ -0,0 +1,42 @@
+package com.test.batch.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests of {@link JsonWriter}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class JsonWriterTest {
+
+	@Test
+	public void nestedScopes() {
+		final JsonWriter json = new JsonWriter();
+		json.beginObject().field("a", 1).name("b").beginArray().value(true).value(null).beginObject().endObject().endArray();
+		json.field("c", "x").endObject();
+		Assert.assertEquals("{\"a\":1,\"b\":[true,null,{}],\"c\":\"x\"}", json.toString());
+	}
+
+	@Test
+	public void doubles() {
+		final JsonWriter json = new JsonWriter();
+		json.beginArray().value(1.5d).value(Double.NaN).value(Double.POSITIVE_INFINITY).value(0.25f).endArray();
+		Assert.assertEquals("[1.500,null,null,0.250]", json.toString());
+	}
+
+	@Test
+	public void escaping() {
+		final JsonWriter json = new JsonWriter();
+		json.beginObject().field("k\"ey", "a\"b\\c\nd\re\tf\u0001g\u00e9").endObject();
+		Assert.assertEquals("{\"k\\\"ey\":\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\u00e9\"}", json.toString());
+	}
+
+	@Test
+	public void otherValuesAsStrings() {
+		final JsonWriter json = new JsonWriter();
+		json.beginArray().value(Thread.State.NEW).value(42L).endArray();
+		Assert.assertEquals("[\"NEW\",42]", json.toString());
+	}
+}
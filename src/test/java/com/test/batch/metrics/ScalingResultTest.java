@@ -0,0 +1,65 @@
+package com.test.batch.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests of the growth exponent fit of {@link ScalingResult}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class ScalingResultTest {
+
+	/**
+	 * @param durationMs
+	 *            duration of the run
+	 * @return metrics of a run
+	 */
+	private static JobMetrics run(final long durationMs) {
+		final JobExecution execution = new JobExecution(new JobInstance(1L, new JobParameters(), "job"), 1L);
+		return new JobMetrics(execution, TimeUnit.MILLISECONDS.toNanos(durationMs), GcUsage.now());
+	}
+
+	@Test
+	public void linear() {
+		final ScalingResult result = new ScalingResult();
+		result.add(1000, run(100));
+		result.add(10000, run(1000));
+		result.add(100000, run(10000));
+		Assert.assertEquals(1, result.getExponent(), 1e-9);
+	}
+
+	@Test
+	public void quadratic() {
+		final ScalingResult result = new ScalingResult();
+		result.add(100, run(10));
+		result.add(200, run(40));
+		result.add(400, run(160));
+		Assert.assertEquals(2, result.getExponent(), 1e-9);
+	}
+
+	@Test
+	public void leastSquares() {
+		final ScalingResult result = new ScalingResult();
+		result.add(1000, run(110));
+		result.add(10000, run(900));
+		result.add(100000, run(10500));
+		Assert.assertEquals(0.99, result.getExponent(), 0.02);
+	}
+
+	@Test
+	public void undefined() {
+		final ScalingResult result = new ScalingResult();
+		Assert.assertTrue(Double.isNaN(result.getExponent()));
+		result.add(1000, run(100));
+		Assert.assertTrue(Double.isNaN(result.getExponent()));
+		result.add(1000, run(200));
+		Assert.assertTrue(Double.isNaN(result.getExponent()));
+	}
+}
@@ -0,0 +1,67 @@
+package com.test.batch.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests of {@link Statistics}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class StatisticsTest {
+
+	@Test
+	public void empty() {
+		final Statistics statistics = new Statistics(Collections.<Long> emptyList());
+		Assert.assertEquals(0, statistics.getCount());
+		Assert.assertEquals(0, statistics.getMin());
+		Assert.assertEquals(0, statistics.getMax());
+		Assert.assertEquals(0, statistics.getMean(), 0);
+		Assert.assertEquals(0, statistics.getPercentile(50));
+	}
+
+	@Test
+	public void unsortedMeasures() {
+		final Statistics statistics = new Statistics(Arrays.asList(5L, 1L, 4L, 2L, 3L));
+		Assert.assertEquals(5, statistics.getCount());
+		Assert.assertEquals(1, statistics.getMin());
+		Assert.assertEquals(5, statistics.getMax());
+		Assert.assertEquals(15, statistics.getSum());
+		Assert.assertEquals(3, statistics.getMean(), 0);
+	}
+
+	@Test
+	public void nearestRank() {
+		final List<Long> measures = new ArrayList<>();
+		for (long i = 100; i >= 1; i--) {
+			measures.add(i);
+		}
+		final Statistics statistics = new Statistics(measures);
+		Assert.assertEquals(1, statistics.getPercentile(0));
+		Assert.assertEquals(1, statistics.getPercentile(1));
+		Assert.assertEquals(2, statistics.getPercentile(1.5));
+		Assert.assertEquals(50, statistics.getPercentile(50));
+		Assert.assertEquals(99, statistics.getPercentile(99));
+		Assert.assertEquals(100, statistics.getPercentile(99.1));
+		Assert.assertEquals(100, statistics.getPercentile(100));
+	}
+
+	@Test
+	public void singleMeasure() {
+		final Statistics statistics = new Statistics(Collections.singletonList(7L));
+		Assert.assertEquals(7, statistics.getPercentile(0));
+		Assert.assertEquals(7, statistics.getPercentile(50));
+		Assert.assertEquals(7, statistics.getPercentile(100));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void percentileOutOfRange() {
+		new Statistics(Collections.singletonList(1L)).getPercentile(100.5);
+	}
+}
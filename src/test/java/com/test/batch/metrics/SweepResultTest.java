@@ -0,0 +1,125 @@
+package com.test.batch.metrics;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests of the scaling limits of {@link SweepResult}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class SweepResultTest {
+
+	/** Swept step. */
+	private static final String STEP = "step";
+
+	/**
+	 * @param readCount
+	 *            items read by the step
+	 * @param wallTime
+	 *            wall time of the step in milliseconds
+	 * @param blockedTime
+	 *            milliseconds the threads of the step spent blocked, -1 if not measured
+	 * @return metrics of a run
+	 */
+	private static JobMetrics run(final int readCount, final long wallTime, final long blockedTime) {
+		final JobExecution execution = new JobExecution(new JobInstance(1L, new JobParameters(), "job"), 1L);
+		final StepExecution stepExecution = new StepExecution(STEP, execution);
+		stepExecution.setReadCount(readCount);
+		stepExecution.setStartTime(new Date(0));
+		stepExecution.setEndTime(new Date(wallTime));
+		final JobMetrics metrics = new JobMetrics(execution, wallTime * 1000000L, GcUsage.now());
+		metrics.addStep(new StepMetrics(stepExecution, Collections.<Long> emptyList(), -1, blockedTime));
+		return metrics;
+	}
+
+	/**
+	 * @param threads
+	 *            thread count
+	 * @return settings of a run
+	 */
+	private static Map<String, Integer> threads(final int threads) {
+		final Map<String, Integer> settings = new HashMap<>();
+		settings.put(SweepResult.THREADS, threads);
+		return settings;
+	}
+
+	@Test
+	public void scaling() {
+		final SweepResult result = new SweepResult(STEP);
+		result.add(threads(1), run(1000, 1000, -1));
+		result.add(threads(2), run(1000, 550, -1));
+		Assert.assertNull(result.getScalingLimit(0));
+		Assert.assertNull(result.getScalingLimit(1));
+		Assert.assertEquals(1.82, result.getSpeedup(1), 0.01);
+		Assert.assertEquals(0.91, result.getEfficiency(1), 0.01);
+	}
+
+	@Test
+	public void threadUnsafeReader() {
+		final SweepResult result = new SweepResult(STEP);
+		result.add(threads(1), run(1000, 1000, -1));
+		result.add(threads(2), run(900, 1000, -1));
+		Assert.assertEquals("drop (-10% throughput from 1 to 2 threads) : 900 item(s) read instead of 1000, the reader isn't thread-safe",
+				result.getScalingLimit(1));
+	}
+
+	@Test
+	public void contention() {
+		final SweepResult result = new SweepResult(STEP);
+		result.add(threads(1), run(1000, 1000, 0));
+		result.add(threads(2), run(1000, 950, 1140));
+		Assert.assertEquals(0.6, result.getBlockedShare(1), 1e-9);
+		Assert.assertEquals("plateau (+5% throughput from 1 to 2 threads) : threads blocked 60% of their time, synchronized reader or writer or lock contention",
+				result.getScalingLimit(1));
+	}
+
+	@Test
+	public void moreThreadsThanProcessors() {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		final SweepResult result = new SweepResult(STEP);
+		result.add(threads(processors), run(1000, 1000, -1));
+		result.add(threads(2 * processors), run(1000, 1000, -1));
+		Assert.assertEquals("plateau (+0% throughput from " + processors + " to " + 2 * processors + " threads) : more threads than the " + processors
+				+ " processor(s)", result.getScalingLimit(1));
+	}
+
+	@Test
+	public void sharedResource() {
+		Assume.assumeTrue(Runtime.getRuntime().availableProcessors() >= 2);
+		final SweepResult result = new SweepResult(STEP);
+		result.add(threads(1), run(1000, 1000, 100));
+		result.add(threads(2), run(1000, 1000, 200));
+		Assert.assertEquals("plateau (+0% throughput from 1 to 2 threads) : little contention in the JVM, resource shared outside (database, disk)",
+				result.getScalingLimit(1));
+	}
+
+	@Test
+	public void notComparable() {
+		final SweepResult result = new SweepResult(STEP);
+		result.add(threads(2), run(1000, 1000, -1));
+		// Fewer threads
+		result.add(threads(1), run(1000, 2000, -1));
+		final Map<String, Integer> otherSettings = threads(2);
+		otherSettings.put("commitInterval", 10);
+		// Other setting changed
+		result.add(otherSettings, run(1000, 2000, -1));
+		// No thread count
+		result.add(Collections.singletonMap("commitInterval", 10), run(1000, 2000, -1));
+		for (int i = 0; i < 4; i++) {
+			Assert.assertNull(result.getScalingLimit(i));
+		}
+		Assert.assertTrue(Double.isNaN(result.getEfficiency(3)));
+	}
+}
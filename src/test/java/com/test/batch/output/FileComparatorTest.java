@@ -0,0 +1,70 @@
+package com.test.batch.output;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests of {@link FileComparator}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class FileComparatorTest {
+
+	@Test
+	public void identicalFiles() throws IOException {
+		Assert.assertNull(FileComparator.compare(file("a\nb\n"), file("a\nb\n")));
+	}
+
+	@Test
+	public void shortLines() throws IOException {
+		final String difference = FileComparator.compare(file("a\nbcd\ne\n"), file("a\nbxd\ne\n"));
+		Assert.assertTrue(difference, difference.endsWith("at line 2, column 2 (byte offset 3) : expected \"bcd\" but was \"bxd\""));
+	}
+
+	@Test
+	public void longLinesDifferingAfterTheWindow() throws IOException {
+		final StringBuilder prefix = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			prefix.append((char) ('a' + i % 26));
+		}
+		final String difference = FileComparator.compare(file("x\n" + prefix + "1" + prefix + "\n"), file("x\n" + prefix + "2" + prefix + "\n"));
+		final String expected = "..." + prefix.substring(900) + "1" + prefix.substring(0, 99) + "...";
+		final String actual = "..." + prefix.substring(900) + "2" + prefix.substring(0, 99) + "...";
+		Assert.assertTrue(difference, difference.endsWith("at line 2, column 1001 (byte offset 1002) : expected \"" + expected + "\" but was \"" + actual + "\""));
+	}
+
+	@Test
+	public void shorterFile() throws IOException {
+		final String difference = FileComparator.compare(file("a\nb\n"), file("a\n"));
+		Assert.assertTrue(difference, difference.endsWith("expected \"b\" but was \"<end of file>\""));
+	}
+
+	@Test
+	public void ignoringOrder() throws IOException {
+		Assert.assertNull(FileComparator.compareIgnoringOrder(file("a\nb\nc\n"), file("c\na\nb")));
+		Assert.assertNotNull(FileComparator.compareIgnoringOrder(file("a\nb\n"), file("a\nc\n")));
+		Assert.assertNotNull(FileComparator.compareIgnoringOrder(file("a\nb\n"), file("a\nb\nb\n")));
+	}
+
+	/**
+	 * @param content
+	 *            content of the file
+	 * @return a temporary file, deleted when the JVM exits
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	private static File file(final String content) throws IOException {
+		final File file = File.createTempFile("compare", ".txt");
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+}
@@ -0,0 +1,72 @@
+package com.test.batch.output;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Tests of {@link TableComparator}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class TableComparatorTest {
+
+	/** Data source of the compared table. */
+	private SingleConnectionDataSource dataSource;
+
+	@Before
+	public void createTable() {
+		dataSource = new SingleConnectionDataSource("jdbc:h2:mem:table_comparator", "sa", "", true);
+		final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("CREATE TABLE ITEMS (ID INT PRIMARY KEY, LABEL VARCHAR(20))");
+		jdbc.execute("INSERT INTO ITEMS VALUES (2, 'b'), (1, 'a'), (3, NULL)");
+	}
+
+	@After
+	public void dropTable() {
+		new JdbcTemplate(dataSource).execute("DROP TABLE ITEMS");
+		dataSource.destroy();
+	}
+
+	@Test
+	public void sameContent() throws IOException, SQLException {
+		Assert.assertNull(compare("ID,LABEL\n1,a\n2,b\n3,\n"));
+	}
+
+	@Test
+	public void differentRow() throws IOException, SQLException {
+		Assert.assertEquals("Table ITEMS differs from expected at row 2 (line 3, key [2]) : expected [2, x] but was [2, b]", compare("ID,LABEL\n1,a\n2,x\n3,\n"));
+	}
+
+	@Test
+	public void missingRow() throws IOException, SQLException {
+		Assert.assertEquals("Table ITEMS differs from expected at row 3 (line 4, key [3]) : expected no more rows but was [3, null]", compare("ID,LABEL\n1,a\n2,b\n"));
+	}
+
+	@Test
+	public void extraRow() throws IOException, SQLException {
+		Assert.assertEquals("Table ITEMS differs from expected at row 4 (line 5, key [4]) : expected [4, d] but was no more rows", compare("ID,LABEL\n1,a\n2,b\n3,\n4,d\n"));
+	}
+
+	/**
+	 * @param csv
+	 *            expected dataset
+	 * @return description of the difference
+	 * @throws IOException
+	 *             if the dataset can't be read
+	 * @throws SQLException
+	 *             if the table can't be read
+	 */
+	private String compare(final String csv) throws IOException, SQLException {
+		return new TableComparator(dataSource).compare("ITEMS", new String[] { "ID" }, new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8), "expected"));
+	}
+}
@@ -0,0 +1,93 @@
+package com.test.batch.runner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests of {@link TimingHistory}.
+ * 
+ * @author mguennec
+ * 
+ */
+public class TimingHistoryTest {
+
+	@Test
+	public void longestFirst() {
+		final Map<String, Long> durations = durations("a", 10L, "b", -1L, "c", 30L, "d", 10L);
+		// b gets the mean known duration, 16
+		Assert.assertEquals(Arrays.asList("c", "b", "a", "d"), TimingHistory.longestFirst(Arrays.asList("a", "b", "c", "d"), durations));
+	}
+
+	@Test
+	public void shardByDuration() {
+		final Map<String, Long> durations = durations("a", 50L, "b", 40L, "c", 30L, "d", 20L, "e", 10L);
+		final List<List<String>> shards = TimingHistory.shard(Arrays.asList("a", "b", "c", "d", "e"), durations, 2);
+		Assert.assertEquals(Arrays.asList("a", "d", "e"), shards.get(0));
+		Assert.assertEquals(Arrays.asList("b", "c"), shards.get(1));
+	}
+
+	@Test
+	public void shardByDurationIgnoresHistoryOrder() {
+		final Map<String, Long> durations = durations("a", 50L, "b", 40L, "c", 30L);
+		final List<String> names = Arrays.asList("a", "b", "c");
+		Assert.assertEquals(TimingHistory.shard(names, durations, 2), TimingHistory.shard(names, new HashMap<>(durations), 2));
+	}
+
+	@Test
+	public void shardByNameWhenHistoryIsIncomplete() {
+		final List<String> names = Arrays.asList("com.Alpha", "com.Beta", "com.Gamma", "com.Delta");
+		// Each shard only knows its own classes : both must compute the same split
+		final Map<String, Long> firstShard = durations("com.Alpha", 500L, "com.Beta", -1L, "com.Gamma", 20L, "com.Delta", -1L);
+		final Map<String, Long> secondShard = durations("com.Alpha", -1L, "com.Beta", 70L, "com.Gamma", -1L, "com.Delta", 1000L);
+		final List<List<String>> shards = TimingHistory.shard(names, firstShard, 3);
+		for (int i = 0; i < shards.size(); i++) {
+			for (final String name : shards.get(i)) {
+				Assert.assertEquals(name, (name.hashCode() & Integer.MAX_VALUE) % 3, i);
+			}
+		}
+		Assert.assertEquals(sorted(shards), sorted(TimingHistory.shard(names, secondShard, 3)));
+		Assert.assertEquals(names.size(), shards.get(0).size() + shards.get(1).size() + shards.get(2).size());
+	}
+
+	@Test
+	public void singleShard() {
+		final Map<String, Long> durations = durations("a", 1L, "b", 2L);
+		Assert.assertEquals(Arrays.asList(Arrays.asList("b", "a")), TimingHistory.shard(Arrays.asList("a", "b"), durations, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidShardCount() {
+		TimingHistory.shard(Arrays.asList("a"), durations("a", 1L), 0);
+	}
+
+	/**
+	 * @param keysAndDurations
+	 *            item names followed by their duration
+	 * @return durations by name
+	 */
+	private static Map<String, Long> durations(final Object... keysAndDurations) {
+		final Map<String, Long> durations = new HashMap<>();
+		for (int i = 0; i < keysAndDurations.length; i += 2) {
+			durations.put((String) keysAndDurations[i], (Long) keysAndDurations[i + 1]);
+		}
+		return durations;
+	}
+
+	/**
+	 * @param shards
+	 *            shards
+	 * @return the shards, their items sorted by name
+	 */
+	private static List<List<String>> sorted(final List<List<String>> shards) {
+		for (final List<String> shard : shards) {
+			Collections.sort(shard);
+		}
+		return shards;
+	}
+}